@@ -0,0 +1,89 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Suppression, persistence, expiry and bounded cache of AlertCooldown
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlertCooldownTest {
+
+    private static final String TEST_DB = "WarehousePro-cooldown.db";
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void repeatedAlert_isSuppressedAndCounted() {
+        AlertCooldown cooldown = new AlertCooldown(databaseHelper, HOUR, 100);
+
+        assertFalse(cooldown.isCoolingDown(1));
+        assertTrue(cooldown.tryAcquire(1));
+        assertTrue(cooldown.isCoolingDown(1));
+        assertFalse(cooldown.tryAcquire(1));
+        assertFalse(cooldown.tryAcquire(1));
+        assertTrue(cooldown.tryAcquire(2));
+
+        assertEquals(2, cooldown.getAllowedCount());
+        assertEquals(2, cooldown.getSuppressedCount());
+    }
+
+    @Test
+    public void cooldown_survivesRestart() {
+        new AlertCooldown(databaseHelper, HOUR, 100).tryAcquire(1);
+
+        // A new process starts with an empty cache
+        AlertCooldown restarted = new AlertCooldown(databaseHelper, HOUR, 100);
+        assertFalse(restarted.tryAcquire(1));
+        assertEquals(1, restarted.getSuppressedCount());
+    }
+
+    @Test
+    public void expiredCooldown_allowsAlertAndIsPruned() throws Exception {
+        AlertCooldown cooldown = new AlertCooldown(databaseHelper, 100, 100);
+        assertTrue(cooldown.tryAcquire(1));
+        assertFalse(cooldown.tryAcquire(1));
+
+        Thread.sleep(150);
+        assertEquals(1, cooldown.prune());
+        assertEquals(-1, databaseHelper.getLastAlertTime(1));
+        assertTrue(cooldown.tryAcquire(1));
+    }
+
+    @Test
+    public void cache_staysBoundedAndFallsBackToDatabase() {
+        AlertCooldown cooldown = new AlertCooldown(databaseHelper, HOUR, 10);
+        for (int itemId = 1; itemId <= 100; itemId++) {
+            assertTrue(cooldown.tryAcquire(itemId));
+        }
+        assertEquals(10, cooldown.getCachedItemCount());
+
+        // Long evicted from memory, still cooling down
+        assertFalse(cooldown.tryAcquire(1));
+        assertEquals(10, cooldown.getCachedItemCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static com.omercengiz.warehousepro.SmsDispatcherTest.waitUntil;
+import static org.junit.Assert.*;
+
+/**
+ * Window expiry, size limit, de-duplication and cooldown confirmation of AlertDigester
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlertDigesterTest {
+
+    private static final String TEST_DB = "WarehousePro-digest.db";
+    private static final String PHONE = "5551234567";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private TaskScheduler scheduler;
+    private FakeSmsSender sender;
+    private SmsDispatcher dispatcher;
+    private AlertCooldown cooldown;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        scheduler = new TaskScheduler();
+        sender = new FakeSmsSender();
+        dispatcher = new SmsDispatcher(databaseHelper, sender, new TokenBucket(10, 10),
+                new RetryBackoff(50, 200, 3), scheduler);
+        dispatcher.start();
+        cooldown = new AlertCooldown(databaseHelper, 60 * 60 * 1000, 100);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void alertsInOneWindow_sendOneDigestWhenItExpires() throws Exception {
+        AlertDigester digester = new AlertDigester(dispatcher, cooldown, 300, 10, AlertMessages.Style.DETAILED);
+
+        assertTrue(digester.add(PHONE, item(1, "Pallet Wrap")));
+        assertTrue(digester.add(PHONE, item(2, "Box Cutter")));
+        assertTrue(digester.add(PHONE, item(3, "Tape Gun")));
+        assertEquals(3, digester.getPendingCount());
+        assertEquals(0, sender.sentCount());
+
+        waitUntil(() -> sender.sentCount() == 1);
+        String body = sender.sentBodies().get(0);
+        assertTrue(body.contains("3 ITEMS OUT OF STOCK"));
+        assertTrue(body.indexOf("Pallet Wrap") < body.indexOf("Box Cutter"));
+        assertTrue(body.contains("Tape Gun"));
+        assertEquals(0, digester.getPendingCount());
+
+        // The next alert opens a new window
+        digester.add(PHONE, item(4, "Zip Ties"));
+        waitUntil(() -> sender.sentCount() == 2);
+        assertTrue(sender.sentBodies().get(1).contains("Zip Ties"));
+    }
+
+    @Test
+    public void fullDigest_isSentWithoutWaiting() throws Exception {
+        AlertDigester digester = new AlertDigester(dispatcher, cooldown, 60 * 60 * 1000, 2, AlertMessages.Style.DETAILED);
+
+        digester.add(PHONE, item(1, "Pallet Wrap"));
+        digester.add(PHONE, item(2, "Box Cutter"));
+        digester.add(PHONE, item(3, "Tape Gun"));
+
+        waitUntil(() -> sender.sentCount() == 1);
+        assertFalse(sender.sentBodies().get(0).contains("Tape Gun"));
+        assertEquals(1, digester.getPendingCount());
+
+        digester.flush();
+        waitUntil(() -> sender.sentCount() == 2);
+        assertTrue(sender.sentBodies().get(1).contains("Tape Gun"));
+    }
+
+    @Test
+    public void sameItemTwice_isListedOnce() throws Exception {
+        AlertDigester digester = new AlertDigester(dispatcher, cooldown, 60 * 60 * 1000, 10, AlertMessages.Style.DETAILED);
+
+        assertTrue(digester.add(PHONE, item(1, "Pallet Wrap")));
+        assertFalse(digester.add(PHONE, item(1, "Pallet Wrap")));
+        assertTrue(digester.add("5557654321", item(1, "Pallet Wrap")));
+        assertEquals(2, digester.getPendingCount());
+
+        digester.flush();
+        waitUntil(() -> sender.sentCount() == 2);
+        List<String> bodies = sender.sentBodies();
+        assertEquals(bodies.get(0).indexOf("Pallet Wrap"), bodies.get(0).lastIndexOf("Pallet Wrap"));
+    }
+
+    @Test
+    public void cooldown_startsWhenDigestIsQueued() throws Exception {
+        AlertDigester digester = new AlertDigester(dispatcher, cooldown, 60 * 60 * 1000, 10, AlertMessages.Style.DETAILED);
+
+        assertTrue(cooldown.tryClaim(1));
+        digester.add(PHONE, item(1, "Pallet Wrap"));
+
+        // Suppressed while waiting in the window, but nothing is stored that would outlive a crash
+        assertFalse(cooldown.tryClaim(1));
+        assertEquals(-1, databaseHelper.getLastAlertTime(1));
+        assertFalse(new AlertCooldown(databaseHelper, 60 * 60 * 1000, 100).isCoolingDown(1));
+
+        digester.flush();
+        waitUntil(() -> databaseHelper.getLastAlertTime(1) > 0);
+        assertTrue(new AlertCooldown(databaseHelper, 60 * 60 * 1000, 100).isCoolingDown(1));
+    }
+
+    private static InventoryItem item(int id, String name) {
+        return new InventoryItem(id, name, 1.0, 0, "", "");
+    }
+}
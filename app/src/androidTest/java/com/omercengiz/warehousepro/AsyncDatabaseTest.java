@@ -0,0 +1,147 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * AsyncDatabase keeps every database call off the main thread and delivers results on it
+ */
+@RunWith(AndroidJUnit4.class)
+public class AsyncDatabaseTest {
+
+    private static final String TEST_DB = "WarehousePro-async.db";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private InventoryRepository repository;
+    private TaskScheduler scheduler;
+    private AsyncDatabase asyncDatabase;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        // Any main-thread call now fails instead of only being logged
+        databaseHelper.setMainThreadAccessAllowed(false);
+        repository = new InventoryRepository(databaseHelper, InventoryRepository.EvictionPolicy.LRU,
+                InventoryRepository.DEFAULT_MAX_CACHE_BYTES);
+        scheduler = new TaskScheduler();
+        asyncDatabase = new AsyncDatabase(databaseHelper, repository, scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        asyncDatabase.close();
+        scheduler.shutdownNow();
+        repository.close();
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void callsFromMainThread_runInBackground() throws Exception {
+        assertFalse(onMain(() -> asyncDatabase.userExists("clerk")));
+        assertTrue(onMain(() -> asyncDatabase.createUser("clerk", "secret", "clerk@example.com")));
+        assertTrue(onMain(() -> asyncDatabase.userExists("clerk")));
+        assertTrue(onMain(() -> asyncDatabase.authenticateUser("clerk", "secret")));
+        assertFalse(onMain(() -> asyncDatabase.authenticateUser("clerk", "wrong")));
+        onMain(() -> asyncDatabase.setActiveUser("clerk"));
+
+        assertTrue(onMain(() -> asyncDatabase.addInventoryItem("Test Crates", 2.5, 10, "")));
+        assertTrue(onMain(() -> asyncDatabase.updateItemQuantity(null, 1, 42)));
+        assertEquals(42, repository.getItem(1).getQuantity());
+        assertTrue(onMain(() -> asyncDatabase.deleteInventoryItem(1)));
+        assertNull(repository.getItem(1));
+
+        assertEquals(0, databaseHelper.getMainThreadAccessCount());
+    }
+
+    @Test
+    public void quantityUpdate_landsAfterBufferedTaps() throws Exception {
+        File journalFile = new File(context.getCacheDir(), "test-async-" + QuantityWriteBuffer.JOURNAL_FILE_NAME);
+        journalFile.delete();
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(databaseHelper, journalFile, 60 * 60 * 1000, 10_000);
+        buffer.add(2, 5);
+
+        // The update must not be overwritten by the tap flushed after it
+        assertTrue(onMain(() -> asyncDatabase.updateItemQuantity(buffer, 2, 7)));
+        buffer.flushAndWait();
+        assertEquals(7, repository.getItem(2).getQuantity());
+
+        buffer.close();
+        journalFile.delete();
+        assertEquals(0, databaseHelper.getMainThreadAccessCount());
+    }
+
+    @Test
+    public void ownedCalls_areNotDeliveredAfterDestroy() throws Exception {
+        TaskSchedulerTest.TestOwner owner = TaskSchedulerTest.newOwner();
+        assertTrue(onMain(() -> asyncDatabase.createUser(owner, "clerk", "secret", "clerk@example.com")));
+        assertTrue(onMain(() -> asyncDatabase.userExists(owner, "clerk")));
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                owner.registry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY));
+
+        // A write started for the destroyed screen still happens; neither call reports back
+        AtomicReference<CompletableFuture<Boolean>> write = new AtomicReference<>();
+        AtomicReference<CompletableFuture<Boolean>> read = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            write.set(asyncDatabase.addInventoryItem(owner, "Late Crates", 1.0, 3, ""));
+            read.set(asyncDatabase.userExists(owner, "clerk"));
+        });
+        SmsDispatcherTest.waitUntil(() -> !databaseHelper.searchInventoryItems("Late Crates").isEmpty());
+        Thread.sleep(100); // Let the results be posted to the main thread
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertFalse(write.get().isDone());
+        assertFalse(read.get().isDone());
+    }
+
+    @Test
+    public void directCallOnMainThread_isCaught() {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            try {
+                databaseHelper.userExists("admin");
+            } catch (IllegalStateException e) {
+                failure.set(e);
+            }
+        });
+
+        assertNotNull(failure.get());
+        assertEquals(1, databaseHelper.getMainThreadAccessCount());
+    }
+
+    /**
+     * Start a call on the main thread, as an activity would, and wait for its result.
+     * Checks that the result is delivered on the main thread as well.
+     */
+    private <T> T onMain(Supplier<CompletableFuture<T>> call) throws Exception {
+        AtomicReference<CompletableFuture<T>> delivered = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                delivered.set(call.get().thenApply(result -> {
+                    assertSame(Looper.getMainLooper(), Looper.myLooper());
+                    return result;
+                })));
+        return delivered.get().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
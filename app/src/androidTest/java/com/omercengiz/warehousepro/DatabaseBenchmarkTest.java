@@ -0,0 +1,519 @@
+package com.omercengiz.warehousepro;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Database latency benchmarks, executed on a device against a separate database file.
+ * Results are written to logcat under the "DatabaseBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseBenchmarkTest {
+
+    private static final String TAG = "DatabaseBenchmark";
+    private static final String BENCHMARK_DB = "WarehousePro-benchmark.db";
+    private static final int INVENTORY_ROWS = 50_000;
+    private static final int LARGE_INVENTORY_ROWS = 100_000;
+    private static final int SEARCH_INVENTORY_ROWS = 200_000;
+    private static final int OPERATIONS = 500;
+    private static final int IMPORT_ROWS = 1_000_000;
+    private static final int EXPORT_ROWS = 1_000_000;
+    private static final int SNAPSHOT_ROWS = 1_000_000;
+    private static final int HISTORY_ITEMS = 1_000;
+    private static final int HISTORY_DAYS = 3 * 365;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(BENCHMARK_DB);
+        databaseHelper = new DatabaseHelper(context, BENCHMARK_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(BENCHMARK_DB);
+    }
+
+    @Test
+    public void quantityUpdate_sharedConnectionVsReopen() {
+        populateInventory(databaseHelper.getWritableDatabase(), INVENTORY_ROWS);
+
+        // Before: the connection was closed after every call and reopened by the next one
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(databaseHelper.updateItemQuantity(itemId(i), i));
+            databaseHelper.close();
+        }
+        long reopenNanos = System.nanoTime() - start;
+
+        // After: one long-lived connection
+        databaseHelper.getWritableDatabase();
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(databaseHelper.updateItemQuantity(itemId(i), i + 1));
+        }
+        long sharedNanos = System.nanoTime() - start;
+
+        report("updateItemQuantity", INVENTORY_ROWS, reopenNanos, sharedNanos);
+    }
+
+    @Test
+    public void authenticate_sharedConnectionVsReopen() {
+        populateInventory(databaseHelper.getWritableDatabase(), INVENTORY_ROWS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(databaseHelper.authenticateUser("admin", "1234"));
+            databaseHelper.close();
+        }
+        long reopenNanos = System.nanoTime() - start;
+
+        databaseHelper.getReadableDatabase();
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(databaseHelper.authenticateUser("admin", "1234"));
+        }
+        long sharedNanos = System.nanoTime() - start;
+
+        report("authenticateUser", INVENTORY_ROWS, reopenNanos, sharedNanos);
+    }
+
+    @Test
+    public void rowMapping_perRowLookupVsResolvedIndices() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        populateInventory(db, LARGE_INVENTORY_ROWS);
+
+        // Before: SELECT * with getColumnIndexOrThrow for every column of every row
+        long start = System.nanoTime();
+        List<InventoryItem> legacyItems = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT * FROM inventory ORDER BY item_name", null);
+        while (cursor.moveToNext()) {
+            InventoryItem item = new InventoryItem();
+            item.setId(cursor.getInt(cursor.getColumnIndexOrThrow("item_id")));
+            item.setName(cursor.getString(cursor.getColumnIndexOrThrow("item_name")));
+            item.setWeight(cursor.getDouble(cursor.getColumnIndexOrThrow("item_weight")));
+            item.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow("item_quantity")));
+            item.setNotes(cursor.getString(cursor.getColumnIndexOrThrow("item_notes")));
+            item.setLastUpdated(cursor.getString(cursor.getColumnIndexOrThrow("last_updated")));
+            legacyItems.add(item);
+        }
+        cursor.close();
+        long legacyNanos = System.nanoTime() - start;
+
+        // After: explicit projection and one shared row mapper
+        start = System.nanoTime();
+        List<InventoryItem> items = databaseHelper.getAllInventoryItems();
+        long mapperNanos = System.nanoTime() - start;
+
+        assertEquals(legacyItems.size(), items.size());
+        Log.i(TAG, String.format("row mapping (%d rows): before %.1f ms, after %.1f ms",
+                items.size(), legacyNanos / 1e6, mapperNanos / 1e6));
+    }
+
+    @Test
+    public void insert_contentValuesVsCachedStatement() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        populateInventory(db, LARGE_INVENTORY_ROWS);
+
+        // Before: a fresh ContentValues and statement compile per insert
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            ContentValues values = new ContentValues();
+            values.put("item_name", "ContentValues Item " + i);
+            values.put("item_weight", 2.0);
+            values.put("item_quantity", i);
+            values.put("item_notes", "");
+            assertTrue(db.insert("inventory", null, values) != -1);
+        }
+        long contentValuesNanos = System.nanoTime() - start;
+
+        // After: cached SQLiteStatement
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(databaseHelper.addInventoryItem("Statement Item " + i, 2.0, i, ""));
+        }
+        long statementNanos = System.nanoTime() - start;
+
+        report("insert", LARGE_INVENTORY_ROWS, contentValuesNanos, statementNanos);
+    }
+
+    @Test
+    public void search_likeScanVsFullTextIndex() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        populateInventory(db, SEARCH_INVENTORY_ROWS);
+        String[] queries = {"Item 1234", "generated 99", "benchmark", "row 19999"};
+
+        // Before: LIKE '%q%' scans every row
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS / 10; i++) {
+            Cursor cursor = db.rawQuery("SELECT item_id FROM inventory WHERE item_name LIKE ? LIMIT 200",
+                    new String[]{"%" + queries[i % queries.length] + "%"});
+            while (cursor.moveToNext()) {
+                cursor.getInt(0);
+            }
+            cursor.close();
+        }
+        long likeNanos = System.nanoTime() - start;
+
+        // After: full-text prefix search
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS / 10; i++) {
+            databaseHelper.searchInventoryItems(queries[i % queries.length]);
+        }
+        long ftsNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("search (%d rows): LIKE %.2f ms/query, full-text %.2f ms/query",
+                SEARCH_INVENTORY_ROWS,
+                likeNanos / 1e6 / (OPERATIONS / 10),
+                ftsNanos / 1e6 / (OPERATIONS / 10)));
+    }
+
+    @Test
+    public void bulkInsert_singleRowCallsVsOneTransaction() {
+        int rows = 10_000;
+
+        // Before: one autocommit transaction (and fsync) per row
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            assertTrue(databaseHelper.addInventoryItem("Single Item " + i, 1.0, i % 100, ""));
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        // After: one transaction and one compiled statement
+        start = System.nanoTime();
+        assertEquals(rows, databaseHelper.addInventoryItems(generateItems("Bulk Item ", rows)).size());
+        long bulkNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        assertEquals(LARGE_INVENTORY_ROWS,
+                databaseHelper.addInventoryItems(generateItems("Large Bulk Item ", LARGE_INVENTORY_ROWS)).size());
+        long largeBulkNanos = System.nanoTime() - start;
+
+        Log.i(TAG, String.format("insert throughput: single-row %.0f rows/s (%d rows), " +
+                        "bulk %.0f rows/s (%d rows), bulk %.0f rows/s (%d rows)",
+                rows / (singleNanos / 1e9), rows,
+                rows / (bulkNanos / 1e9), rows,
+                LARGE_INVENTORY_ROWS / (largeBulkNanos / 1e9), LARGE_INVENTORY_ROWS));
+    }
+
+    @Test
+    public void bulkInsert_rollsBackOnInvalidItem() {
+        int before = databaseHelper.getAllInventoryItems().size();
+
+        List<InventoryItem> items = generateItems("Rollback Item ", 100);
+        items.add(new InventoryItem("", 1.0, 1, "invalid - empty name"));
+
+        assertTrue(databaseHelper.addInventoryItems(items).isEmpty());
+        assertEquals(before, databaseHelper.getAllInventoryItems().size());
+    }
+
+    @Test
+    public void stats_linearScanVsAggregateVsCounters() {
+        populateInventory(databaseHelper.getWritableDatabase(), LARGE_INVENTORY_ROWS);
+
+        // Before: load every item and count in Java
+        long start = System.nanoTime();
+        int outOfStock = 0;
+        int lowStock = 0;
+        long units = 0;
+        double weight = 0;
+        List<InventoryItem> items = databaseHelper.getAllInventoryItems();
+        for (InventoryItem item : items) {
+            if (item.isOutOfStock()) {
+                outOfStock++;
+            } else if (item.isLowStock()) {
+                lowStock++;
+            }
+            units += item.getQuantity();
+            weight += item.getWeight() * item.getQuantity();
+        }
+        long scanNanos = System.nanoTime() - start;
+
+        // Aggregate query over the covering index
+        start = System.nanoTime();
+        InventoryStats computed = databaseHelper.computeInventoryStats();
+        long aggregateNanos = System.nanoTime() - start;
+
+        // After: trigger-maintained counters row
+        start = System.nanoTime();
+        InventoryStats stats = databaseHelper.getInventoryStats();
+        long countersNanos = System.nanoTime() - start;
+
+        for (InventoryStats result : new InventoryStats[]{computed, stats}) {
+            assertEquals(items.size(), result.getTotalSkus());
+            assertEquals(units, result.getTotalUnits());
+            assertEquals(outOfStock, result.getOutOfStockCount());
+            assertEquals(lowStock, result.getLowStockCount());
+            assertEquals(weight, result.getTotalWeight(), 0.01);
+        }
+
+        Log.i(TAG, String.format("stats (%d rows): linear scan %.1f ms, aggregate %.1f ms, counters row %.3f ms",
+                items.size(), scanNanos / 1e6, aggregateNanos / 1e6, countersNanos / 1e6));
+    }
+
+    @Test
+    public void import_millionRowCsv() throws IOException {
+        // Every 1000th row has an invalid weight and must be reported, not imported
+        File csv = new File(context.getCacheDir(), "benchmark-import.csv");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csv))) {
+            writer.write("item_name,item_weight,item_quantity,item_notes\n");
+            for (int i = 0; i < IMPORT_ROWS; i++) {
+                double weight = i % 1000 == 999 ? -1 : 1.0 + (i % 50);
+                writer.write("\"Imported Item " + i + "\"," + weight + "," + (i % 100) + ",Generated row " + i + "\n");
+            }
+        }
+
+        try {
+            int before = databaseHelper.getInventoryStats().getTotalSkus();
+            InventoryImporter.ImportResult result = new InventoryImporter(databaseHelper)
+                    .importFile(csv, InventoryImporter.Format.CSV, null);
+
+            int rejected = IMPORT_ROWS / 1000;
+            assertEquals(IMPORT_ROWS, result.getRowsRead());
+            assertEquals(IMPORT_ROWS - rejected, result.getRowsImported());
+            assertEquals(rejected, result.getRowsRejected());
+            assertEquals(rejected, result.getErrors().size());
+            assertEquals(before + IMPORT_ROWS - rejected, databaseHelper.getInventoryStats().getTotalSkus());
+
+            Log.i(TAG, String.format("import (%d rows, %.1f MB CSV): %d ms, %.0f rows/s",
+                    IMPORT_ROWS, csv.length() / 1e6, result.getDurationMs(),
+                    IMPORT_ROWS / (result.getDurationMs() / 1e3)));
+        } finally {
+            csv.delete();
+        }
+    }
+
+    @Test
+    public void export_millionRowsInConstantMemory() throws IOException {
+        populateInventory(databaseHelper.getWritableDatabase(), EXPORT_ROWS);
+        File csv = new File(context.getCacheDir(), "benchmark-export.csv");
+        Runtime runtime = Runtime.getRuntime();
+
+        try {
+            runtime.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            long[] peakHeap = {heapBefore};
+
+            long start = System.nanoTime();
+            long rows = new InventoryExporter(databaseHelper).export(csv, InventoryExporter.Format.CSV,
+                    InventoryExporter.Filter.ALL, null,
+                    written -> peakHeap[0] = Math.max(peakHeap[0], runtime.totalMemory() - runtime.freeMemory()));
+            long exportNanos = System.nanoTime() - start;
+
+            assertTrue(rows >= EXPORT_ROWS);
+            // getAllInventoryItems() would need hundreds of MB for this table; the export
+            // only holds one cursor window and one write buffer (plus uncollected garbage)
+            long growthMb = (peakHeap[0] - heapBefore) / (1024 * 1024);
+            assertTrue("Heap grew by " + growthMb + " MB", growthMb < 64);
+
+            Log.i(TAG, String.format("export (%d rows, %.1f MB CSV): %.0f ms, %.0f rows/s, peak heap growth %d MB",
+                    rows, csv.length() / 1e6, exportNanos / 1e6, rows / (exportNanos / 1e9), growthMb));
+        } finally {
+            csv.delete();
+        }
+    }
+
+    @Test
+    public void snapshot_millionRowsWhileWriting() throws Exception {
+        populateInventory(databaseHelper.getWritableDatabase(), SNAPSHOT_ROWS);
+        File snapshotFile = new File(context.getCacheDir(), "benchmark-snapshot.db");
+        File databaseFile = new File(databaseHelper.getReadableDatabase().getPath());
+
+        // Quantity updates keep running during the snapshot - record the slowest one
+        AtomicBoolean snapshotting = new AtomicBoolean(true);
+        long[] maxWriteNanos = {0};
+        int[] writes = {0};
+        Thread writer = new Thread(() -> {
+            while (snapshotting.get()) {
+                long start = System.nanoTime();
+                databaseHelper.updateItemQuantity(1 + writes[0] % SNAPSHOT_ROWS, writes[0] % 100);
+                maxWriteNanos[0] = Math.max(maxWriteNanos[0], System.nanoTime() - start);
+                writes[0]++;
+            }
+        });
+
+        try {
+            writer.start();
+            DatabaseHelper.Snapshot snapshot = databaseHelper.createSnapshot(snapshotFile);
+            snapshotting.set(false);
+            writer.join();
+            assertNotNull(snapshot);
+
+            long start = System.nanoTime();
+            assertTrue(databaseHelper.restoreSnapshot(snapshotFile));
+            long restoreNanos = System.nanoTime() - start;
+            assertTrue(databaseHelper.getInventoryStats().getTotalSkus() >= SNAPSHOT_ROWS);
+
+            Log.i(TAG, String.format("snapshot (%d rows): %d ms, %.1f MB (database %.1f MB), " +
+                            "%d concurrent writes, slowest %.1f ms; restore %.0f ms",
+                    SNAPSHOT_ROWS, snapshot.getDurationMs(), snapshot.getSizeBytes() / 1e6,
+                    databaseFile.length() / 1e6, writes[0], maxWriteNanos[0] / 1e6, restoreNanos / 1e6));
+        } finally {
+            snapshotting.set(false);
+            snapshotFile.delete();
+        }
+    }
+
+    @Test
+    public void ledger_appendCostAndReadsAfterCompaction() {
+        populateInventory(databaseHelper.getWritableDatabase(), INVENTORY_ROWS);
+        int batches = 200;
+        int tapsPerBatch = 500;
+
+        // Write-buffer style batches: every change also appends a ledger movement
+        long start = System.nanoTime();
+        for (int b = 0; b < batches; b++) {
+            Map<Integer, Integer> deltas = new HashMap<>();
+            for (int t = 0; t < tapsPerBatch; t++) {
+                deltas.put(itemId(b * tapsPerBatch + t), t % 2 == 0 ? 1 : 2);
+            }
+            assertTrue(databaseHelper.applyQuantityDeltas(deltas, b));
+        }
+        long appendNanos = System.nanoTime() - start;
+        int changes = batches * tapsPerBatch;
+
+        long beforeCompaction = timeLedgerReads();
+
+        start = System.nanoTime();
+        assertTrue(databaseHelper.compactStockLedger(0) >= changes);
+        long compactNanos = System.nanoTime() - start;
+
+        long afterCompaction = timeLedgerReads();
+
+        Log.i(TAG, String.format("ledger: %.1f us/change with movement append (%d changes), " +
+                        "compaction %.0f ms, ledger quantity read %.1f us before / %.1f us after compaction",
+                appendNanos / 1000.0 / changes, changes, compactNanos / 1e6,
+                beforeCompaction / 1000.0 / OPERATIONS, afterCompaction / 1000.0 / OPERATIONS));
+    }
+
+    private long timeLedgerReads() {
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(databaseHelper.getLedgerQuantity(itemId(i)) >= 0);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void quantitySeries_rangeQueriesOnYearsOfHistory() {
+        // Three years of day buckets for every item, plus 90 days of hour buckets for a fifth of them
+        long now = System.currentTimeMillis() / 1000;
+        long day = QuantitySeries.Resolution.DAY.getSeconds();
+        long hour = QuantitySeries.Resolution.HOUR.getSeconds();
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("WITH RECURSIVE items(id) AS (SELECT 1 UNION ALL SELECT id + 1 FROM items WHERE id < ?), " +
+                            "days(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM days WHERE n < ?) " +
+                            "INSERT OR REPLACE INTO quantity_rollups SELECT ?, id, ? - n * ?, n % 50, n % 50 + 10, n % 50 + 5, 3 " +
+                            "FROM items, days",
+                    new Object[]{HISTORY_ITEMS, HISTORY_DAYS, day, QuantitySeries.Resolution.DAY.bucketStart(now), day});
+            db.execSQL("WITH RECURSIVE items(id) AS (SELECT 1 UNION ALL SELECT id + 5 FROM items WHERE id < ?), " +
+                            "hours(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM hours WHERE n < ?) " +
+                            "INSERT OR REPLACE INTO quantity_rollups SELECT ?, id, ? - n * ?, n % 50, n % 50 + 10, n % 50 + 5, 3 " +
+                            "FROM items, hours",
+                    new Object[]{HISTORY_ITEMS, 90 * 24, hour, QuantitySeries.Resolution.HOUR.bucketStart(now), hour});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        long yearNanos = 0;
+        long monthNanos = 0;
+        long slowestNanos = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int itemId = 1 + (i * 37) % HISTORY_ITEMS;
+
+            long start = System.nanoTime();
+            QuantitySeries year = databaseHelper.getQuantitySeries(itemId, now - 365 * day, now, DatabaseHelper.DEFAULT_SERIES_POINTS);
+            long elapsed = System.nanoTime() - start;
+            yearNanos += elapsed;
+            slowestNanos = Math.max(slowestNanos, elapsed);
+            assertEquals(QuantitySeries.Resolution.DAY, year.getResolution());
+            assertFalse(year.getPoints().isEmpty());
+
+            start = System.nanoTime();
+            databaseHelper.getQuantitySeries(itemId, now - 20 * day, now, DatabaseHelper.DEFAULT_SERIES_POINTS);
+            elapsed = System.nanoTime() - start;
+            monthNanos += elapsed;
+            slowestNanos = Math.max(slowestNanos, elapsed);
+        }
+
+        double yearMs = yearNanos / 1e6 / OPERATIONS;
+        double monthMs = monthNanos / 1e6 / OPERATIONS;
+        assertTrue("year series took " + yearMs + " ms", yearMs < 10);
+        assertTrue("20-day series took " + monthMs + " ms", monthMs < 10);
+
+        Log.i(TAG, String.format("quantity series (%d items, %d days + 90 days hourly): " +
+                        "1 year (daily) %.2f ms, 20 days (hourly) %.2f ms, slowest %.2f ms",
+                HISTORY_ITEMS, HISTORY_DAYS, yearMs, monthMs, slowestNanos / 1e6));
+    }
+
+    // ================== HELPERS ==================
+
+    private static List<InventoryItem> generateItems(String prefix, int count) {
+        List<InventoryItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new InventoryItem(prefix + i, 1.0 + (i % 50), i % 100, "Generated row " + i));
+        }
+        return items;
+    }
+
+
+    private static void populateInventory(SQLiteDatabase db, int rows) {
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < rows; i++) {
+                values.clear();
+                values.put("item_name", "Benchmark Item " + i);
+                values.put("item_weight", 1.0 + (i % 50));
+                values.put("item_quantity", i % 100);
+                values.put("item_notes", "Generated row " + i);
+                db.insert("inventory", null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static int itemId(int i) {
+        return 1 + (i * 97) % INVENTORY_ROWS;
+    }
+
+    private static void report(String operation, int rows, long beforeNanos, long afterNanos) {
+        Log.i(TAG, String.format("%s: before %.1f us/op, after %.1f us/op (%d ops, %d rows)",
+                operation,
+                beforeNanos / 1000.0 / OPERATIONS,
+                afterNanos / 1000.0 / OPERATIONS,
+                OPERATIONS, rows));
+    }
+}
@@ -0,0 +1,172 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test for the WAL-backed DatabaseHelper: mixed reads and writes from several threads
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyTest {
+
+    private static final String TEST_DB = "WarehousePro-concurrency.db";
+    private static final int READER_THREADS = 4;
+    private static final int WRITER_THREADS = 2;
+    private static final int ITERATIONS = 200;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void journalMode_isWal() {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("PRAGMA journal_mode", null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals("wal", cursor.getString(0).toLowerCase());
+        cursor.close();
+    }
+
+    @Test
+    public void mixedReadsAndWrites_runConcurrently() throws Exception {
+        int threads = READER_THREADS + WRITER_THREADS;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger itemsAdded = new AtomicInteger();
+
+        for (int w = 0; w < WRITER_THREADS; w++) {
+            final int writer = w;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        if (databaseHelper.addInventoryItem("Stress " + writer + "-" + i, 1.5, i % 3, "")) {
+                            itemsAdded.incrementAndGet();
+                        }
+                        databaseHelper.updateItemQuantity(1 + (i % 5), i);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        for (int r = 0; r < READER_THREADS; r++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        List<InventoryItem> items = databaseHelper.getAllInventoryItems();
+                        assertFalse(items.isEmpty());
+                        databaseHelper.searchInventoryItems("Stress");
+                        databaseHelper.getZeroQuantityItems();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue("Stress run timed out", done.await(2, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        if (failure.get() != null) {
+            throw new AssertionError("Concurrent access failed", failure.get());
+        }
+
+        assertEquals(WRITER_THREADS * ITERATIONS, itemsAdded.get());
+        assertEquals(5 + WRITER_THREADS * ITERATIONS, databaseHelper.getAllInventoryItems().size());
+        databaseHelper.checkpoint();
+    }
+
+    @Test
+    public void concurrentAdjustments_areNotLost() throws Exception {
+        int itemId = 1;
+        assertTrue(databaseHelper.updateItemQuantity(itemId, 0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITER_THREADS * 2);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(WRITER_THREADS * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (int w = 0; w < WRITER_THREADS * 2; w++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        assertTrue(databaseHelper.adjustQuantity(itemId, 1) > 0);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue("Adjustment run timed out", done.await(2, TimeUnit.MINUTES));
+        executor.shutdown();
+
+        if (failure.get() != null) {
+            throw new AssertionError("Concurrent adjustment failed", failure.get());
+        }
+
+        int expected = WRITER_THREADS * 2 * ITERATIONS;
+        assertEquals(expected, databaseHelper.adjustQuantity(itemId, 0));
+
+        // Clamped at zero, unknown items report failure
+        assertEquals(0, databaseHelper.adjustQuantity(itemId, -(expected + 10)));
+        assertEquals(-1, databaseHelper.adjustQuantity(Integer.MAX_VALUE, 1));
+    }
+
+    @Test
+    public void checkpointPolicy_isApplied() {
+        databaseHelper.setCheckpointPolicy(new DatabaseHelper.CheckpointPolicy(
+                250, DatabaseHelper.CheckpointMode.TRUNCATE, 1024 * 1024));
+
+        Cursor cursor = databaseHelper.getWritableDatabase().rawQuery("PRAGMA wal_autocheckpoint", null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals(250, cursor.getInt(0));
+        cursor.close();
+
+        databaseHelper.addInventoryItem("Checkpoint Item", 1.0, 1, "");
+        assertTrue(databaseHelper.checkpoint());
+    }
+}
@@ -0,0 +1,177 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.omercengiz.warehousepro.SmsDispatcherTest.waitUntil;
+import static org.junit.Assert.*;
+
+/**
+ * VACUUM INTO snapshots and atomic restore
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseSnapshotTest {
+
+    private static final String TEST_DB = "WarehousePro-snapshot.db";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private File snapshotFile;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        snapshotFile = new File(context.getCacheDir(), "snapshot-test.db");
+        snapshotFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void restore_bringsBackSnapshotContents() {
+        assertTrue(databaseHelper.addInventoryItem("Snapshot Item", 1.5, 12, "kept"));
+        int itemsAtSnapshot = databaseHelper.getAllInventoryItems().size();
+
+        DatabaseHelper.Snapshot snapshot = databaseHelper.createSnapshot(snapshotFile);
+        assertNotNull(snapshot);
+        assertTrue(snapshot.getSizeBytes() > 0);
+        assertEquals(snapshotFile.length(), snapshot.getSizeBytes());
+
+        // Changes after the snapshot are discarded by the restore
+        for (InventoryItem item : databaseHelper.getAllInventoryItems()) {
+            assertTrue(databaseHelper.deleteInventoryItem(item.getId()));
+        }
+        assertTrue(databaseHelper.addInventoryItem("Lost Item", 1.0, 1, ""));
+
+        List<String> invalidated = new ArrayList<>();
+        databaseHelper.getInvalidationTracker().addObserver((table, version, changedIds) -> {
+            if (changedIds == null) {
+                invalidated.add(table);
+            }
+        });
+
+        assertTrue(databaseHelper.restoreSnapshot(snapshotFile));
+
+        List<InventoryItem> items = databaseHelper.getAllInventoryItems();
+        assertEquals(itemsAtSnapshot, items.size());
+        assertEquals(itemsAtSnapshot, databaseHelper.getInventoryStats().getTotalSkus());
+        assertTrue(databaseHelper.authenticateUser("admin", "1234"));
+        assertTrue(invalidated.contains(DatabaseHelper.TABLE_INVENTORY));
+
+        // Triggers and the search index came back with the file
+        assertFalse(databaseHelper.searchInventoryItems("snapshot").isEmpty());
+        assertTrue(databaseHelper.addInventoryItem("After Restore", 2.0, 3, ""));
+        assertEquals(itemsAtSnapshot + 1, databaseHelper.getInventoryStats().getTotalSkus());
+
+        // The snapshot itself is left in place for later restores
+        assertTrue(snapshotFile.exists());
+    }
+
+    @Test
+    public void restore_rejectsInvalidSnapshot() throws IOException {
+        int items = databaseHelper.getAllInventoryItems().size();
+
+        try (FileOutputStream out = new FileOutputStream(snapshotFile)) {
+            out.write("not a database".getBytes());
+        }
+        assertFalse(databaseHelper.restoreSnapshot(snapshotFile));
+        assertFalse(databaseHelper.restoreSnapshot(new File(context.getCacheDir(), "missing.db")));
+
+        assertEquals(items, databaseHelper.getAllInventoryItems().size());
+    }
+
+    @Test
+    public void snapshot_replacesExistingFile() {
+        assertNotNull(databaseHelper.createSnapshot(snapshotFile));
+        assertTrue(databaseHelper.addInventoryItems(generateItems(500)).size() == 500);
+
+        DatabaseHelper.Snapshot second = databaseHelper.createSnapshot(snapshotFile);
+        assertNotNull(second);
+        assertTrue(databaseHelper.restoreSnapshot(snapshotFile));
+        assertEquals(505, databaseHelper.getInventoryStats().getTotalSkus());
+    }
+
+    @Test
+    public void restore_doesNotResendMessagesSentAfterSnapshot() throws Exception {
+        TaskScheduler scheduler = new TaskScheduler();
+        FakeSmsSender sender = new FakeSmsSender();
+        sender.deferResults();
+        SmsDispatcher dispatcher = new SmsDispatcher(databaseHelper, sender, new TokenBucket(10, 10),
+                new RetryBackoff(50, 200, 3), scheduler);
+
+        try {
+            // Both messages are still queued in the snapshot
+            databaseHelper.enqueueSms("5551234567", "sent before restore");
+            databaseHelper.enqueueSms("5551234567", "in flight during restore");
+            assertNotNull(databaseHelper.createSnapshot(snapshotFile));
+
+            dispatcher.start();
+            waitUntil(() -> sender.attempts() == 2);
+            sender.reportNext(true);
+            waitUntil(() -> databaseHelper.getPendingSmsCount() == 1);
+
+            assertTrue(databaseHelper.restoreSnapshot(snapshotFile));
+
+            // The sent message did not come back; the one in flight kept its lease and is
+            // removed once the service reports it
+            assertEquals(1, databaseHelper.getPendingSmsCount());
+            sender.reportNext(true);
+            waitUntil(() -> databaseHelper.getPendingSmsCount() == 0);
+
+            // A later pass only sends what was queued after the restore
+            dispatcher.enqueue("5551234567", "after restore");
+            waitUntil(() -> sender.attempts() == 3);
+            sender.reportNext(true);
+            waitUntil(() -> databaseHelper.getPendingSmsCount() == 0);
+            Thread.sleep(100);
+            assertEquals(3, sender.attempts());
+            assertEquals(3, dispatcher.getMetrics().getSent());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void restore_keepsAlertCooldownsAndJournalPosition() {
+        assertNotNull(databaseHelper.createSnapshot(snapshotFile));
+
+        long alertTime = System.currentTimeMillis();
+        assertTrue(databaseHelper.recordAlert(1, alertTime));
+        assertTrue(databaseHelper.applyQuantityDeltas(Collections.singletonMap(1, 5), 42));
+
+        assertTrue(databaseHelper.restoreSnapshot(snapshotFile));
+
+        // The delta is rolled back with the inventory, but a journal replay must not apply it again
+        assertEquals(alertTime, databaseHelper.getLastAlertTime(1));
+        assertEquals("42", databaseHelper.getMetadata(DatabaseHelper.METADATA_QUANTITY_JOURNAL_SEQ));
+    }
+
+    private static List<InventoryItem> generateItems(int count) {
+        List<InventoryItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new InventoryItem("Snapshot Bulk " + i, 1.0, i % 20, ""));
+        }
+        return items;
+    }
+}
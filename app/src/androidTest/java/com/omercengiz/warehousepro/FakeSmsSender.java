@@ -0,0 +1,76 @@
+package com.omercengiz.warehousepro;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stand-in for SmsManager that records messages and can be told to fail. Results are
+ * reported right away, or held until {@link #reportNext(boolean)} if deferred.
+ */
+final class FakeSmsSender implements SmsSender {
+    private final List<String> numbers = new ArrayList<>();
+    private final List<String> bodies = new ArrayList<>();
+    private final ArrayDeque<CompletableFuture<Void>> unreported = new ArrayDeque<>();
+    private int failuresLeft = 0;
+    private int attempts = 0;
+    private boolean deferResults = false;
+
+    @Override
+    public synchronized CompletableFuture<Void> send(String phoneNumber, String body) {
+        attempts++;
+        if (deferResults) {
+            numbers.add(phoneNumber);
+            bodies.add(body);
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            unreported.add(result);
+            return result;
+        }
+        if (failuresLeft > 0) {
+            failuresLeft--;
+            return CompletableFuture.failedFuture(new IllegalStateException("Radio off"));
+        }
+        numbers.add(phoneNumber);
+        bodies.add(body);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    synchronized void failNext(int count) {
+        failuresLeft = count;
+    }
+
+    // Hold results back, like the SMS service reporting through the sent intent later
+    synchronized void deferResults() {
+        deferResults = true;
+    }
+
+    // Report the oldest held result
+    void reportNext(boolean sent) {
+        CompletableFuture<Void> result;
+        synchronized (this) {
+            result = unreported.poll();
+        }
+        if (sent) {
+            result.complete(null);
+        } else {
+            result.completeExceptionally(new IllegalStateException("No service"));
+        }
+    }
+
+    synchronized int attempts() {
+        return attempts;
+    }
+
+    synchronized int sentCount() {
+        return bodies.size();
+    }
+
+    synchronized List<String> sentNumbers() {
+        return new ArrayList<>(numbers);
+    }
+
+    synchronized List<String> sentBodies() {
+        return new ArrayList<>(bodies);
+    }
+}
@@ -0,0 +1,121 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * CSV / JSON Lines export: escaping, filters, chunk boundaries and re-import
+ */
+@RunWith(AndroidJUnit4.class)
+public class InventoryExporterTest {
+
+    private static final String TEST_DB = "WarehousePro-export.db";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private File exportFile;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        exportFile = new File(context.getCacheDir(), "export-test.csv");
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+        exportFile.delete();
+    }
+
+    @Test
+    public void csv_escapesFieldsAndCoversEveryRow() throws IOException {
+        assertTrue(databaseHelper.addInventoryItem("Boxes, \"Large\"", 2.5, 7, "Line one\nLine two"));
+        int total = databaseHelper.getInventoryStats().getTotalSkus();
+
+        // Chunk size 2 so the export crosses several chunk boundaries
+        long rows = new InventoryExporter(databaseHelper, 2)
+                .export(exportFile, InventoryExporter.Format.CSV, InventoryExporter.Filter.ALL, null, null);
+        assertEquals(total, rows);
+
+        String csv = new String(Files.readAllBytes(exportFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("id,name,weight,quantity,notes,last_updated\n"));
+        assertTrue(csv.contains(",\"Boxes, \"\"Large\"\"\",2.5,7,\"Line one\nLine two\","));
+        assertFalse(new File(exportFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void jsonLines_withFiltersAndSearch() throws IOException {
+        assertTrue(databaseHelper.addInventoryItem("Tape Dispenser", 0.8, 0, ""));
+        assertTrue(databaseHelper.addInventoryItem("Packing Tape Roll", 0.3, 3, ""));
+        assertTrue(databaseHelper.addInventoryItem("Tape Measure", 0.2, 40, ""));
+        InventoryExporter exporter = new InventoryExporter(databaseHelper, 2);
+
+        List<JSONObject> zero = exportJson(exporter, InventoryExporter.Filter.ZERO_STOCK, null);
+        assertEquals(databaseHelper.getZeroQuantityItems().size(), zero.size());
+        for (JSONObject item : zero) {
+            assertEquals(0, item.optInt("quantity", -1));
+        }
+
+        List<JSONObject> lowTape = exportJson(exporter, InventoryExporter.Filter.LOW_STOCK, "tape");
+        List<String> names = new ArrayList<>();
+        for (JSONObject item : lowTape) {
+            names.add(item.optString("name"));
+        }
+        assertTrue(names.contains("Tape Dispenser"));
+        assertTrue(names.contains("Packing Tape Roll"));
+        assertFalse(names.contains("Tape Measure"));
+
+        // Rows come out in ID order
+        for (int i = 1; i < lowTape.size(); i++) {
+            assertTrue(lowTape.get(i - 1).optLong("id") < lowTape.get(i).optLong("id"));
+        }
+
+        assertTrue(exportJson(exporter, InventoryExporter.Filter.ALL, "!!!").isEmpty());
+    }
+
+    @Test
+    public void export_canBeReimported() throws IOException {
+        long rows = new InventoryExporter(databaseHelper)
+                .export(exportFile, InventoryExporter.Format.CSV, InventoryExporter.Filter.ALL, null, null);
+
+        InventoryImporter.ImportResult result = new InventoryImporter(databaseHelper)
+                .importFile(exportFile, InventoryImporter.Format.CSV, null);
+        assertEquals(rows, result.getRowsImported());
+        assertEquals(0, result.getRowsRejected());
+        assertEquals(2 * rows, databaseHelper.getInventoryStats().getTotalSkus());
+    }
+
+    private List<JSONObject> exportJson(InventoryExporter exporter, InventoryExporter.Filter filter,
+                                        String search) throws IOException {
+        exporter.export(exportFile, InventoryExporter.Format.JSON_LINES, filter, search, null);
+        List<JSONObject> items = new ArrayList<>();
+        for (String line : Files.readAllLines(exportFile.toPath(), StandardCharsets.UTF_8)) {
+            try {
+                items.add(new JSONObject(line));
+            } catch (Exception e) {
+                fail("Invalid JSON line: " + line);
+            }
+        }
+        return items;
+    }
+}
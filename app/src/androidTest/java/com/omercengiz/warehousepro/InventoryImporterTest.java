@@ -0,0 +1,154 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * CSV and JSON import: parsing, per-row validation errors and batching
+ */
+@RunWith(AndroidJUnit4.class)
+public class InventoryImporterTest {
+
+    private static final String TEST_DB = "WarehousePro-import.db";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private int sampleRows;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        sampleRows = databaseHelper.getAllInventoryItems().size();
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void csv_importsValidRowsAndReportsInvalidOnes() throws IOException {
+        String csv = "Item Name,Weight,Quantity,Notes\n"
+                + "Packing Tape,0.3,40,\n"
+                + "\"Boxes, Large\",2.5,10,\"Double\nwalled\"\n"
+                + "X,1,1,too short\n"
+                + "Pallets,-2,5,\n"
+                + "Labels,0.1,many,\n"
+                + "\"Unterminated,1,1\n";
+
+        // Batch size 2 so the rows span several transactions
+        InventoryImporter.ImportResult result = newImporter(2).importStream(stream(csv), InventoryImporter.Format.CSV, null);
+
+        assertEquals(6, result.getRowsRead());
+        assertEquals(2, result.getRowsImported());
+        assertEquals(4, result.getRowsRejected());
+
+        List<InventoryImporter.RowError> errors = result.getErrors();
+        assertEquals(3, errors.get(0).getRow());
+        assertEquals("Item name must be at least 2 characters", errors.get(0).getMessage());
+        assertEquals("Weight must be greater than 0", errors.get(1).getMessage());
+        assertEquals("Please enter a valid whole number", errors.get(2).getMessage());
+        assertEquals(6, errors.get(3).getRow());
+
+        InventoryItem boxes = findItem("Boxes, Large");
+        assertNotNull(boxes);
+        assertEquals(10, boxes.getQuantity());
+        assertEquals("Double\nwalled", boxes.getNotes());
+        assertEquals(sampleRows + 2, databaseHelper.getAllInventoryItems().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void csv_withoutQuantityColumn_fails() throws IOException {
+        newImporter(10).importStream(stream("name,weight\nTape,1\n"), InventoryImporter.Format.CSV, null);
+    }
+
+    @Test
+    public void jsonLines_andJsonArray_importTheSameRows() throws IOException {
+        String lines = "{\"name\":\"Stretch Film\",\"weight\":1.2,\"quantity\":8}\n"
+                + "\n"
+                + "{\"item_name\":\"Zip Ties\",\"item_weight\":\"0.05\",\"item_quantity\":300,\"notes\":\"Bag of 100\"}\n"
+                + "{\"name\":\"Broken\",\n"
+                + "{\"name\":\"No Weight\",\"quantity\":1}\n";
+        InventoryImporter.ImportResult result = newImporter(10).importStream(stream(lines), InventoryImporter.Format.JSON, null);
+        assertEquals(4, result.getRowsRead());
+        assertEquals(2, result.getRowsImported());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Unreadable row"));
+        assertEquals("Weight is required", result.getErrors().get(1).getMessage());
+
+        String array = "  [{\"name\":\"Corner Guards\",\"weight\":0.2,\"quantity\":50,\"extra\":{\"a\":[1]}},"
+                + "{\"name\":\"Bubble Wrap\",\"weight\":3,\"quantity\":-1}, 42]";
+        result = newImporter(10).importStream(stream(array), InventoryImporter.Format.JSON, null);
+        assertEquals(3, result.getRowsRead());
+        assertEquals(1, result.getRowsImported());
+        assertEquals("Quantity cannot be negative", result.getErrors().get(0).getMessage());
+        assertEquals("Item name is required", result.getErrors().get(1).getMessage());
+
+        assertEquals(300, findItem("Zip Ties").getQuantity());
+        assertEquals("Bag of 100", findItem("Zip Ties").getNotes());
+        assertNotNull(findItem("Corner Guards"));
+    }
+
+    @Test
+    public void progress_isReportedPerBatch() throws IOException {
+        StringBuilder csv = new StringBuilder("name,weight,quantity\n");
+        for (int i = 0; i < 25; i++) {
+            csv.append("Item ").append(i).append(",1,").append(i).append('\n');
+        }
+
+        long[] last = new long[3];
+        int[] calls = new int[1];
+        InventoryImporter.ImportResult result = newImporter(10).importStream(stream(csv.toString()),
+                InventoryImporter.Format.CSV, (read, imported, rejected) -> {
+                    calls[0]++;
+                    last[0] = read;
+                    last[1] = imported;
+                    last[2] = rejected;
+                });
+
+        assertEquals(3, calls[0]);
+        assertTrue(Arrays.equals(new long[]{25, 25, 0}, last));
+        assertEquals(25, result.getRowsImported());
+    }
+
+    @Test
+    public void detectFormat_usesExtension() {
+        assertEquals(InventoryImporter.Format.JSON, InventoryImporter.detectFormat("stock.JSON"));
+        assertEquals(InventoryImporter.Format.JSON, InventoryImporter.detectFormat("stock.ndjson"));
+        assertEquals(InventoryImporter.Format.CSV, InventoryImporter.detectFormat("stock.csv"));
+    }
+
+    private InventoryImporter newImporter(int batchSize) {
+        return new InventoryImporter(databaseHelper, batchSize, 2);
+    }
+
+    private InventoryItem findItem(String name) {
+        for (InventoryItem item : databaseHelper.getAllInventoryItems()) {
+            if (item.getName().equals(name)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,148 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Read-through cache, write-through updates and size-bounded eviction of InventoryRepository
+ */
+@RunWith(AndroidJUnit4.class)
+public class InventoryRepositoryTest {
+
+    private static final String TEST_DB = "WarehousePro-repository.db";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void repeatLookup_isServedFromMemory() {
+        InventoryRepository repository = newRepository(InventoryRepository.EvictionPolicy.LRU,
+                InventoryRepository.DEFAULT_MAX_CACHE_BYTES);
+
+        assertEquals("Cardboard Boxes", repository.getItem(1).getName());
+        assertEquals(0, repository.getHitCount());
+        assertEquals(1, repository.getMissCount());
+
+        // Remove the row behind the tracker's back: a cache hit never reads the database
+        databaseHelper.getWritableDatabase().execSQL("DELETE FROM inventory WHERE item_id = 1");
+        assertEquals("Cardboard Boxes", repository.getItem(1).getName());
+        assertEquals(1, repository.getHitCount());
+
+        repository.close();
+    }
+
+    @Test
+    public void writes_keepCacheConsistent() {
+        InventoryRepository repository = newRepository(InventoryRepository.EvictionPolicy.LRU,
+                InventoryRepository.DEFAULT_MAX_CACHE_BYTES);
+        repository.getItems(Arrays.asList(1, 2, 3));
+
+        // Write-through
+        assertTrue(repository.updateItemQuantity(1, 42));
+        assertEquals(42, repository.getItem(1).getQuantity());
+        assertEquals(9, repository.adjustQuantity(2, 9 - repository.getItem(2).getQuantity()));
+        assertEquals(9, repository.getItem(2).getQuantity());
+
+        // Writes that bypass the repository evict through the invalidation tracker
+        assertTrue(databaseHelper.updateItemQuantity(3, 7));
+        assertEquals(7, repository.getItem(3).getQuantity());
+
+        assertTrue(repository.deleteInventoryItem(1));
+        assertNull(repository.getItem(1));
+
+        // Callers get copies - changing one does not change the cache
+        repository.getItem(2).setQuantity(1000);
+        assertEquals(9, repository.getItem(2).getQuantity());
+
+        repository.close();
+    }
+
+    @Test
+    public void cache_staysWithinSizeBound() {
+        long itemSize = InventoryRepository.estimateSize(repositoryItem(1));
+        long maxBytes = itemSize * 3 + itemSize / 2;
+
+        // LRU: item 1 is used again, so item 2 is the oldest when item 4 arrives
+        InventoryRepository lru = newRepository(InventoryRepository.EvictionPolicy.LRU, maxBytes);
+        lru.getItems(Arrays.asList(1, 2, 3));
+        lru.getItem(1);
+        lru.getItem(4);
+        assertTrue(lru.getCacheSizeBytes() <= maxBytes);
+        assertEquals(1, lru.getEvictionCount());
+        long misses = lru.getMissCount();
+        lru.getItems(Arrays.asList(1, 3, 4));
+        assertEquals(misses, lru.getMissCount());
+        lru.close();
+
+        // LFU: items 1 and 3 are read more often, so item 2 goes first
+        InventoryRepository lfu = newRepository(InventoryRepository.EvictionPolicy.LFU, maxBytes);
+        lfu.getItems(Arrays.asList(1, 2, 3));
+        lfu.getItem(1);
+        lfu.getItem(3);
+        lfu.getItem(4);
+        lfu.getItem(4);
+        misses = lfu.getMissCount();
+        lfu.getItems(Arrays.asList(1, 3));
+        assertEquals(misses, lfu.getMissCount());
+        lfu.getItem(2);
+        assertEquals(misses + 1, lfu.getMissCount());
+        lfu.close();
+    }
+
+    @Test
+    public void writeThrough_doesNotOverwriteNewerWrite() {
+        InventoryRepository repository = newRepository(InventoryRepository.EvictionPolicy.LRU,
+                InventoryRepository.DEFAULT_MAX_CACHE_BYTES);
+        repository.getItem(1);
+
+        // Another writer (e.g. a buffered delta commit) lands between the repository's write
+        // and its write-through
+        AtomicBoolean interleaved = new AtomicBoolean();
+        InvalidationTracker.Observer otherWriter = (table, version, changedIds) -> {
+            if (DatabaseHelper.TABLE_INVENTORY.equals(table) && interleaved.compareAndSet(false, true)) {
+                databaseHelper.adjustQuantity(1, 5);
+            }
+        };
+        databaseHelper.getInvalidationTracker().addObserver(otherWriter);
+        assertTrue(repository.updateItemQuantity(1, 42));
+        databaseHelper.getInvalidationTracker().removeObserver(otherWriter);
+
+        assertEquals(47, repositoryItem(1).getQuantity());
+        assertEquals(47, repository.getItem(1).getQuantity());
+
+        repository.close();
+    }
+
+    private InventoryRepository newRepository(InventoryRepository.EvictionPolicy policy, long maxBytes) {
+        return new InventoryRepository(databaseHelper, policy, maxBytes);
+    }
+
+    private InventoryItem repositoryItem(int itemId) {
+        return databaseHelper.getInventoryItemsByIds(Arrays.asList(itemId)).get(0);
+    }
+}
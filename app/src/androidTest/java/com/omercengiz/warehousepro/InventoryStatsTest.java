@@ -0,0 +1,140 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The trigger-maintained inventory_stats row must always match a full recompute
+ */
+@RunWith(AndroidJUnit4.class)
+public class InventoryStatsTest {
+
+    private static final String TEST_DB = "WarehousePro-stats.db";
+    private static final int MUTATIONS = 2_000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void counters_matchSampleData() {
+        assertStatsConsistent();
+        assertEquals(5, databaseHelper.getInventoryStats().getTotalSkus());
+    }
+
+    @Test
+    public void counters_matchRecomputeAfterRandomMutations() {
+        // Fixed seeds, so a failure can be reproduced
+        for (long seed = 1; seed <= 3; seed++) {
+            runRandomMutations(new Random(seed));
+            assertStatsConsistent();
+        }
+    }
+
+    @Test
+    public void recompute_repairsCounters() {
+        databaseHelper.getWritableDatabase().execSQL("UPDATE inventory_stats SET sku_count = 999, total_weight = -1");
+        assertNotEquals(databaseHelper.computeInventoryStats().getTotalSkus(),
+                databaseHelper.getInventoryStats().getTotalSkus());
+
+        databaseHelper.recomputeInventoryStats();
+        assertStatsConsistent();
+    }
+
+    // Every write path of DatabaseHelper, with quantities around the low-stock boundaries
+    private void runRandomMutations(Random random) {
+        List<Integer> ids = new ArrayList<>();
+        for (InventoryItem item : databaseHelper.getAllInventoryItems()) {
+            ids.add(item.getId());
+        }
+
+        for (int i = 0; i < MUTATIONS; i++) {
+            int operation = random.nextInt(6);
+
+            if (ids.isEmpty() || operation == 0) {
+                if (databaseHelper.addInventoryItem("Random Item " + i, randomWeight(random), random.nextInt(12), "")) {
+                    ids.add(lastInsertedId());
+                }
+            } else if (operation == 1) {
+                List<InventoryItem> batch = new ArrayList<>();
+                for (int b = 0; b < 5; b++) {
+                    batch.add(new InventoryItem("Random Batch " + i + "-" + b, randomWeight(random), random.nextInt(12), ""));
+                }
+                for (long id : databaseHelper.addInventoryItems(batch)) {
+                    ids.add((int) id);
+                }
+            } else if (operation == 2) {
+                databaseHelper.updateItemQuantity(pick(ids, random), random.nextInt(12));
+            } else if (operation == 3) {
+                databaseHelper.adjustQuantity(pick(ids, random), random.nextInt(9) - 4);
+            } else if (operation == 4) {
+                Map<Integer, Integer> deltas = new HashMap<>();
+                for (int d = 0; d < 3; d++) {
+                    deltas.put(pick(ids, random), random.nextInt(9) - 4);
+                }
+                databaseHelper.applyQuantityDeltas(deltas, i);
+            } else {
+                int id = pick(ids, random);
+                databaseHelper.deleteInventoryItem(id);
+                ids.remove(Integer.valueOf(id));
+            }
+        }
+    }
+
+    private void assertStatsConsistent() {
+        InventoryStats counters = databaseHelper.getInventoryStats();
+        InventoryStats recomputed = databaseHelper.computeInventoryStats();
+
+        assertEquals(recomputed.getTotalSkus(), counters.getTotalSkus());
+        assertEquals(recomputed.getTotalUnits(), counters.getTotalUnits());
+        assertEquals(recomputed.getOutOfStockCount(), counters.getOutOfStockCount());
+        assertEquals(recomputed.getLowStockCount(), counters.getLowStockCount());
+        // Running sum of doubles - allow for rounding drift
+        assertEquals(recomputed.getTotalWeight(), counters.getTotalWeight(), 1e-6 * Math.max(1, recomputed.getTotalWeight()));
+    }
+
+    // AUTOINCREMENT ids only grow, so the newest row has the largest one
+    private int lastInsertedId() {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("SELECT MAX(item_id) FROM inventory", null);
+        cursor.moveToFirst();
+        int id = cursor.getInt(0);
+        cursor.close();
+        return id;
+    }
+
+    private static int pick(List<Integer> ids, Random random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static double randomWeight(Random random) {
+        return 0.1 + random.nextInt(500) / 10.0;
+    }
+}
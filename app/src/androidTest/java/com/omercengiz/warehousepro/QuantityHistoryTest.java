@@ -0,0 +1,101 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Trigger-maintained quantity rollups, series queries and retention
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuantityHistoryTest {
+
+    private static final String TEST_DB = "WarehousePro-history.db";
+    private static final long DAY = 24 * 60 * 60;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void quantityChanges_updateEveryResolution() {
+        int start = databaseHelper.getInventoryItemsByIds(Collections.singletonList(1)).get(0).getQuantity();
+
+        assertTrue(databaseHelper.updateItemQuantity(1, start + 20));
+        assertEquals(start + 17, databaseHelper.adjustQuantity(1, -3));
+        long now = System.currentTimeMillis() / 1000;
+
+        for (QuantitySeries.Resolution resolution : QuantitySeries.Resolution.values()) {
+            List<QuantitySeries.Point> points =
+                    databaseHelper.getQuantitySeries(1, now - 120, now, resolution).getPoints();
+            assertEquals(start + 17, points.get(points.size() - 1).getClose());
+
+            int max = Integer.MIN_VALUE;
+            int changes = 0;
+            for (QuantitySeries.Point point : points) {
+                max = Math.max(max, point.getMax());
+                changes += point.getChanges();
+            }
+            assertEquals(start + 20, max);
+            assertTrue(changes >= 2);
+        }
+    }
+
+    @Test
+    public void series_choosesResolutionForRange() {
+        long now = System.currentTimeMillis() / 1000;
+
+        QuantitySeries hourRange = databaseHelper.getQuantitySeries(1, now - 3600, now, DatabaseHelper.DEFAULT_SERIES_POINTS);
+        assertEquals(QuantitySeries.Resolution.MINUTE, hourRange.getResolution());
+
+        QuantitySeries yearRange = databaseHelper.getQuantitySeries(1, now - 365 * DAY, now, DatabaseHelper.DEFAULT_SERIES_POINTS);
+        assertEquals(QuantitySeries.Resolution.DAY, yearRange.getResolution());
+        assertTrue(yearRange.getPoints().size() <= DatabaseHelper.DEFAULT_SERIES_POINTS);
+    }
+
+    @Test
+    public void prune_dropsExpiredBucketsButKeepsDays() {
+        long old = System.currentTimeMillis() / 1000 - 400 * DAY;
+        for (QuantitySeries.Resolution resolution : QuantitySeries.Resolution.values()) {
+            databaseHelper.getWritableDatabase().execSQL("INSERT INTO quantity_rollups VALUES (?, 1, ?, 3, 3, 3, 1)",
+                    new Object[]{resolution.getSeconds(), resolution.bucketStart(old)});
+        }
+
+        assertEquals(2, databaseHelper.pruneQuantityRollups());
+
+        // The old level still reaches today's series through the day bucket
+        QuantitySeries series = databaseHelper.getQuantitySeries(1, old, old + 2 * DAY, QuantitySeries.Resolution.DAY);
+        assertEquals(3, series.getPoints().get(0).getClose());
+        assertEquals(0, databaseHelper.pruneQuantityRollups());
+    }
+
+    @Test
+    public void deletedItems_loseTheirHistory() {
+        assertTrue(databaseHelper.deleteInventoryItem(2));
+        long now = System.currentTimeMillis() / 1000;
+        assertTrue(databaseHelper.getQuantitySeries(2, now - DAY, now, QuantitySeries.Resolution.HOUR).getPoints().isEmpty());
+    }
+}
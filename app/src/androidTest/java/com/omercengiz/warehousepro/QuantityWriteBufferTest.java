@@ -0,0 +1,165 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Write-behind buffer for quantity taps: coalescing, journal replay after a crash,
+ * and no double application of already committed taps
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuantityWriteBufferTest {
+
+    private static final String TAG = "DatabaseBenchmark";
+    private static final String TEST_DB = "WarehousePro-writebuffer.db";
+    private static final int ITEMS = 5; // Sample data rows, IDs 1..5
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private File journalFile;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        journalFile = new File(context.getCacheDir(), "test-" + QuantityWriteBuffer.JOURNAL_FILE_NAME);
+        journalFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+        journalFile.delete();
+    }
+
+    @Test
+    public void burstOfTaps_isCoalescedIntoFewTransactions() {
+        int[] before = quantities();
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(databaseHelper, journalFile, 100, 256);
+
+        // Simulated burst: 1000 taps, mostly "+" with some "-", spread over the sample items
+        int taps = 1000;
+        int[] expected = before.clone();
+        for (int i = 0; i < taps; i++) {
+            int itemId = 1 + i % ITEMS;
+            int delta = i % 4 == 3 ? -1 : 1;
+            buffer.add(itemId, delta);
+            expected[itemId - 1] += delta;
+        }
+
+        assertTrue(buffer.flushAndWait());
+        assertArrayEquals(expected, quantities());
+
+        // One transaction per tap before, one per batch now
+        Log.i(TAG, String.format("quantity taps: before %d writes, after %d writes (%d taps)",
+                buffer.getTapCount(), buffer.getFlushCount(), buffer.getTapCount()));
+        assertTrue("Expected at least 10x fewer writes, got " + buffer.getFlushCount(),
+                buffer.getFlushCount() * 10 <= buffer.getTapCount());
+
+        buffer.close();
+    }
+
+    @Test
+    public void unflushedTaps_areReplayedAfterCrash() {
+        int[] before = quantities();
+
+        // Interval and batch size large enough that nothing is written before the "crash"
+        QuantityWriteBuffer crashed = new QuantityWriteBuffer(databaseHelper, journalFile, 60 * 60 * 1000, 10_000);
+        assertTrue(crashed.flushAndWait()); // Recovery finished, journal open
+        crashed.add(1, 3);
+        crashed.add(2, -1);
+        crashed.add(1, 2);
+        assertArrayEquals(before, quantities());
+
+        // The process dies here - the buffer is never flushed or closed
+        QuantityWriteBuffer recovered = new QuantityWriteBuffer(databaseHelper, journalFile, 100, 256);
+        assertTrue(recovered.flushAndWait());
+
+        int[] expected = before.clone();
+        expected[0] += 5;
+        expected[1] -= 1;
+        assertArrayEquals(expected, quantities());
+
+        recovered.close();
+    }
+
+    @Test
+    public void committedTaps_areNotReplayedTwice() throws Exception {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(databaseHelper, journalFile, 60 * 60 * 1000, 10_000);
+        assertTrue(buffer.flushAndWait());
+        buffer.add(3, 4);
+        buffer.add(4, 1);
+
+        // Crash between the commit and the journal reset: the journal still holds the taps
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+        assertTrue(buffer.flushAndWait());
+        int[] afterFlush = quantities();
+        Files.write(journalFile.toPath(), journal);
+
+        QuantityWriteBuffer recovered = new QuantityWriteBuffer(databaseHelper, journalFile, 100, 256);
+        assertTrue(recovered.flushAndWait());
+        assertArrayEquals(afterFlush, quantities());
+
+        recovered.close();
+    }
+
+    @Test
+    public void flushAsync_completesOnceCommitted() throws Exception {
+        int[] before = quantities();
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(databaseHelper, journalFile, 60 * 60 * 1000, 10_000);
+        buffer.add(2, 3);
+
+        buffer.flushAsync().get(5, TimeUnit.SECONDS);
+        int[] expected = before.clone();
+        expected[1] += 3;
+        assertArrayEquals(expected, quantities());
+
+        buffer.close();
+    }
+
+    @Test
+    public void batchAtOrBelowStoredSeq_isNotAppliedAgain() {
+        int[] before = quantities();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        deltas.put(1, 2);
+
+        assertTrue(databaseHelper.applyQuantityDeltas(deltas, 7));
+        // Same batch committed again, e.g. by a second buffer replaying the journal
+        assertTrue(databaseHelper.applyQuantityDeltas(deltas, 7));
+        assertTrue(databaseHelper.applyQuantityDeltas(deltas, 3));
+
+        int[] expected = before.clone();
+        expected[0] += 2;
+        assertArrayEquals(expected, quantities());
+        assertEquals("7", databaseHelper.getMetadata(DatabaseHelper.METADATA_QUANTITY_JOURNAL_SEQ));
+    }
+
+    // Quantities of the sample items, indexed by item ID - 1
+    private int[] quantities() {
+        int[] quantities = new int[ITEMS];
+        for (InventoryItem item : databaseHelper.getAllInventoryItems()) {
+            if (item.getId() <= ITEMS) {
+                quantities[item.getId() - 1] = item.getQuantity();
+            }
+        }
+        return quantities;
+    }
+}
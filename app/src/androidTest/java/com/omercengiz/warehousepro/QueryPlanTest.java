@@ -0,0 +1,135 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every query DatabaseHelper issues and fails if any of them
+ * falls back to a full table scan. New queries must be added to {@link #queries()}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private static final String TEST_DB = "WarehousePro-queryplan.db";
+
+    // "SCAN inventory" (or "SCAN TABLE inventory" on older SQLite) without an index
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?\\w+$");
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void noQueryFallsBackToFullScan() {
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        List<String> failures = new ArrayList<>();
+
+        for (String[] query : queries()) {
+            String sql = query[0];
+            String[] args = new String[query.length - 1];
+            System.arraycopy(query, 1, args, 0, args.length);
+
+            Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(detailIndex);
+                if (FULL_SCAN.matcher(detail).matches()) {
+                    failures.add(detail + "  <-  " + sql);
+                }
+            }
+            cursor.close();
+        }
+
+        assertTrue("Full table scans:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    // Every query issued by DatabaseHelper, followed by sample arguments
+    private String[][] queries() {
+        String search = databaseHelper.isFts5Enabled()
+                ? DatabaseHelper.QUERY_SEARCH_ITEMS_FTS5
+                : DatabaseHelper.QUERY_SEARCH_ITEMS_FTS4;
+        String match = databaseHelper.getMatchExpression("box");
+
+        return new String[][]{
+                {DatabaseHelper.QUERY_AUTHENTICATE_USER, "admin", "hash"},
+                {DatabaseHelper.QUERY_USER_EXISTS, "admin"},
+                {DatabaseHelper.QUERY_ALL_ITEMS},
+                {DatabaseHelper.QUERY_ZERO_QUANTITY_ITEMS},
+                {DatabaseHelper.QUERY_LOW_STOCK_ITEMS},
+                {DatabaseHelper.QUERY_INVENTORY_STATS},
+                {DatabaseHelper.QUERY_COMPUTE_INVENTORY_STATS},
+                {DatabaseHelper.SQL_RECOMPUTE_INVENTORY_STATS},
+                {DatabaseHelper.QUERY_FIRST_PAGE, "50"},
+                {DatabaseHelper.QUERY_PAGE_AFTER, "Packing Tape", "3", "50"},
+                {DatabaseHelper.QUERY_PAGE_FROM, "Packing Tape", "3", "50"},
+                {DatabaseHelper.QUERY_PAGE_BEFORE, "Packing Tape", "3", "50"},
+                {DatabaseHelper.buildItemsByIdsQuery(3), "1", "2", "3"},
+                {search, match, "50"},
+                {DatabaseHelper.SQL_UPDATE_QUANTITY, "1", "1"},
+                {DatabaseHelper.SQL_ADJUST_QUANTITY, "1", "1"},
+                {DatabaseHelper.SQL_SELECT_QUANTITY, "1"},
+                {DatabaseHelper.SQL_DELETE_ITEM, "1"},
+                {DatabaseHelper.buildExportQuery(InventoryExporter.Filter.ALL, false), "0", "1000"},
+                {DatabaseHelper.buildExportQuery(InventoryExporter.Filter.ZERO_STOCK, false), "0", "1000"},
+                {DatabaseHelper.buildExportQuery(InventoryExporter.Filter.LOW_STOCK, false), "0", "1000"},
+                {DatabaseHelper.buildExportQuery(InventoryExporter.Filter.LOW_STOCK, true), match, "0", "1000"},
+                {DatabaseHelper.QUERY_LEDGER_QUANTITY, "1", "1"},
+                {DatabaseHelper.QUERY_STOCK_MOVEMENTS, "1", "50"},
+                {DatabaseHelper.QUERY_COMPACTION_CUTOFF, "0", "1700000000", "10000"},
+                {DatabaseHelper.SQL_FOLD_MOVEMENTS, "100", "0", "100"},
+                {DatabaseHelper.SQL_DROP_CLOSED_SNAPSHOTS, "0", "100"},
+                {DatabaseHelper.SQL_DELETE_MOVEMENTS, "0", "100"},
+                {DatabaseHelper.QUERY_QUANTITY_ROLLUPS, "3600", "1", "0", "1700000000"},
+                {DatabaseHelper.QUERY_QUANTITY_BEFORE, "3600", "1", "1700000000"},
+                {DatabaseHelper.SQL_PRUNE_QUANTITY_ROLLUPS, "60", "1700000000"},
+                {DatabaseHelper.QUERY_METADATA, DatabaseHelper.METADATA_QUANTITY_JOURNAL_SEQ},
+                {DatabaseHelper.SQL_PUT_METADATA, DatabaseHelper.METADATA_QUANTITY_JOURNAL_SEQ, "1"},
+                {DatabaseHelper.QUERY_DUE_SMS, "1700000000000", "20"},
+                {DatabaseHelper.QUERY_NEXT_SMS_ATTEMPT},
+                {DatabaseHelper.QUERY_PENDING_SMS_COUNT},
+                {DatabaseHelper.SQL_INSERT_SMS, "1", "x", "0", "0"},
+                {DatabaseHelper.SQL_DELETE_SMS, "1"},
+                {DatabaseHelper.SQL_LEASE_SMS, "1700000000000", "1"},
+                {DatabaseHelper.SQL_RESCHEDULE_SMS, "1", "0", "e", "1"},
+                {DatabaseHelper.SQL_FAIL_SMS, "1", "e", "1"},
+                {DatabaseHelper.QUERY_LAST_ALERT, "1"},
+                {DatabaseHelper.SQL_RECORD_ALERT, "1", "1700000000000"},
+                {DatabaseHelper.SQL_PRUNE_ALERT_COOLDOWNS, "1700000000000"},
+                {DatabaseHelper.QUERY_ALERT_RECIPIENTS, "1", "0", "1"},
+                {DatabaseHelper.QUERY_RECIPIENTS},
+                {DatabaseHelper.QUERY_RECIPIENT_ID, "+15551234567"},
+                {DatabaseHelper.SQL_UPSERT_RECIPIENT, "Test", "+15551234567"},
+                {DatabaseHelper.SQL_DELETE_RECIPIENT, "1"},
+                {DatabaseHelper.SQL_DELETE_RECIPIENT_SUBSCRIPTIONS, "1"},
+                {DatabaseHelper.SQL_SUBSCRIBE, "0", "1", "1"},
+                {DatabaseHelper.SQL_UNSUBSCRIBE, "0", "1", "1"},
+        };
+    }
+}
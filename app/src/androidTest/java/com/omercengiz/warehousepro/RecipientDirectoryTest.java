@@ -0,0 +1,137 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Recipients and their item and stock-level subscriptions in DatabaseHelper
+ */
+@RunWith(AndroidJUnit4.class)
+public class RecipientDirectoryTest {
+
+    private static final String TEST_DB = "WarehousePro-recipients.db";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void addRecipient_storesNormalizedNumberOnce() {
+        long id = databaseHelper.addRecipient("Alice", "(555) 123-4567");
+        assertTrue(id > 0);
+        // Same number written differently renames the existing recipient
+        assertEquals(id, databaseHelper.addRecipient("Alice B.", "555.123.4567"));
+
+        List<Recipient> recipients = databaseHelper.getRecipients();
+        assertEquals(1, recipients.size());
+        assertEquals("5551234567", recipients.get(0).getPhoneNumber());
+        assertEquals("Alice B.", recipients.get(0).getName());
+        assertEquals("(555) 123-4567", recipients.get(0).getDisplayPhoneNumber());
+    }
+
+    @Test
+    public void addRecipient_rejectsInvalidNumber() {
+        assertEquals(-1, databaseHelper.addRecipient("Nobody", "12-34"));
+        assertTrue(databaseHelper.getRecipients().isEmpty());
+    }
+
+    @Test
+    public void alertRecipients_matchItemAndStockLevel() {
+        List<Long> items = addItems(2);
+        int item = items.get(0).intValue();
+        int otherItem = items.get(1).intValue();
+
+        long byItem = databaseHelper.addRecipient("Item", "5550000001");
+        long outOfStock = databaseHelper.addRecipient("Out", "5550000002");
+        long lowStock = databaseHelper.addRecipient("Low", "5550000003");
+        long both = databaseHelper.addRecipient("Both", "5550000004");
+        databaseHelper.addRecipient("None", "5550000005");
+
+        assertTrue(databaseHelper.subscribeToItem(byItem, item));
+        assertTrue(databaseHelper.subscribeToStockLevel(outOfStock, Recipient.StockLevel.OUT_OF_STOCK));
+        assertTrue(databaseHelper.subscribeToStockLevel(lowStock, Recipient.StockLevel.LOW_STOCK));
+        assertTrue(databaseHelper.subscribeToItem(both, item));
+        assertTrue(databaseHelper.subscribeToStockLevel(both, Recipient.StockLevel.OUT_OF_STOCK));
+        // Subscribing twice changes nothing
+        assertFalse(databaseHelper.subscribeToItem(both, item));
+
+        // Out of stock is also low stock; each number appears once
+        assertEquals(Arrays.asList("5550000001", "5550000002", "5550000003", "5550000004"),
+                sorted(databaseHelper.getAlertRecipients(item, Recipient.StockLevel.OUT_OF_STOCK)));
+        assertEquals(Arrays.asList("5550000001", "5550000003", "5550000004"),
+                sorted(databaseHelper.getAlertRecipients(item, Recipient.StockLevel.LOW_STOCK)));
+        assertEquals(Collections.singletonList("5550000003"),
+                databaseHelper.getAlertRecipients(otherItem, Recipient.StockLevel.LOW_STOCK));
+
+        assertTrue(databaseHelper.unsubscribeFromItem(byItem, item));
+        assertTrue(databaseHelper.unsubscribeFromStockLevel(lowStock, Recipient.StockLevel.LOW_STOCK));
+        assertTrue(databaseHelper.getAlertRecipients(otherItem, Recipient.StockLevel.LOW_STOCK).isEmpty());
+    }
+
+    @Test
+    public void deletingItem_removesItsSubscriptions() {
+        int item = addItems(1).get(0).intValue();
+        long recipient = databaseHelper.addRecipient("Alice", "5551234567");
+        databaseHelper.subscribeToItem(recipient, item);
+
+        assertTrue(databaseHelper.deleteInventoryItem(item));
+        // A new item reusing the ID must not inherit the subscription
+        assertTrue(databaseHelper.getAlertRecipients(item, Recipient.StockLevel.OUT_OF_STOCK).isEmpty());
+        assertTrue(databaseHelper.subscribeToItem(recipient, item));
+    }
+
+    @Test
+    public void deletingRecipient_removesItsSubscriptions() {
+        int item = addItems(1).get(0).intValue();
+        long recipient = databaseHelper.addRecipient("Alice", "5551234567");
+        databaseHelper.subscribeToItem(recipient, item);
+        databaseHelper.subscribeToStockLevel(recipient, Recipient.StockLevel.LOW_STOCK);
+
+        assertTrue(databaseHelper.deleteRecipient(recipient));
+        assertFalse(databaseHelper.deleteRecipient(recipient));
+        assertTrue(databaseHelper.getRecipients().isEmpty());
+        assertTrue(databaseHelper.getAlertRecipients(item, Recipient.StockLevel.OUT_OF_STOCK).isEmpty());
+        // Unsubscribing finds nothing left
+        assertFalse(databaseHelper.unsubscribeFromItem(recipient, item));
+    }
+
+    // ================== HELPERS ==================
+
+    private List<Long> addItems(int count) {
+        InventoryItem[] items = new InventoryItem[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = new InventoryItem("Recipient Item " + i, 1.0, 0, "");
+        }
+        return databaseHelper.addInventoryItems(Arrays.asList(items));
+    }
+
+    private static List<String> sorted(List<String> phoneNumbers) {
+        Collections.sort(phoneNumbers);
+        return phoneNumbers;
+    }
+}
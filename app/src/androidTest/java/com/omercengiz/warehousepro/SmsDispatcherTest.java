@@ -0,0 +1,171 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Outbox persistence, throttling and retries of SmsDispatcher, with a fake in place of SmsManager
+ */
+@RunWith(AndroidJUnit4.class)
+public class SmsDispatcherTest {
+
+    private static final String TEST_DB = "WarehousePro-outbox.db";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private TaskScheduler scheduler;
+    private FakeSmsSender sender;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+        scheduler = new TaskScheduler();
+        sender = new FakeSmsSender();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void queuedMessages_areSentAndRemoved() throws Exception {
+        SmsDispatcher dispatcher = newDispatcher(new TokenBucket(10, 10), new RetryBackoff(50, 200, 3));
+        dispatcher.start();
+
+        assertTrue(dispatcher.enqueue("5551234567", "first") > 0);
+        assertTrue(dispatcher.enqueueAsync("5551234567", "second").get(TIMEOUT_SECONDS, TimeUnit.SECONDS) > 0);
+
+        waitUntil(() -> sender.sentCount() == 2);
+        assertEquals("first", sender.sentBodies().get(0));
+        assertEquals("second", sender.sentBodies().get(1));
+        waitUntil(() -> databaseHelper.getPendingSmsCount() == 0);
+
+        SmsDispatcher.Metrics metrics = dispatcher.getMetrics();
+        assertEquals(2, metrics.getSent());
+        assertEquals(2, metrics.getSegmentsSent());
+        assertEquals(0, metrics.getRetried());
+        assertEquals(0, metrics.getQueueDepth());
+    }
+
+    @Test
+    public void failedSend_isRetriedAfterBackoff() throws Exception {
+        SmsDispatcher dispatcher = newDispatcher(new TokenBucket(10, 10), new RetryBackoff(50, 200, 5));
+        sender.failNext(2);
+        dispatcher.start();
+
+        long start = System.nanoTime();
+        dispatcher.enqueue("5551234567", "retry me");
+
+        waitUntil(() -> sender.sentCount() == 1);
+        // Two failures wait at least half of 50 ms and half of 100 ms
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 75);
+        assertEquals(3, sender.attempts());
+
+        SmsDispatcher.Metrics metrics = dispatcher.getMetrics();
+        assertEquals(1, metrics.getSent());
+        assertEquals(2, metrics.getRetried());
+        assertEquals(0, metrics.getFailed());
+    }
+
+    @Test
+    public void message_staysQueuedUntilServiceReportsResult() throws Exception {
+        SmsDispatcher dispatcher = newDispatcher(new TokenBucket(10, 10), new RetryBackoff(50, 200, 3));
+        sender.deferResults();
+        dispatcher.start();
+
+        dispatcher.enqueue("5551234567", "awaiting result");
+        waitUntil(() -> sender.attempts() == 1);
+        Thread.sleep(100);
+        // Handed over but not confirmed: still in the outbox, and not sent again
+        assertEquals(1, databaseHelper.getPendingSmsCount());
+        assertEquals(1, sender.attempts());
+        assertEquals(0, dispatcher.getMetrics().getSent());
+
+        // A failure reported later (no service, radio off) is retried
+        sender.reportNext(false);
+        waitUntil(() -> sender.attempts() == 2);
+        assertEquals(1, dispatcher.getMetrics().getRetried());
+
+        sender.reportNext(true);
+        waitUntil(() -> databaseHelper.getPendingSmsCount() == 0);
+        assertEquals(1, dispatcher.getMetrics().getSent());
+    }
+
+    @Test
+    public void exhaustedRetries_areMarkedFailed() throws Exception {
+        SmsDispatcher dispatcher = newDispatcher(new TokenBucket(10, 10), new RetryBackoff(10, 20, 2));
+        sender.failNext(Integer.MAX_VALUE);
+        dispatcher.start();
+
+        dispatcher.enqueue("5551234567", "never delivered");
+
+        waitUntil(() -> dispatcher.getMetrics().getFailed() == 1);
+        assertEquals(2, sender.attempts());
+        assertEquals(0, databaseHelper.getPendingSmsCount());
+        assertTrue(databaseHelper.getDueSms(Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    public void tokenBucket_spacesOutSends() throws Exception {
+        // One message at once, then one every 100 ms
+        SmsDispatcher dispatcher = newDispatcher(new TokenBucket(1, 10), new RetryBackoff(50, 200, 3));
+        dispatcher.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            dispatcher.enqueue("5551234567", "message " + i);
+        }
+
+        waitUntil(() -> sender.sentCount() == 4);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 290);
+    }
+
+    @Test
+    public void messagesLeftByPreviousRun_areSentOnStart() throws Exception {
+        // Stored by a process that died before sending them
+        databaseHelper.enqueueSms("5551234567", "left over 1");
+        databaseHelper.enqueueSms("5557654321", "left over 2");
+
+        SmsDispatcher dispatcher = newDispatcher(new TokenBucket(10, 10), new RetryBackoff(50, 200, 3));
+        assertEquals(0, sender.sentCount());
+        dispatcher.start();
+
+        waitUntil(() -> sender.sentCount() == 2);
+        assertEquals("5557654321", sender.sentNumbers().get(1));
+        waitUntil(() -> databaseHelper.getPendingSmsCount() == 0);
+    }
+
+    // ================== HELPERS ==================
+
+    private SmsDispatcher newDispatcher(TokenBucket tokenBucket, RetryBackoff backoff) {
+        return new SmsDispatcher(databaseHelper, sender, tokenBucket, backoff, scheduler);
+    }
+
+    static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within " + TIMEOUT_SECONDS + " s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
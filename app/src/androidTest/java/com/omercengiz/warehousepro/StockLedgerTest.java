@@ -0,0 +1,117 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stock movement ledger: one movement per quantity change, snapshot + tail always equals
+ * item_quantity, before and after compaction
+ */
+@RunWith(AndroidJUnit4.class)
+public class StockLedgerTest {
+
+    private static final String TEST_DB = "WarehousePro-ledger.db";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        databaseHelper = new DatabaseHelper(context, TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void quantityChanges_appendMovements() {
+        databaseHelper.setActiveUser("alice");
+        assertTrue(databaseHelper.updateItemQuantity(1, 40));
+        databaseHelper.setActiveUser("bob");
+        assertEquals(37, databaseHelper.adjustQuantity(1, -3));
+        // No change, no movement
+        assertTrue(databaseHelper.updateItemQuantity(1, 37));
+
+        List<StockMovement> movements = databaseHelper.getStockMovements(1, 10);
+        assertEquals(-3, movements.get(0).getDelta());
+        assertEquals("bob", movements.get(0).getUsername());
+        assertEquals("alice", movements.get(1).getUsername());
+        assertTrue(movements.get(0).getId() > movements.get(1).getId());
+        assertTrue(movements.get(0).getCreatedAt() > 0);
+
+        // The opening quantity of the sample item is a movement too
+        assertEquals(37, databaseHelper.getLedgerQuantity(1));
+    }
+
+    @Test
+    public void ledgerQuantity_matchesInventoryBeforeAndAfterCompaction() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            int itemId = 1 + random.nextInt(5);
+            if (random.nextBoolean()) {
+                databaseHelper.adjustQuantity(itemId, random.nextInt(11) - 5);
+            } else {
+                Map<Integer, Integer> deltas = new HashMap<>();
+                deltas.put(itemId, random.nextInt(7) - 3);
+                deltas.put(1 + random.nextInt(5), random.nextInt(7) - 3);
+                databaseHelper.applyQuantityDeltas(deltas, i);
+            }
+        }
+        assertLedgerConsistent();
+
+        // Nothing is old enough yet
+        assertEquals(0, databaseHelper.compactStockLedger(3600));
+
+        int compacted = databaseHelper.compactStockLedger(0);
+        assertTrue(compacted > 0);
+        for (int itemId = 1; itemId <= 5; itemId++) {
+            assertTrue(databaseHelper.getStockMovements(itemId, 10).isEmpty());
+        }
+        assertLedgerConsistent();
+
+        // New movements land on top of the snapshots
+        assertTrue(databaseHelper.updateItemQuantity(2, 99));
+        assertEquals(1, databaseHelper.getStockMovements(2, 10).size());
+        assertLedgerConsistent();
+        assertEquals(1, databaseHelper.compactStockLedger(0));
+        assertLedgerConsistent();
+    }
+
+    @Test
+    public void deletedItems_closeOutAndCompactAway() {
+        assertTrue(databaseHelper.updateItemQuantity(3, 12));
+        assertTrue(databaseHelper.deleteInventoryItem(3));
+
+        assertEquals(-12, databaseHelper.getStockMovements(3, 1).get(0).getDelta());
+        assertEquals(0, databaseHelper.getLedgerQuantity(3));
+
+        assertTrue(databaseHelper.compactStockLedger(0) > 0);
+        assertEquals(0, databaseHelper.getLedgerQuantity(3));
+        assertTrue(databaseHelper.getStockMovements(3, 10).isEmpty());
+    }
+
+    private void assertLedgerConsistent() {
+        for (InventoryItem item : databaseHelper.getAllInventoryItems()) {
+            assertEquals(item.getName(), item.getQuantity(), databaseHelper.getLedgerQuantity(item.getId()));
+        }
+    }
+}
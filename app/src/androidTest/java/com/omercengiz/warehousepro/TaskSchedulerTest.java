@@ -0,0 +1,210 @@
+package com.omercengiz.warehousepro;
+
+import android.os.Looper;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bounded pools, lifecycle cancellation, serial ordering and metrics of TaskScheduler
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private TaskScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new TaskScheduler();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void fullQueue_rejectsAndCounts() throws Exception {
+        TaskScheduler.Pool pool = TaskScheduler.Pool.ALERTS;
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1 + pool.getQueueCapacity());
+
+        scheduler.execute(pool, () -> {
+            started.countDown();
+            await(release);
+            finished.countDown();
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < pool.getQueueCapacity(); i++) {
+            scheduler.execute(pool, finished::countDown);
+        }
+        assertEquals(pool.getQueueCapacity(), scheduler.getMetrics(pool).getQueueDepth());
+
+        try {
+            scheduler.execute(pool, () -> fail("Overflow task must not run"));
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            // Bounded queue
+        }
+
+        release.countDown();
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        TaskScheduler.Metrics metrics = scheduler.getMetrics(pool);
+        assertEquals(1 + pool.getQueueCapacity(), metrics.getSubmitted());
+        assertEquals(1, metrics.getRejected());
+        assertTrue(metrics.getMaxWaitMs() > 0);
+    }
+
+    @Test
+    public void ownedTask_deliversResultOnMainThread() throws Exception {
+        TestOwner owner = newOwner();
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicBoolean onMain = new AtomicBoolean();
+        AtomicReference<String> result = new AtomicReference<>();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                scheduler.submit(owner, TaskScheduler.Pool.IO, () -> "done", value -> {
+                    onMain.set(Looper.myLooper() == Looper.getMainLooper());
+                    result.set(value);
+                    delivered.countDown();
+                }));
+
+        assertTrue(delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(onMain.get());
+        assertEquals("done", result.get());
+    }
+
+    @Test
+    public void ownerDestroyed_cancelsQueuedAndRunningWork() throws Exception {
+        TestOwner owner = newOwner();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean delivered = new AtomicBoolean();
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        List<Future<?>> tasks = new ArrayList<>();
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            // ALERTS has one thread, so the second task stays queued behind the first
+            tasks.add(scheduler.submit(owner, TaskScheduler.Pool.ALERTS, () -> {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return 1;
+            }, value -> delivered.set(true)));
+            tasks.add(scheduler.submit(owner, TaskScheduler.Pool.ALERTS, () -> {
+                queuedRan.set(true);
+                return 2;
+            }, value -> delivered.set(true)));
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                owner.registry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY));
+
+        for (Future<?> task : tasks) {
+            assertTrue(task.isCancelled());
+        }
+        // Let the pool drain and any (dropped) deliveries run
+        waitForIdle(TaskScheduler.Pool.ALERTS);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertTrue(interrupted.get());
+        assertFalse(queuedRan.get());
+        assertFalse(delivered.get());
+
+        // New work for a destroyed owner never starts
+        AtomicReference<Future<Integer>> late = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                late.set(scheduler.submit(owner, TaskScheduler.Pool.IO, () -> 3, null)));
+        assertTrue(late.get().isCancelled());
+    }
+
+    @Test
+    public void serialExecutor_runsInSubmissionOrder() throws Exception {
+        TaskScheduler.SerialExecutor serial = scheduler.serialExecutor(TaskScheduler.Pool.IO);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            serial.execute(() -> {
+                order.add(value);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertEquals(100, scheduler.getMetrics(TaskScheduler.Pool.IO).getSubmitted());
+    }
+
+    // ================== HELPERS ==================
+
+    static final class TestOwner implements LifecycleOwner {
+        LifecycleRegistry registry;
+
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+
+    // LifecycleRegistry must be created and driven on the main thread
+    static TestOwner newOwner() {
+        TestOwner owner = new TestOwner();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            owner.registry = new LifecycleRegistry(owner);
+            owner.registry.setCurrentState(Lifecycle.State.RESUMED);
+        });
+        return owner;
+    }
+
+    private void waitForIdle(TaskScheduler.Pool pool) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline) {
+            TaskScheduler.Metrics metrics = scheduler.getMetrics(pool);
+            if (metrics.getQueueDepth() == 0 && metrics.getActiveThreads() == 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail(pool + " did not become idle");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -19,7 +19,7 @@ public class AddItemActivity extends AppCompatActivity {
     private MaterialButton saveButton;
     private MaterialButton cancelButton;
 
-    private DatabaseHelper databaseHelper;
+    private AsyncDatabase asyncDatabase;
     private String currentUsername;
 
     @Override
@@ -33,12 +33,12 @@ public class AddItemActivity extends AppCompatActivity {
         currentUsername = getIntent().getStringExtra("USERNAME");
         Log.d(TAG, "Current username: " + currentUsername);
 
-        // Initialize database helper
+        // Initialize database access (calls run in the background)
         try {
-            databaseHelper = new DatabaseHelper(this);
-            Log.d(TAG, "Database helper initialized successfully");
+            asyncDatabase = AsyncDatabase.getInstance(this);
+            Log.d(TAG, "Database access initialized successfully");
         } catch (Exception e) {
-            Log.e(TAG, "Error initializing database helper: " + e.getMessage(), e);
+            Log.e(TAG, "Error initializing database access: " + e.getMessage(), e);
         }
 
         // Initialize views
@@ -113,9 +113,9 @@ public class AddItemActivity extends AppCompatActivity {
                 return;
             }
 
-            // Check database helper
-            if (databaseHelper == null) {
-                Log.e(TAG, "Database helper is null!");
+            // Check database access
+            if (asyncDatabase == null) {
+                Log.e(TAG, "Database access is null!");
                 Toast.makeText(this, "Database error. Please restart the app.", Toast.LENGTH_LONG).show();
                 return;
             }
@@ -131,26 +131,32 @@ public class AddItemActivity extends AppCompatActivity {
                 return;
             }
 
-            Log.d(TAG, "About to call databaseHelper.addInventoryItem()");
+            Log.d(TAG, "About to call addInventoryItem()");
 
-            // Save to database
-            boolean saveResult = databaseHelper.addInventoryItem(itemName, weight, quantity, notes);
-            Log.d(TAG, "Database save result: " + saveResult);
+            // Save to database in the background; no double saves while it runs
+            saveButton.setEnabled(false);
+            asyncDatabase.addInventoryItem(this, itemName, weight, quantity, notes).whenComplete((saveResult, error) -> {
+                Log.d(TAG, "Database save result: " + saveResult);
+                saveButton.setEnabled(true);
+                if (isFinishing()) {
+                    return; // Left the screen while saving; the item is still saved
+                }
 
-            if (saveResult) {
-                // Success
-                Log.d(TAG, "Item saved successfully");
-                Toast.makeText(this, "Item '" + itemName + "' added successfully!", Toast.LENGTH_SHORT).show();
+                if (Boolean.TRUE.equals(saveResult)) {
+                    // Success
+                    Log.d(TAG, "Item saved successfully");
+                    Toast.makeText(this, "Item '" + itemName + "' added successfully!", Toast.LENGTH_SHORT).show();
 
-                // Set result and finish
-                setResult(RESULT_OK);
-                finish();
+                    // Set result and finish
+                    setResult(RESULT_OK);
+                    finish();
 
-            } else {
-                // Failed to save
-                Log.e(TAG, "Database save returned false");
-                Toast.makeText(this, "Failed to add item. Database error occurred.", Toast.LENGTH_LONG).show();
-            }
+                } else {
+                    // Failed to save
+                    Log.e(TAG, "Database save returned false");
+                    Toast.makeText(this, "Failed to add item. Database error occurred.", Toast.LENGTH_LONG).show();
+                }
+            });
 
         } catch (Exception e) {
             Log.e(TAG, "Exception in handleSaveItem: " + e.getMessage(), e);
@@ -196,73 +202,31 @@ public class AddItemActivity extends AppCompatActivity {
         // Clear previous errors
         clearErrors();
 
-        // Validate item name
-        if (itemName.isEmpty()) {
-            Log.d(TAG, "Validation failed: Item name is empty");
-            itemNameInput.setError("Item name is required");
-            if (isValid) itemNameInput.requestFocus();
-            isValid = false;
-        } else if (itemName.length() < 2) {
-            Log.d(TAG, "Validation failed: Item name too short");
-            itemNameInput.setError("Item name must be at least 2 characters");
+        // Validate item name (same rules as InventoryImporter)
+        String nameError = InventoryValidator.validateName(itemName);
+        if (nameError != null) {
+            Log.d(TAG, "Validation failed: " + nameError);
+            itemNameInput.setError(nameError);
             if (isValid) itemNameInput.requestFocus();
             isValid = false;
         }
 
         // Validate weight
-        if (weightStr.isEmpty()) {
-            Log.d(TAG, "Validation failed: Weight is empty");
-            weightInput.setError("Weight is required");
+        String weightError = InventoryValidator.validateWeight(weightStr);
+        if (weightError != null) {
+            Log.d(TAG, "Validation failed: " + weightError);
+            weightInput.setError(weightError);
             if (isValid) weightInput.requestFocus();
             isValid = false;
-        } else {
-            try {
-                double weight = Double.parseDouble(weightStr);
-                if (weight <= 0) {
-                    Log.d(TAG, "Validation failed: Weight <= 0");
-                    weightInput.setError("Weight must be greater than 0");
-                    if (isValid) weightInput.requestFocus();
-                    isValid = false;
-                } else if (weight > 10000) {
-                    Log.d(TAG, "Validation failed: Weight too large");
-                    weightInput.setError("Weight seems too large. Please check.");
-                    if (isValid) weightInput.requestFocus();
-                    isValid = false;
-                }
-            } catch (NumberFormatException e) {
-                Log.d(TAG, "Validation failed: Weight not a valid number");
-                weightInput.setError("Please enter a valid number");
-                if (isValid) weightInput.requestFocus();
-                isValid = false;
-            }
         }
 
         // Validate quantity
-        if (quantityStr.isEmpty()) {
-            Log.d(TAG, "Validation failed: Quantity is empty");
-            quantityInput.setError("Quantity is required");
+        String quantityError = InventoryValidator.validateQuantity(quantityStr);
+        if (quantityError != null) {
+            Log.d(TAG, "Validation failed: " + quantityError);
+            quantityInput.setError(quantityError);
             if (isValid) quantityInput.requestFocus();
             isValid = false;
-        } else {
-            try {
-                int quantity = Integer.parseInt(quantityStr);
-                if (quantity < 0) {
-                    Log.d(TAG, "Validation failed: Quantity < 0");
-                    quantityInput.setError("Quantity cannot be negative");
-                    if (isValid) quantityInput.requestFocus();
-                    isValid = false;
-                } else if (quantity > 100000) {
-                    Log.d(TAG, "Validation failed: Quantity too large");
-                    quantityInput.setError("Quantity seems too large. Please check.");
-                    if (isValid) quantityInput.requestFocus();
-                    isValid = false;
-                }
-            } catch (NumberFormatException e) {
-                Log.d(TAG, "Validation failed: Quantity not a valid number");
-                quantityInput.setError("Please enter a valid whole number");
-                if (isValid) quantityInput.requestFocus();
-                isValid = false;
-            }
         }
 
         Log.d(TAG, "Validation result: " + isValid);
@@ -307,8 +271,8 @@ public class AddItemActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "AddItemActivity onDestroy");
-        if (databaseHelper != null) {
-            databaseHelper.close();
+        if (asyncDatabase != null) {
+            asyncDatabase.close();
         }
     }
 }
\ No newline at end of file
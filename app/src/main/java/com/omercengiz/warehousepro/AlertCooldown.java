@@ -0,0 +1,198 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AlertCooldown - suppresses repeated stock alerts for the same item
+ *
+ * An item that alerted within the cooldown does not alert again, even if its quantity went
+ * back up and down to zero in between. The time of each item's last alert is stored in the
+ * alert_cooldowns table so the cooldown survives restarts; recently checked items are also
+ * kept in a small LRU map, so memory stays bounded however large the catalog is.
+ * An alert that is queued later (e.g. in an AlertDigester window) only holds a claim in
+ * memory until it is actually in the outbox; if the process dies first, nothing suppresses
+ * the item after the restart.
+ * Methods touch the database on a cache miss - call them from a background thread.
+ */
+public class AlertCooldown {
+
+    private static final String TAG = "AlertCooldown";
+
+    public static final long DEFAULT_COOLDOWN_MS = 60 * 60 * 1000;
+    public static final int DEFAULT_MAX_CACHED_ITEMS = 512;
+
+    // Optional override, in the same preferences file as InventoryActivity
+    private static final String PREFS_NAME = "WarehouseProPrefs";
+    public static final String KEY_COOLDOWN_MS = "alert_cooldown_ms";
+
+    // Cached time for items with no alert on record
+    private static final long NO_ALERT = -1;
+
+    // Process-wide instance; it keeps its database reference for the life of the process
+    private static AlertCooldown instance;
+
+    /**
+     * Get the process-wide cooldown, configured from preferences
+     * @param context Any context (the application context is retained)
+     * @return shared AlertCooldown instance
+     */
+    public static synchronized AlertCooldown getInstance(Context context) {
+        if (instance == null) {
+            SharedPreferences preferences = context.getApplicationContext()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            instance = new AlertCooldown(DatabaseHelper.getInstance(context),
+                    preferences.getLong(KEY_COOLDOWN_MS, DEFAULT_COOLDOWN_MS), DEFAULT_MAX_CACHED_ITEMS);
+        }
+        return instance;
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final long cooldownMillis;
+
+    // Item ID -> last alert (Unix millis, or NO_ALERT), least recently used first; guarded by "this"
+    private final LinkedHashMap<Integer, Long> lastAlerts;
+
+    // Items claimed for an alert that is not queued yet; guarded by "this", never evicted
+    private final Set<Integer> claimed = new HashSet<>();
+
+    // Statistics, guarded by "this"
+    private long allowedCount = 0;
+    private long suppressedCount = 0;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    // Explicit database and limits, used by instrumented tests
+    AlertCooldown(DatabaseHelper databaseHelper, long cooldownMillis, int maxCachedItems) {
+        this.databaseHelper = databaseHelper;
+        this.cooldownMillis = Math.max(0, cooldownMillis);
+        int capacity = Math.max(1, maxCachedItems);
+        this.lastAlerts = new LinkedHashMap<Integer, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Claim an alert that is queued right away. If the item is not cooling down, the alert is
+     * recorded and the cooldown starts now; otherwise the alert is counted as suppressed.
+     * @param itemId item that reached zero quantity
+     * @return true if the caller should alert
+     */
+    public synchronized boolean tryAcquire(int itemId) {
+        long now = System.currentTimeMillis();
+        if (isCoolingDown(itemId, now)) {
+            suppressedCount++;
+            Log.d(TAG, "Alert for item " + itemId + " suppressed, cooling down");
+            return false;
+        }
+
+        // Even if the write fails, this process won't alert again for the item
+        databaseHelper.recordAlert(itemId, now);
+        lastAlerts.put(itemId, now);
+        allowedCount++;
+        return true;
+    }
+
+    /**
+     * Claim an alert that is queued later. The item is suppressed in this process until the
+     * claim is confirmed, which starts the stored cooldown, or released.
+     * Does not write to the database.
+     * @param itemId item that reached zero quantity
+     * @return true if the caller should alert
+     */
+    public synchronized boolean tryClaim(int itemId) {
+        if (isCoolingDown(itemId, System.currentTimeMillis())) {
+            suppressedCount++;
+            Log.d(TAG, "Alert for item " + itemId + " suppressed, cooling down");
+            return false;
+        }
+        claimed.add(itemId);
+        allowedCount++;
+        return true;
+    }
+
+    /**
+     * The alerts claimed for these items are in the outbox - start their cooldown now
+     * @param itemIds items from {@link #tryClaim(int)}
+     */
+    public synchronized void confirm(Collection<Integer> itemIds) {
+        long now = System.currentTimeMillis();
+        for (int itemId : itemIds) {
+            claimed.remove(itemId);
+            databaseHelper.recordAlert(itemId, now);
+            lastAlerts.put(itemId, now);
+        }
+    }
+
+    /**
+     * The alerts claimed for these items could not be queued - let them alert again.
+     * Does not write to the database.
+     * @param itemIds items from {@link #tryClaim(int)}
+     */
+    public synchronized void release(Collection<Integer> itemIds) {
+        claimed.removeAll(itemIds);
+    }
+
+    /**
+     * Check without claiming, e.g. before asking the user whether to alert
+     * @param itemId item ID
+     * @return true if an alert for the item would be suppressed
+     */
+    public synchronized boolean isCoolingDown(int itemId) {
+        return isCoolingDown(itemId, System.currentTimeMillis());
+    }
+
+    /**
+     * Delete expired records from the database
+     * @return number of records deleted, or -1 on error
+     */
+    public int prune() {
+        return databaseHelper.pruneAlertCooldowns(System.currentTimeMillis() - cooldownMillis);
+    }
+
+    public long getCooldownMillis() {
+        return cooldownMillis;
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    public synchronized long getAllowedCount() {
+        return allowedCount;
+    }
+
+    public synchronized int getCachedItemCount() {
+        return lastAlerts.size();
+    }
+
+    public synchronized String getStats() {
+        return "Alerts allowed: " + allowedCount + ", suppressed: " + suppressedCount +
+                ", cache: " + lastAlerts.size() + " items, " + cacheHits + " hits, " + cacheMisses + " misses";
+    }
+
+    // Guarded by "this"
+    private boolean isCoolingDown(int itemId, long now) {
+        if (claimed.contains(itemId)) {
+            return true;
+        }
+        Long lastAlert = lastAlerts.get(itemId);
+        if (lastAlert != null) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+            lastAlert = databaseHelper.getLastAlertTime(itemId);
+            lastAlerts.put(itemId, lastAlert < 0 ? NO_ALERT : lastAlert);
+        }
+        return lastAlert != NO_ALERT && now - lastAlert < cooldownMillis;
+    }
+}
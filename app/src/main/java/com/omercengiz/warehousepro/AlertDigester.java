@@ -0,0 +1,193 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AlertDigester - collects out-of-stock alerts and sends them as one SMS per window
+ *
+ * The first alert for a phone number opens a window; every item that runs out before the
+ * window expires joins the same digest, which is queued in the SMS outbox when the window
+ * expires or as soon as it holds the maximum number of items. Pending alerts are kept in
+ * memory only, so alerts still waiting for their window are lost if the process dies; their
+ * items' cooldowns are only confirmed once the digest is in the outbox, so they can alert
+ * again after a restart.
+ */
+public class AlertDigester {
+
+    private static final String TAG = "AlertDigester";
+
+    public static final long DEFAULT_WINDOW_MS = 5 * 60 * 1000;
+    public static final int DEFAULT_MAX_ITEMS = 10;
+
+    // Optional overrides, in the same preferences file as InventoryActivity
+    private static final String PREFS_NAME = "WarehouseProPrefs";
+    public static final String KEY_WINDOW_MS = "alert_digest_window_ms";
+    public static final String KEY_MAX_ITEMS = "alert_digest_max_items";
+    public static final String KEY_COMPACT_MESSAGES = "alert_compact_messages";
+
+    // Process-wide instance, like SmsDispatcher
+    private static AlertDigester instance;
+
+    /**
+     * Get the process-wide digester, configured from preferences
+     * @param context Any context (the application context is retained)
+     * @return shared AlertDigester instance
+     */
+    public static synchronized AlertDigester getInstance(Context context) {
+        if (instance == null) {
+            SharedPreferences preferences = context.getApplicationContext()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            instance = new AlertDigester(SmsDispatcher.getInstance(context), AlertCooldown.getInstance(context),
+                    preferences.getLong(KEY_WINDOW_MS, DEFAULT_WINDOW_MS),
+                    preferences.getInt(KEY_MAX_ITEMS, DEFAULT_MAX_ITEMS),
+                    preferences.getBoolean(KEY_COMPACT_MESSAGES, true)
+                            ? AlertMessages.Style.COMPACT : AlertMessages.Style.DETAILED);
+        }
+        return instance;
+    }
+
+    private final SmsDispatcher dispatcher;
+    private final AlertCooldown cooldown;
+    private final long windowMillis;
+    private final int maxItems;
+    private final AlertMessages.Style style;
+    private final Handler timerHandler = new Handler(Looper.getMainLooper());
+
+    // Open digests by phone number, guarded by "this"
+    private final Map<String, Digest> digests = new HashMap<>();
+
+    // Statistics
+    private long alertCount = 0;
+    private long digestCount = 0;
+
+    // Explicit dispatcher, cooldown and limits, used by instrumented tests
+    AlertDigester(SmsDispatcher dispatcher, AlertCooldown cooldown, long windowMillis, int maxItems,
+                  AlertMessages.Style style) {
+        this.dispatcher = dispatcher;
+        this.cooldown = cooldown;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxItems = Math.max(1, maxItems);
+        this.style = style;
+    }
+
+    /**
+     * Add an out-of-stock item to the digest for a phone number. Returns immediately.
+     * The item's alert should be claimed with {@link AlertCooldown#tryClaim(int)}; the claim is
+     * confirmed or released once the digest has been queued or failed to queue.
+     * @param phoneNumber recipient
+     * @param item item that reached zero quantity
+     * @return true if added, false if the item is already in the open digest
+     */
+    public synchronized boolean add(String phoneNumber, InventoryItem item) {
+        Digest digest = digests.get(phoneNumber);
+        if (digest == null) {
+            digest = new Digest(phoneNumber);
+            digests.put(phoneNumber, digest);
+            timerHandler.postDelayed(digest.expire, windowMillis);
+        }
+
+        if (digest.items.containsKey(item.getId())) {
+            return false;
+        }
+        digest.items.put(item.getId(), item);
+        alertCount++;
+
+        if (digest.items.size() >= maxItems) {
+            send(digest);
+        }
+        return true;
+    }
+
+    /**
+     * Send every open digest now, without waiting for its window
+     */
+    public synchronized void flush() {
+        for (Digest digest : new ArrayList<>(digests.values())) {
+            send(digest);
+        }
+    }
+
+    // Items waiting in open digests
+    public synchronized int getPendingCount() {
+        int pending = 0;
+        for (Digest digest : digests.values()) {
+            pending += digest.items.size();
+        }
+        return pending;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    // Template used for alert messages
+    public AlertMessages.Style getMessageStyle() {
+        return style;
+    }
+
+    public synchronized String getStats() {
+        return "Alerts: " + alertCount + ", digests sent: " + digestCount + ", pending: " + getPendingCount();
+    }
+
+    // Window expired
+    private synchronized void expire(Digest digest) {
+        if (digests.get(digest.phoneNumber) == digest) {
+            send(digest);
+        }
+    }
+
+    // Close the digest and queue its message (guarded by "this")
+    private void send(Digest digest) {
+        digests.remove(digest.phoneNumber);
+        timerHandler.removeCallbacks(digest.expire);
+        if (digest.items.isEmpty()) {
+            return;
+        }
+
+        List<InventoryItem> items = new ArrayList<>(digest.items.values());
+        Date now = new Date();
+        String message = items.size() == 1
+                ? AlertMessages.lowStock(items.get(0), style, now)
+                : AlertMessages.digest(items, style, now);
+        digestCount++;
+
+        List<Integer> itemIds = new ArrayList<>(digest.items.keySet());
+        dispatcher.enqueueAsync(digest.phoneNumber, message).whenComplete((messageId, error) -> {
+            if (error != null || messageId < 0) {
+                Log.e(TAG, "Failed to queue digest of " + items.size() + " items", error);
+                cooldown.release(itemIds);
+            } else {
+                Log.d(TAG, "Digest of " + items.size() + " items queued as SMS " + messageId);
+                // On the IO thread that stored the message
+                cooldown.confirm(itemIds);
+            }
+        });
+    }
+
+    /**
+     * Items collected for one phone number during one window
+     */
+    private final class Digest {
+        final String phoneNumber;
+        final Map<Integer, InventoryItem> items = new LinkedHashMap<>(); // In the order they ran out
+        final Runnable expire = () -> AlertDigester.this.expire(this);
+
+        Digest(String phoneNumber) {
+            this.phoneNumber = phoneNumber;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.omercengiz.warehousepro;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * AlertMessages - text of the stock alert SMS
+ *
+ * Every template only produces GSM-7 characters (user-entered names and notes are converted
+ * with SmsEncoder.toGsm7), so a message never falls back to 70-character UCS-2 segments.
+ * The compact style is cut to fit a single segment; the detailed style keeps the full layout.
+ */
+public final class AlertMessages {
+
+    public enum Style {
+        DETAILED, // Labeled lines, may take several segments
+        COMPACT   // One line, fitted to one segment
+    }
+
+    private static final int SINGLE_SEGMENT = SmsEncoder.Encoding.GSM_7.getSingleLimit();
+
+    // Notes are only worth adding to a compact alert if at least this much room is left
+    private static final int MIN_NOTES_LENGTH = 12;
+
+    private AlertMessages() {
+    }
+
+    /**
+     * Alert for one item that reached zero quantity
+     * @param item the item
+     * @param style template
+     * @param time time shown in the message
+     * @return GSM-7 message text
+     */
+    public static String lowStock(InventoryItem item, Style style, Date time) {
+        String name = SmsEncoder.toGsm7(item.getName());
+        String notes = item.getNotes() == null ? "" : SmsEncoder.toGsm7(item.getNotes().trim());
+
+        if (style == Style.DETAILED) {
+            StringBuilder message = new StringBuilder();
+            message.append("WAREHOUSE ALERT\n");
+            message.append("ITEM OUT OF STOCK!\n\n");
+            message.append("Item: ").append(name).append("\n");
+            message.append("Quantity: 0\n");
+            message.append("Weight: ").append(item.getFormattedWeight()).append("\n");
+            if (!notes.isEmpty()) {
+                message.append("Notes: ").append(notes).append("\n");
+            }
+            message.append("\nAction Required: Reorder immediately\n");
+            message.append("Time: ").append(formatTime(time, false));
+            message.append("\n\n- Warehouse Pro System");
+            return message.toString();
+        }
+
+        // OUT OF STOCK: <name> (<weight>). Reorder now. [Notes: <notes>.] <time> -WarehousePro
+        String prefix = "OUT OF STOCK: ";
+        String details = " (" + item.getFormattedWeight() + "). Reorder now.";
+        String suffix = " " + formatTime(time, true) + " -WarehousePro";
+
+        int room = SINGLE_SEGMENT - SmsEncoder.length(prefix + details + suffix);
+        name = SmsEncoder.truncate(name, room);
+        room -= SmsEncoder.length(name);
+
+        // Notes end with a period so they don't run into the time
+        String notesPart = "";
+        int notesRoom = room - " Notes: .".length();
+        if (!notes.isEmpty() && notesRoom >= MIN_NOTES_LENGTH) {
+            String sentence = notes.endsWith(".") ? notes.substring(0, notes.length() - 1) : notes;
+            notesPart = " Notes: " + SmsEncoder.truncate(sentence, notesRoom) + ".";
+        }
+        return prefix + name + details + notesPart + suffix;
+    }
+
+    /**
+     * One alert listing several items that reached zero quantity. The compact style lists as
+     * many names as fit in one segment and counts the rest.
+     * @param items the items, in the order they ran out
+     * @param style template
+     * @param time time shown in the message
+     * @return GSM-7 message text
+     */
+    public static String digest(List<InventoryItem> items, Style style, Date time) {
+        if (style == Style.DETAILED) {
+            StringBuilder message = new StringBuilder();
+            message.append("WAREHOUSE ALERT\n");
+            message.append(items.size()).append(" ITEMS OUT OF STOCK\n\n");
+            for (InventoryItem item : items) {
+                message.append("- ").append(SmsEncoder.toGsm7(item.getName())).append("\n");
+            }
+            message.append("\nAction Required: Reorder\n");
+            message.append("Time: ").append(formatTime(time, false));
+            message.append("\n\n- Warehouse Pro System");
+            return message.toString();
+        }
+
+        // OUT OF STOCK (<n>): <a>, <b>, +<k> more. Reorder. <time> -WarehousePro
+        String prefix = "OUT OF STOCK (" + items.size() + "): ";
+        String suffix = ". Reorder. " + formatTime(time, true) + " -WarehousePro";
+        int room = SINGLE_SEGMENT - SmsEncoder.length(prefix + suffix);
+
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < items.size(); i++) {
+            String name = (i == 0 ? "" : ", ") + SmsEncoder.toGsm7(items.get(i).getName());
+            int remaining = items.size() - i - 1;
+            // Leave room to say how many did not fit, unless this is the last name
+            String more = remaining == 0 ? "" : ", +" + remaining + " more";
+            if (SmsEncoder.length(names) + SmsEncoder.length(name) + more.length() > room) {
+                if (i == 0) {
+                    // Not even one full name fits; cut it
+                    names.append(SmsEncoder.truncate(name, room - more.length()));
+                    i++;
+                }
+                if (i < items.size()) {
+                    names.append(", +").append(items.size() - i).append(" more");
+                }
+                break;
+            }
+            names.append(name);
+        }
+        return prefix + names + suffix;
+    }
+
+    /**
+     * Message for checking that SMS sending works
+     */
+    public static String test(Date time) {
+        return "Warehouse Pro SMS test. SMS alerts are working. " + formatTime(time, true);
+    }
+
+    // "Oct 17, 2026 14:32", or "Oct 17 14:32" in compact messages
+    private static String formatTime(Date time, boolean compact) {
+        SimpleDateFormat format = new SimpleDateFormat(compact ? "MMM dd HH:mm" : "MMM dd, yyyy HH:mm",
+                Locale.getDefault());
+        return SmsEncoder.toGsm7(format.format(time));
+    }
+}
@@ -0,0 +1,302 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsyncDatabase - runs database calls for the UI on background threads
+ *
+ * Every call returns right away with a CompletableFuture. The work runs on the scheduler's
+ * bounded IO pool and the future is completed on the main looper, so callbacks attached from the main
+ * thread (thenAccept etc.) always run there and can touch views directly.
+ * Quantity and delete writes go through InventoryRepository to keep its cache in step.
+ *
+ * Screens pass themselves as the owner, and a future for a destroyed screen is never
+ * completed, so callbacks need no isDestroyed() check. Reads still queued when the screen
+ * is destroyed are dropped; writes always run, only their result is discarded.
+ */
+public class AsyncDatabase {
+
+    private static final String TAG = "AsyncDatabase";
+
+    // Shared instance, reference counted like DatabaseHelper
+    private static AsyncDatabase instance;
+    private static int referenceCount = 0;
+
+    private final DatabaseHelper databaseHelper;
+    private final InventoryRepository repository;
+    private final boolean ownsReferences;
+    private final TaskScheduler scheduler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Calls not finished yet; the references are released after the last one once closed
+    private final AtomicInteger pendingCalls = new AtomicInteger();
+    private final AtomicBoolean released = new AtomicBoolean();
+    private volatile boolean closed = false;
+
+    /**
+     * Get the process-wide instance. Every call must be balanced by {@link #close()}.
+     * @param context Any context (the application context is retained)
+     * @return shared AsyncDatabase instance
+     */
+    public static synchronized AsyncDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new AsyncDatabase(DatabaseHelper.getInstance(context),
+                    InventoryRepository.getInstance(context), TaskScheduler.getInstance(), true);
+        }
+        referenceCount++;
+        return instance;
+    }
+
+    // Standalone facade over an explicit database and repository, used by instrumented tests
+    AsyncDatabase(DatabaseHelper databaseHelper, InventoryRepository repository, TaskScheduler scheduler) {
+        this(databaseHelper, repository, scheduler, false);
+    }
+
+    private AsyncDatabase(DatabaseHelper databaseHelper, InventoryRepository repository,
+                          TaskScheduler scheduler, boolean ownsReferences) {
+        this.databaseHelper = databaseHelper;
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.ownsReferences = ownsReferences;
+    }
+
+    /**
+     * Release a reference obtained from {@link #getInstance(Context)}. Queued calls still
+     * run; the database references are released after the last one.
+     */
+    public void close() {
+        synchronized (AsyncDatabase.class) {
+            if (this == instance) {
+                if (referenceCount > 0) {
+                    referenceCount--;
+                }
+                if (referenceCount > 0) {
+                    return;
+                }
+                instance = null;
+            }
+        }
+
+        closed = true;
+        if (pendingCalls.get() == 0) {
+            releaseReferences();
+        }
+    }
+
+    /**
+     * Run any database work in the background
+     * @param work runs on a database thread
+     * @return future completed on the main looper with the work's result, or exceptionally
+     *         if it threw or the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pendingCalls.incrementAndGet();
+        try {
+            scheduler.execute(TaskScheduler.Pool.IO, () -> {
+                try {
+                    T value = work.call();
+                    mainHandler.post(() -> result.complete(value));
+                } catch (Exception e) {
+                    Log.e(TAG, "Database call failed: " + e.getMessage(), e);
+                    mainHandler.post(() -> result.completeExceptionally(e));
+                } finally {
+                    finishCall();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Database queue full, call rejected", e);
+            finishCall();
+            mainHandler.post(() -> result.completeExceptionally(e));
+        }
+        return result;
+    }
+
+    /**
+     * Run database work for a screen. Call from the main thread. Work still queued when the
+     * screen is destroyed is dropped (for reads; see {@link #deliverTo} for writes).
+     * @param owner activity the work belongs to
+     * @param work runs on a database thread
+     * @return future completed on the main looper with the work's result, or exceptionally
+     *         if it threw or the queue is full; never completed once the owner is destroyed
+     */
+    public <T> CompletableFuture<T> submit(LifecycleOwner owner, Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return result;
+        }
+
+        OwnedCall call = new OwnedCall();
+        pendingCalls.incrementAndGet();
+        lifecycle.addObserver(call);
+        try {
+            scheduler.submit(owner, TaskScheduler.Pool.IO, () -> {
+                if (!call.start()) {
+                    return null; // Dropped on destroy, the call is already finished
+                }
+                try {
+                    return CompletableFuture.completedFuture(work.call());
+                } catch (Exception e) {
+                    Log.e(TAG, "Database call failed: " + e.getMessage(), e);
+                    return CompletableFuture.<T>failedFuture(e);
+                } finally {
+                    finishCall();
+                }
+            }, outcome -> {
+                lifecycle.removeObserver(call);
+                outcome.whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Database queue full, call rejected", e);
+            lifecycle.removeObserver(call);
+            finishCall();
+            mainHandler.post(() -> result.completeExceptionally(e));
+        }
+        return result;
+    }
+
+    /**
+     * Pass a result on to a screen, unless the screen has been destroyed by the time it is
+     * ready. Used for writes, which must not be dropped with the screen that started them.
+     * @param owner activity waiting for the result
+     * @param future future completed on the main looper
+     * @return future completed like the given one while the owner is alive, never after that
+     */
+    static <T> CompletableFuture<T> deliverTo(LifecycleOwner owner, CompletableFuture<T> future) {
+        CompletableFuture<T> delivered = new CompletableFuture<>();
+        future.whenComplete((value, error) -> {
+            if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                return;
+            }
+            if (error != null) {
+                delivered.completeExceptionally(error);
+            } else {
+                delivered.complete(value);
+            }
+        });
+        return delivered;
+    }
+
+    private void finishCall() {
+        if (pendingCalls.decrementAndGet() == 0 && closed) {
+            releaseReferences();
+        }
+    }
+
+    private void releaseReferences() {
+        if (ownsReferences && released.compareAndSet(false, true)) {
+            repository.close();
+            databaseHelper.close();
+        }
+    }
+
+    /**
+     * Finishes the pending call of owned work that was dropped before it started
+     */
+    private final class OwnedCall implements LifecycleEventObserver {
+        private final AtomicBoolean settled = new AtomicBoolean(); // Started, or dropped
+
+        boolean start() {
+            return settled.compareAndSet(false, true);
+        }
+
+        @Override
+        public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY && settled.compareAndSet(false, true)) {
+                finishCall();
+            }
+        }
+    }
+
+    // ================== USERS ==================
+
+    public CompletableFuture<Boolean> authenticateUser(String username, String password) {
+        return submit(() -> databaseHelper.authenticateUser(username, password));
+    }
+
+    public CompletableFuture<Boolean> authenticateUser(LifecycleOwner owner, String username, String password) {
+        return submit(owner, () -> databaseHelper.authenticateUser(username, password));
+    }
+
+    public CompletableFuture<Boolean> userExists(String username) {
+        return submit(() -> databaseHelper.userExists(username));
+    }
+
+    public CompletableFuture<Boolean> userExists(LifecycleOwner owner, String username) {
+        return submit(owner, () -> databaseHelper.userExists(username));
+    }
+
+    public CompletableFuture<Boolean> createUser(String username, String password, String email) {
+        return submit(() -> databaseHelper.createUser(username, password, email));
+    }
+
+    public CompletableFuture<Boolean> createUser(LifecycleOwner owner, String username, String password, String email) {
+        return deliverTo(owner, createUser(username, password, email));
+    }
+
+    public CompletableFuture<Void> setActiveUser(String username) {
+        return submit(() -> {
+            databaseHelper.setActiveUser(username);
+            return null;
+        });
+    }
+
+    // ================== INVENTORY ==================
+
+    public CompletableFuture<Boolean> addInventoryItem(String name, double weight, int quantity, String notes) {
+        return submit(() -> databaseHelper.addInventoryItem(name, weight, quantity, notes));
+    }
+
+    public CompletableFuture<Boolean> addInventoryItem(LifecycleOwner owner, String name, double weight,
+                                                       int quantity, String notes) {
+        return deliverTo(owner, addInventoryItem(name, weight, quantity, notes));
+    }
+
+    /**
+     * Set an item's quantity once the buffered +/- taps have been written, so they are not
+     * added on top of the new value
+     * @param pendingTaps buffer holding taps for the item, or null
+     * @param itemId item to change
+     * @param newQuantity new quantity
+     * @return future completed on the main looper with true if the item was updated
+     */
+    public CompletableFuture<Boolean> updateItemQuantity(QuantityWriteBuffer pendingTaps, int itemId, int newQuantity) {
+        return submit(() -> {
+            if (pendingTaps != null) {
+                pendingTaps.flushAndWait();
+            }
+            return repository.updateItemQuantity(itemId, newQuantity);
+        });
+    }
+
+    public CompletableFuture<Boolean> updateItemQuantity(LifecycleOwner owner, QuantityWriteBuffer pendingTaps,
+                                                         int itemId, int newQuantity) {
+        return deliverTo(owner, updateItemQuantity(pendingTaps, itemId, newQuantity));
+    }
+
+    public CompletableFuture<Boolean> deleteInventoryItem(int itemId) {
+        return submit(() -> repository.deleteInventoryItem(itemId));
+    }
+
+    public CompletableFuture<Boolean> deleteInventoryItem(LifecycleOwner owner, int itemId) {
+        return deliverTo(owner, deleteInventoryItem(itemId));
+    }
+}
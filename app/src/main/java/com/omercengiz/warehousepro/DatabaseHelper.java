@@ -4,22 +4,40 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Looper;
 import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Database constants
     private static final String DATABASE_NAME = "WarehousePro.db";
-    private static final int DATABASE_VERSION = 3; //
+    // 4: full-text search index, 5: inventory indexes, 6: app metadata, 7: stats index,
+    // 8: trigger-maintained stats, 9: stock movement ledger, 10: quantity rollups, 11: SMS outbox,
+    // 12: alert cooldowns, 13: SMS recipients
+    private static final int DATABASE_VERSION = 13;
     private static final String TAG = "DatabaseHelper";
 
     // Users table
-    private static final String TABLE_USERS = "users";
+    static final String TABLE_USERS = "users";
     private static final String COLUMN_USER_ID = "user_id";
     private static final String COLUMN_USERNAME = "username";
     private static final String COLUMN_PASSWORD = "password";
@@ -27,7 +45,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_CREATED_DATE = "created_date";
 
     // Inventory table
-    private static final String TABLE_INVENTORY = "inventory";
+    static final String TABLE_INVENTORY = "inventory";
     private static final String COLUMN_ITEM_ID = "item_id";
     private static final String COLUMN_ITEM_NAME = "item_name";
     private static final String COLUMN_ITEM_WEIGHT = "item_weight";
@@ -35,6 +53,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_ITEM_NOTES = "item_notes";
     private static final String COLUMN_LAST_UPDATED = "last_updated";
 
+    // Key/value table for small pieces of app state that must commit with inventory writes
+    private static final String TABLE_METADATA = "app_metadata";
+    private static final String COLUMN_METADATA_KEY = "key";
+    private static final String COLUMN_METADATA_VALUE = "value";
+
+    // Highest QuantityWriteBuffer journal entry already applied to inventory
+    static final String METADATA_QUANTITY_JOURNAL_SEQ = "quantity_journal_seq";
+
+    // User recorded on stock movements (the account signed in to InventoryActivity)
+    static final String METADATA_ACTIVE_USER = "active_user";
+
+    // Highest stock movement already folded into stock_snapshots
+    static final String METADATA_LEDGER_COMPACTED_THROUGH = "ledger_compacted_through";
+
     // Create tables SQL
     private static final String CREATE_USERS_TABLE =
             "CREATE TABLE " + TABLE_USERS + " (" +
@@ -55,8 +87,408 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_LAST_UPDATED + " DATETIME DEFAULT CURRENT_TIMESTAMP" +
                     ")";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private static final String CREATE_METADATA_TABLE =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_METADATA + " (" +
+                    COLUMN_METADATA_KEY + " TEXT PRIMARY KEY, " +
+                    COLUMN_METADATA_VALUE + " TEXT" +
+                    ")";
+
+    // Matches InventoryItem.isLowStock()
+    static final int LOW_STOCK_THRESHOLD = 5;
+
+    // Secondary indexes: name ordering (list, keyset pages) and partial indexes that
+    // only contain the few out-of-stock / low-stock rows
+    private static final String[] CREATE_INVENTORY_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_inventory_name ON " + TABLE_INVENTORY +
+                    " (" + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_ID + ")",
+            "CREATE INDEX IF NOT EXISTS idx_inventory_out_of_stock ON " + TABLE_INVENTORY +
+                    " (" + COLUMN_ITEM_NAME + ") WHERE " + COLUMN_ITEM_QUANTITY + " = 0",
+            "CREATE INDEX IF NOT EXISTS idx_inventory_low_stock ON " + TABLE_INVENTORY +
+                    " (" + COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_NAME + ") WHERE " +
+                    COLUMN_ITEM_QUANTITY + " <= " + LOW_STOCK_THRESHOLD
+    };
+
+    // Covering index for the statistics aggregate - narrower than the table, so the scan reads fewer pages
+    private static final String CREATE_STATS_INDEX =
+            "CREATE INDEX IF NOT EXISTS idx_inventory_quantity_weight ON " + TABLE_INVENTORY +
+                    " (" + COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_WEIGHT + ")";
+
+    // Single-row table of dashboard counters, kept current by triggers on inventory so
+    // reading them is one primary-key lookup. Buckets: out of stock (0), low stock (1-5),
+    // in stock (> 5).
+    private static final String TABLE_INVENTORY_STATS = "inventory_stats";
+
+    private static final String CREATE_INVENTORY_STATS_TABLE =
+            "CREATE TABLE " + TABLE_INVENTORY_STATS + " (" +
+                    "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                    "sku_count INTEGER NOT NULL DEFAULT 0, " +
+                    "out_of_stock_count INTEGER NOT NULL DEFAULT 0, " +
+                    "low_stock_count INTEGER NOT NULL DEFAULT 0, " +
+                    "in_stock_count INTEGER NOT NULL DEFAULT 0, " +
+                    "total_units INTEGER NOT NULL DEFAULT 0, " +
+                    "total_weight REAL NOT NULL DEFAULT 0" +
+                    ")";
+
+    // "+" adds a row's contribution, "-" removes it
+    private static String statsDelta(String sign, String row) {
+        String quantity = row + "." + COLUMN_ITEM_QUANTITY;
+        return "sku_count = sku_count " + sign + " 1, " +
+                "out_of_stock_count = out_of_stock_count " + sign + " (" + quantity + " = 0), " +
+                "low_stock_count = low_stock_count " + sign + " (" + quantity + " BETWEEN 1 AND " + LOW_STOCK_THRESHOLD + "), " +
+                "in_stock_count = in_stock_count " + sign + " (" + quantity + " > " + LOW_STOCK_THRESHOLD + "), " +
+                "total_units = total_units " + sign + " " + quantity + ", " +
+                "total_weight = total_weight " + sign + " " + row + "." + COLUMN_ITEM_WEIGHT + " * " + quantity;
+    }
+
+    private static final String[] CREATE_INVENTORY_STATS_TRIGGERS = {
+            "CREATE TRIGGER inventory_stats_insert AFTER INSERT ON " + TABLE_INVENTORY + " BEGIN " +
+                    "UPDATE " + TABLE_INVENTORY_STATS + " SET " + statsDelta("+", "new") + " WHERE id = 1; END",
+            "CREATE TRIGGER inventory_stats_delete AFTER DELETE ON " + TABLE_INVENTORY + " BEGIN " +
+                    "UPDATE " + TABLE_INVENTORY_STATS + " SET " + statsDelta("-", "old") + " WHERE id = 1; END",
+            // Two statements: SET expressions all see the row as it was before the UPDATE
+            "CREATE TRIGGER inventory_stats_update AFTER UPDATE OF " + COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_WEIGHT +
+                    " ON " + TABLE_INVENTORY + " BEGIN " +
+                    "UPDATE " + TABLE_INVENTORY_STATS + " SET " + statsDelta("-", "old") + " WHERE id = 1; " +
+                    "UPDATE " + TABLE_INVENTORY_STATS + " SET " + statsDelta("+", "new") + " WHERE id = 1; END"
+    };
+
+    // Append-only stock ledger. Triggers on inventory append one movement per quantity
+    // change (including the opening quantity and a closing movement on delete), so every
+    // write path is covered. item_quantity stays the materialized balance; for any item,
+    // snapshot quantity + SUM(delta of remaining movements) equals it. Compaction folds old
+    // movements into stock_snapshots so the ledger tail stays short.
+    static final String TABLE_STOCK_MOVEMENTS = "stock_movements";
+    private static final String TABLE_STOCK_SNAPSHOTS = "stock_snapshots";
+
+    private static final String CREATE_STOCK_MOVEMENTS_TABLE =
+            "CREATE TABLE " + TABLE_STOCK_MOVEMENTS + " (" +
+                    // AUTOINCREMENT: ids never go backwards, even after compaction empties the table
+                    "movement_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "item_id INTEGER NOT NULL, " +
+                    "delta INTEGER NOT NULL, " +
+                    "username TEXT, " +
+                    "created_at INTEGER NOT NULL" + // Unix seconds
+                    ")";
+
+    private static final String CREATE_STOCK_MOVEMENTS_INDEX =
+            "CREATE INDEX idx_stock_movements_item ON " + TABLE_STOCK_MOVEMENTS + " (item_id, movement_id)";
+
+    private static final String CREATE_STOCK_SNAPSHOTS_TABLE =
+            "CREATE TABLE " + TABLE_STOCK_SNAPSHOTS + " (" +
+                    "item_id INTEGER PRIMARY KEY, " +
+                    "quantity INTEGER NOT NULL, " +
+                    "through_movement_id INTEGER NOT NULL" +
+                    ")";
+
+    private static String appendMovement(String row, String delta) {
+        return "INSERT INTO " + TABLE_STOCK_MOVEMENTS + " (item_id, delta, username, created_at) VALUES (" +
+                row + "." + COLUMN_ITEM_ID + ", " + delta + ", " +
+                "(SELECT " + COLUMN_METADATA_VALUE + " FROM " + TABLE_METADATA + " WHERE " +
+                COLUMN_METADATA_KEY + " = '" + METADATA_ACTIVE_USER + "'), " +
+                "CAST(strftime('%s', 'now') AS INTEGER)); ";
+    }
+
+    private static final String[] CREATE_STOCK_MOVEMENT_TRIGGERS = {
+            "CREATE TRIGGER stock_movement_insert AFTER INSERT ON " + TABLE_INVENTORY +
+                    " WHEN new." + COLUMN_ITEM_QUANTITY + " != 0 BEGIN " +
+                    appendMovement("new", "new." + COLUMN_ITEM_QUANTITY) + "END",
+            "CREATE TRIGGER stock_movement_update AFTER UPDATE OF " + COLUMN_ITEM_QUANTITY + " ON " + TABLE_INVENTORY +
+                    " WHEN new." + COLUMN_ITEM_QUANTITY + " != old." + COLUMN_ITEM_QUANTITY + " BEGIN " +
+                    appendMovement("new", "new." + COLUMN_ITEM_QUANTITY + " - old." + COLUMN_ITEM_QUANTITY) + "END",
+            "CREATE TRIGGER stock_movement_delete AFTER DELETE ON " + TABLE_INVENTORY +
+                    " WHEN old." + COLUMN_ITEM_QUANTITY + " != 0 BEGIN " +
+                    appendMovement("old", "-old." + COLUMN_ITEM_QUANTITY) + "END"
+    };
+
+    // Existing quantities become the opening snapshots
+    private static final String SQL_SEED_STOCK_SNAPSHOTS =
+            "INSERT INTO " + TABLE_STOCK_SNAPSHOTS + " (item_id, quantity, through_movement_id) " +
+                    "SELECT " + COLUMN_ITEM_ID + ", " + COLUMN_ITEM_QUANTITY + ", 0 FROM " + TABLE_INVENTORY;
+
+    // Quantity history for charts: minute, hour and day buckets per item, upserted by
+    // triggers on every quantity change. Keyed (resolution, item_id, bucket_start) so a
+    // chart range is one primary-key range scan and retention deletes one prefix.
+    private static final String TABLE_QUANTITY_ROLLUPS = "quantity_rollups";
+
+    private static final String CREATE_QUANTITY_ROLLUPS_TABLE =
+            "CREATE TABLE " + TABLE_QUANTITY_ROLLUPS + " (" +
+                    "resolution INTEGER NOT NULL, " + // Bucket size in seconds
+                    "item_id INTEGER NOT NULL, " +
+                    "bucket_start INTEGER NOT NULL, " + // Unix seconds
+                    "min_quantity INTEGER NOT NULL, " +
+                    "max_quantity INTEGER NOT NULL, " +
+                    "close_quantity INTEGER NOT NULL, " +
+                    "change_count INTEGER NOT NULL, " +
+                    "PRIMARY KEY (resolution, item_id, bucket_start)" +
+                    ") WITHOUT ROWID";
+
+    private static final String NOW_SECONDS = "CAST(strftime('%s', 'now') AS INTEGER)";
+
+    // Fold one change into the bucket of every resolution
+    private static String rollupUpserts(String low, String high) {
+        StringBuilder sql = new StringBuilder();
+        for (QuantitySeries.Resolution resolution : QuantitySeries.Resolution.values()) {
+            int seconds = resolution.getSeconds();
+            sql.append("INSERT INTO ").append(TABLE_QUANTITY_ROLLUPS).append(" VALUES (")
+                    .append(seconds).append(", new.").append(COLUMN_ITEM_ID).append(", ")
+                    .append("(").append(NOW_SECONDS).append(" / ").append(seconds).append(") * ").append(seconds).append(", ")
+                    .append(low).append(", ").append(high).append(", new.").append(COLUMN_ITEM_QUANTITY).append(", 1) ")
+                    .append("ON CONFLICT (resolution, item_id, bucket_start) DO UPDATE SET ")
+                    .append("min_quantity = min(min_quantity, excluded.min_quantity), ")
+                    .append("max_quantity = max(max_quantity, excluded.max_quantity), ")
+                    .append("close_quantity = excluded.close_quantity, ")
+                    .append("change_count = change_count + 1; ");
+        }
+        return sql.toString();
+    }
+
+    private static final String[] CREATE_QUANTITY_ROLLUP_TRIGGERS = {
+            "CREATE TRIGGER quantity_rollup_insert AFTER INSERT ON " + TABLE_INVENTORY + " BEGIN " +
+                    rollupUpserts("new." + COLUMN_ITEM_QUANTITY, "new." + COLUMN_ITEM_QUANTITY) + "END",
+            // The bucket's range includes the level before the change
+            "CREATE TRIGGER quantity_rollup_update AFTER UPDATE OF " + COLUMN_ITEM_QUANTITY + " ON " + TABLE_INVENTORY +
+                    " WHEN new." + COLUMN_ITEM_QUANTITY + " != old." + COLUMN_ITEM_QUANTITY + " BEGIN " +
+                    rollupUpserts("min(old." + COLUMN_ITEM_QUANTITY + ", new." + COLUMN_ITEM_QUANTITY + ")",
+                            "max(old." + COLUMN_ITEM_QUANTITY + ", new." + COLUMN_ITEM_QUANTITY + ")") + "END",
+            "CREATE TRIGGER quantity_rollup_delete AFTER DELETE ON " + TABLE_INVENTORY + " BEGIN " +
+                    "DELETE FROM " + TABLE_QUANTITY_ROLLUPS + " WHERE resolution IN (" +
+                    QuantitySeries.Resolution.MINUTE.getSeconds() + ", " + QuantitySeries.Resolution.HOUR.getSeconds() + ", " +
+                    QuantitySeries.Resolution.DAY.getSeconds() + ") AND item_id = old." + COLUMN_ITEM_ID + "; END"
+    };
+
+    // Existing items start their history at their current quantity
+    private static final String SQL_SEED_QUANTITY_ROLLUPS =
+            "INSERT INTO " + TABLE_QUANTITY_ROLLUPS + " SELECT ?, " + COLUMN_ITEM_ID + ", ?, " +
+                    COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_QUANTITY + ", 0 FROM " + TABLE_INVENTORY;
+
+    // Outgoing SMS, written before sending so nothing is lost to a crash or a failed send.
+    // Sent messages are deleted; messages that ran out of retries stay as failed.
+    private static final String TABLE_SMS_OUTBOX = "sms_outbox";
+    private static final int SMS_PENDING = 0;
+    private static final int SMS_FAILED = 1;
+
+    private static final String CREATE_SMS_OUTBOX_TABLE =
+            "CREATE TABLE " + TABLE_SMS_OUTBOX + " (" +
+                    "message_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "phone_number TEXT NOT NULL, " +
+                    "body TEXT NOT NULL, " +
+                    "status INTEGER NOT NULL DEFAULT " + SMS_PENDING + ", " +
+                    "attempts INTEGER NOT NULL DEFAULT 0, " +
+                    "next_attempt_at INTEGER NOT NULL, " + // Unix millis
+                    "created_at INTEGER NOT NULL, " + // Unix millis
+                    "last_error TEXT" +
+                    ")";
+
+    // Due messages in send order straight from the index
+    private static final String CREATE_SMS_OUTBOX_INDEX =
+            "CREATE INDEX idx_sms_outbox_due ON " + TABLE_SMS_OUTBOX + " (status, next_attempt_at)";
+
+    // Last stock alert per item, so the same item does not alert again within its cooldown
+    private static final String TABLE_ALERT_COOLDOWNS = "alert_cooldowns";
+
+    private static final String CREATE_ALERT_COOLDOWNS_TABLE =
+            "CREATE TABLE " + TABLE_ALERT_COOLDOWNS + " (" +
+                    "item_id INTEGER PRIMARY KEY, " +
+                    "last_alert_at INTEGER NOT NULL" + // Unix millis
+                    ")";
+
+    // Expired cooldowns are deleted by time
+    private static final String CREATE_ALERT_COOLDOWNS_INDEX =
+            "CREATE INDEX idx_alert_cooldowns_time ON " + TABLE_ALERT_COOLDOWNS + " (last_alert_at)";
+
+    // Alert recipients, numbers stored normalized (PhoneNumbers.normalize) and unique
+    private static final String TABLE_RECIPIENTS = "recipients";
+    private static final String TABLE_RECIPIENT_SUBSCRIPTIONS = "recipient_subscriptions";
+    private static final int SUBSCRIPTION_ITEM = 0;
+    private static final int SUBSCRIPTION_STOCK_LEVEL = 1;
+
+    private static final String CREATE_RECIPIENTS_TABLE =
+            "CREATE TABLE " + TABLE_RECIPIENTS + " (" +
+                    "recipient_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "name TEXT, " +
+                    "phone_number TEXT NOT NULL UNIQUE" +
+                    ")";
+
+    // Keyed (kind, target) first, so the recipients of an alert are one primary-key range
+    // per kind; target is an item ID or a Recipient.StockLevel code
+    private static final String CREATE_RECIPIENT_SUBSCRIPTIONS_TABLE =
+            "CREATE TABLE " + TABLE_RECIPIENT_SUBSCRIPTIONS + " (" +
+                    "kind INTEGER NOT NULL, " +
+                    "target INTEGER NOT NULL, " +
+                    "recipient_id INTEGER NOT NULL, " +
+                    "PRIMARY KEY (kind, target, recipient_id)" +
+                    ") WITHOUT ROWID";
+
+    // Removing a recipient drops its subscriptions by recipient
+    private static final String CREATE_RECIPIENT_SUBSCRIPTIONS_INDEX =
+            "CREATE INDEX idx_recipient_subscriptions_recipient ON " + TABLE_RECIPIENT_SUBSCRIPTIONS + " (recipient_id)";
+
+    // Subscriptions to an item go away with the item
+    private static final String CREATE_RECIPIENT_SUBSCRIPTIONS_TRIGGER =
+            "CREATE TRIGGER recipient_subscriptions_item_delete AFTER DELETE ON " + TABLE_INVENTORY + " BEGIN " +
+                    "DELETE FROM " + TABLE_RECIPIENT_SUBSCRIPTIONS + " WHERE kind = " + SUBSCRIPTION_ITEM +
+                    " AND target = old." + COLUMN_ITEM_ID + "; END";
+
+    // Full-text search index over item name and notes. External content table:
+    // the text lives only in inventory, triggers keep the index in sync.
+    private static final String TABLE_INVENTORY_FTS = "inventory_fts";
+
+    private static final String CREATE_INVENTORY_FTS5 =
+            "CREATE VIRTUAL TABLE " + TABLE_INVENTORY_FTS + " USING fts5(" +
+                    COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ", " +
+                    "content='" + TABLE_INVENTORY + "', content_rowid='" + COLUMN_ITEM_ID + "', " +
+                    "prefix='2 3')";
+
+    private static final String[] CREATE_INVENTORY_FTS5_TRIGGERS = {
+            "CREATE TRIGGER inventory_fts_insert AFTER INSERT ON " + TABLE_INVENTORY + " BEGIN " +
+                    "INSERT INTO " + TABLE_INVENTORY_FTS + " (rowid, " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ") " +
+                    "VALUES (new." + COLUMN_ITEM_ID + ", new." + COLUMN_ITEM_NAME + ", new." + COLUMN_ITEM_NOTES + "); END",
+            "CREATE TRIGGER inventory_fts_delete AFTER DELETE ON " + TABLE_INVENTORY + " BEGIN " +
+                    "INSERT INTO " + TABLE_INVENTORY_FTS + " (" + TABLE_INVENTORY_FTS + ", rowid, " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ") " +
+                    "VALUES ('delete', old." + COLUMN_ITEM_ID + ", old." + COLUMN_ITEM_NAME + ", old." + COLUMN_ITEM_NOTES + "); END",
+            "CREATE TRIGGER inventory_fts_update AFTER UPDATE OF " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES +
+                    " ON " + TABLE_INVENTORY + " BEGIN " +
+                    "INSERT INTO " + TABLE_INVENTORY_FTS + " (" + TABLE_INVENTORY_FTS + ", rowid, " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ") " +
+                    "VALUES ('delete', old." + COLUMN_ITEM_ID + ", old." + COLUMN_ITEM_NAME + ", old." + COLUMN_ITEM_NOTES + "); " +
+                    "INSERT INTO " + TABLE_INVENTORY_FTS + " (rowid, " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ") " +
+                    "VALUES (new." + COLUMN_ITEM_ID + ", new." + COLUMN_ITEM_NAME + ", new." + COLUMN_ITEM_NOTES + "); END"
+    };
+
+    // FTS4 fallback for SQLite builds without the fts5 module
+    private static final String CREATE_INVENTORY_FTS4 =
+            "CREATE VIRTUAL TABLE " + TABLE_INVENTORY_FTS + " USING fts4(" +
+                    "content=\"" + TABLE_INVENTORY + "\", " +
+                    COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ", prefix=\"2,3\")";
+
+    private static final String[] CREATE_INVENTORY_FTS4_TRIGGERS = {
+            "CREATE TRIGGER inventory_fts_insert AFTER INSERT ON " + TABLE_INVENTORY + " BEGIN " +
+                    "INSERT INTO " + TABLE_INVENTORY_FTS + " (docid, " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ") " +
+                    "VALUES (new." + COLUMN_ITEM_ID + ", new." + COLUMN_ITEM_NAME + ", new." + COLUMN_ITEM_NOTES + "); END",
+            "CREATE TRIGGER inventory_fts_delete BEFORE DELETE ON " + TABLE_INVENTORY + " BEGIN " +
+                    "DELETE FROM " + TABLE_INVENTORY_FTS + " WHERE docid = old." + COLUMN_ITEM_ID + "; END",
+            "CREATE TRIGGER inventory_fts_update_before BEFORE UPDATE OF " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES +
+                    " ON " + TABLE_INVENTORY + " BEGIN " +
+                    "DELETE FROM " + TABLE_INVENTORY_FTS + " WHERE docid = old." + COLUMN_ITEM_ID + "; END",
+            "CREATE TRIGGER inventory_fts_update AFTER UPDATE OF " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES +
+                    " ON " + TABLE_INVENTORY + " BEGIN " +
+                    "INSERT INTO " + TABLE_INVENTORY_FTS + " (docid, " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_NOTES + ") " +
+                    "VALUES (new." + COLUMN_ITEM_ID + ", new." + COLUMN_ITEM_NAME + ", new." + COLUMN_ITEM_NOTES + "); END"
+    };
+
+    // Per-table change versions, bumped after every committed write
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker();
+
+    // Calls made on the main thread; they should all go through AsyncDatabase
+    private final AtomicLong mainThreadAccessCount = new AtomicLong();
+    private volatile boolean mainThreadAccessAllowed = true;
+
+    // Shared instance - one long-lived connection for the whole process
+    private static DatabaseHelper instance;
+    private static int referenceCount = 0;
+
+    /**
+     * Get the process-wide DatabaseHelper. The underlying SQLite connection is
+     * opened once and kept open while at least one component holds a reference.
+     * Every call must be balanced by a call to {@link #close()}.
+     * @param context Any context (the application context is retained)
+     * @return shared DatabaseHelper instance
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        referenceCount++;
+        Log.d(TAG, "Database reference acquired (" + referenceCount + " active)");
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // Separate database file, used by instrumented tests and benchmarks
+    DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+
+        // WAL: one writer connection plus a small pool of reader connections
+        // managed by the framework, so list loads and searches are not blocked
+        // by quantity updates (and vice versa)
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Release a reference obtained from {@link #getInstance(Context)}.
+     * The connection is only closed once the last reference is released.
+     */
+    @Override
+    public void close() {
+        synchronized (DatabaseHelper.class) {
+            if (this != instance) {
+                // Standalone helper (tests) - close immediately
+                closeCachedStatements();
+                super.close();
+                return;
+            }
+
+            if (referenceCount > 0) {
+                referenceCount--;
+            }
+
+            Log.d(TAG, "Database reference released (" + referenceCount + " active)");
+
+            if (referenceCount == 0) {
+                closeCachedStatements();
+                super.close();
+                Log.d(TAG, "Database connection closed");
+            }
+        }
+    }
+
+    /**
+     * Change tracker for the tables written through this helper
+     * @return the helper's invalidation tracker
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
+    // ================== MAIN THREAD GUARD ==================
+
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        checkNotMainThread();
+        return super.getWritableDatabase();
+    }
+
+    @Override
+    public SQLiteDatabase getReadableDatabase() {
+        checkNotMainThread();
+        return super.getReadableDatabase();
+    }
+
+    /**
+     * Whether database calls on the main thread are only logged (the default) or rejected
+     * with an IllegalStateException. Either way they are counted.
+     * @param allowed false to reject main-thread calls
+     */
+    void setMainThreadAccessAllowed(boolean allowed) {
+        mainThreadAccessAllowed = allowed;
+    }
+
+    // Number of database calls made on the main thread so far
+    long getMainThreadAccessCount() {
+        return mainThreadAccessCount.get();
+    }
+
+    private void checkNotMainThread() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        mainThreadAccessCount.incrementAndGet();
+        if (!mainThreadAccessAllowed) {
+            throw new IllegalStateException("Database accessed on the main thread");
+        }
+        Log.w(TAG, "Database accessed on the main thread", new Throwable());
     }
 
     @Override
@@ -67,6 +499,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             // Create tables
             db.execSQL(CREATE_USERS_TABLE);
             db.execSQL(CREATE_INVENTORY_TABLE);
+            db.execSQL(CREATE_METADATA_TABLE);
+            createInventoryIndexes(db);
+            createInventoryStats(db);
+            createStockLedger(db);
+            createQuantityRollups(db);
+            createSmsOutbox(db);
+            createAlertCooldowns(db);
+            createRecipients(db);
+            createSearchIndex(db);
 
             Log.d(TAG, "Tables created successfully");
 
@@ -86,16 +527,159 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.d(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
 
-        // Drop existing tables and create new ones
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_INVENTORY);
+        if (oldVersion < 3) {
+            // Schemas older than version 3 are not migrated - drop and recreate
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_INVENTORY);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_METADATA);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_INVENTORY_STATS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_STOCK_MOVEMENTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_STOCK_SNAPSHOTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUANTITY_ROLLUPS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SMS_OUTBOX);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_ALERT_COOLDOWNS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECIPIENTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECIPIENT_SUBSCRIPTIONS);
+
+            // Recreate tables
+            onCreate(db);
+
+            Log.d(TAG, "Database upgrade completed");
+            return;
+        }
 
-        // Recreate tables
-        onCreate(db);
+        // Incremental migrations keep existing users and inventory
+        if (oldVersion < 4) {
+            createSearchIndex(db);
+        }
+        if (oldVersion < 5) {
+            createInventoryIndexes(db);
+        }
+        if (oldVersion < 6) {
+            db.execSQL(CREATE_METADATA_TABLE);
+        }
+        if (oldVersion < 7) {
+            db.execSQL(CREATE_STATS_INDEX);
+        }
+        if (oldVersion < 8) {
+            createInventoryStats(db);
+        }
+        if (oldVersion < 9) {
+            createStockLedger(db);
+        }
+        if (oldVersion < 10) {
+            createQuantityRollups(db);
+        }
+        if (oldVersion < 11) {
+            createSmsOutbox(db);
+        }
+        if (oldVersion < 12) {
+            createAlertCooldowns(db);
+        }
+        if (oldVersion < 13) {
+            createRecipients(db);
+        }
 
         Log.d(TAG, "Database upgrade completed");
     }
 
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        fts5Enabled = detectFts5(db);
+    }
+
+    private void createInventoryIndexes(SQLiteDatabase db) {
+        for (String index : CREATE_INVENTORY_INDEXES) {
+            db.execSQL(index);
+        }
+        db.execSQL(CREATE_STATS_INDEX);
+    }
+
+    // Create the counters table and its triggers, seeded from the rows that already exist
+    private void createInventoryStats(SQLiteDatabase db) {
+        db.execSQL(CREATE_INVENTORY_STATS_TABLE);
+        for (String trigger : CREATE_INVENTORY_STATS_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+        db.execSQL(SQL_RECOMPUTE_INVENTORY_STATS);
+    }
+
+    // Create the ledger tables and triggers; current quantities become the opening snapshots
+    private void createStockLedger(SQLiteDatabase db) {
+        db.execSQL(CREATE_STOCK_MOVEMENTS_TABLE);
+        db.execSQL(CREATE_STOCK_MOVEMENTS_INDEX);
+        db.execSQL(CREATE_STOCK_SNAPSHOTS_TABLE);
+        for (String trigger : CREATE_STOCK_MOVEMENT_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+        db.execSQL(SQL_SEED_STOCK_SNAPSHOTS);
+    }
+
+    // Create the rollup table and triggers; existing items get one bucket per resolution
+    private void createQuantityRollups(SQLiteDatabase db) {
+        db.execSQL(CREATE_QUANTITY_ROLLUPS_TABLE);
+        for (String trigger : CREATE_QUANTITY_ROLLUP_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        for (QuantitySeries.Resolution resolution : QuantitySeries.Resolution.values()) {
+            db.execSQL(SQL_SEED_QUANTITY_ROLLUPS, new Object[]{resolution.getSeconds(), resolution.bucketStart(now)});
+        }
+    }
+
+    private void createSmsOutbox(SQLiteDatabase db) {
+        db.execSQL(CREATE_SMS_OUTBOX_TABLE);
+        db.execSQL(CREATE_SMS_OUTBOX_INDEX);
+    }
+
+    private void createAlertCooldowns(SQLiteDatabase db) {
+        db.execSQL(CREATE_ALERT_COOLDOWNS_TABLE);
+        db.execSQL(CREATE_ALERT_COOLDOWNS_INDEX);
+    }
+
+    private void createRecipients(SQLiteDatabase db) {
+        db.execSQL(CREATE_RECIPIENTS_TABLE);
+        db.execSQL(CREATE_RECIPIENT_SUBSCRIPTIONS_TABLE);
+        db.execSQL(CREATE_RECIPIENT_SUBSCRIPTIONS_INDEX);
+        db.execSQL(CREATE_RECIPIENT_SUBSCRIPTIONS_TRIGGER);
+    }
+
+    // Create the full-text index (FTS5, or FTS4 where fts5 is not compiled in) and fill it
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_INVENTORY_FTS);
+
+        boolean useFts5 = true;
+        try {
+            db.execSQL(CREATE_INVENTORY_FTS5);
+        } catch (SQLiteException e) {
+            Log.w(TAG, "fts5 unavailable, falling back to fts4: " + e.getMessage());
+            db.execSQL(CREATE_INVENTORY_FTS4);
+            useFts5 = false;
+        }
+
+        for (String trigger : useFts5 ? CREATE_INVENTORY_FTS5_TRIGGERS : CREATE_INVENTORY_FTS4_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+
+        // Index rows that already exist
+        db.execSQL("INSERT INTO " + TABLE_INVENTORY_FTS + " (" + TABLE_INVENTORY_FTS + ") VALUES ('rebuild')");
+        fts5Enabled = useFts5;
+
+        Log.d(TAG, "Search index created (" + (useFts5 ? "fts5" : "fts4") + ")");
+    }
+
+    private boolean detectFts5(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT sql FROM sqlite_master WHERE name = ?",
+                new String[]{TABLE_INVENTORY_FTS});
+        try {
+            return cursor.moveToFirst() && cursor.getString(0).toLowerCase(Locale.ROOT).contains("fts5");
+        } finally {
+            cursor.close();
+        }
+    }
+
     // Helper method to insert default admin user
     private void insertDefaultUser(SQLiteDatabase db) {
         try {
@@ -170,8 +754,335 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    // ================== WAL CHECKPOINTING ==================
+
+    /**
+     * WAL checkpoint modes (see SQLite "PRAGMA wal_checkpoint")
+     */
+    public enum CheckpointMode {
+        PASSIVE, FULL, RESTART, TRUNCATE
+    }
+
+    /**
+     * Controls when the write-ahead log is folded back into the database file
+     */
+    public static final class CheckpointPolicy {
+
+        public static final CheckpointPolicy DEFAULT =
+                new CheckpointPolicy(1000, CheckpointMode.PASSIVE, 4 * 1024 * 1024);
+
+        private final int autoCheckpointPages;
+        private final CheckpointMode manualMode;
+        private final long journalSizeLimitBytes;
+
+        /**
+         * @param autoCheckpointPages WAL size in pages that triggers an automatic
+         *                            checkpoint on commit (0 disables auto checkpoints)
+         * @param manualMode mode used by {@link DatabaseHelper#checkpoint()}
+         * @param journalSizeLimitBytes size the WAL file is truncated to after a checkpoint
+         *                              (-1 for no limit)
+         */
+        public CheckpointPolicy(int autoCheckpointPages, CheckpointMode manualMode, long journalSizeLimitBytes) {
+            this.autoCheckpointPages = Math.max(0, autoCheckpointPages);
+            this.manualMode = manualMode != null ? manualMode : CheckpointMode.PASSIVE;
+            this.journalSizeLimitBytes = journalSizeLimitBytes;
+        }
+
+        public int getAutoCheckpointPages() {
+            return autoCheckpointPages;
+        }
+
+        public CheckpointMode getManualMode() {
+            return manualMode;
+        }
+
+        public long getJournalSizeLimitBytes() {
+            return journalSizeLimitBytes;
+        }
+    }
+
+    private volatile CheckpointPolicy checkpointPolicy = CheckpointPolicy.DEFAULT;
+
+    /**
+     * Change the checkpoint policy. Applied immediately if the database is open,
+     * otherwise when the connection is next opened.
+     * @param policy new checkpoint policy
+     */
+    public void setCheckpointPolicy(CheckpointPolicy policy) {
+        checkpointPolicy = policy != null ? policy : CheckpointPolicy.DEFAULT;
+
+        try {
+            applyCheckpointPolicy(getWritableDatabase());
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying checkpoint policy: " + e.getMessage(), e);
+        }
+    }
+
+    public CheckpointPolicy getCheckpointPolicy() {
+        return checkpointPolicy;
+    }
+
+    /**
+     * Run a checkpoint using the policy's manual mode, e.g. when the app goes idle
+     * @return true if the checkpoint completed without being blocked by readers
+     */
+    public boolean checkpoint() {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            String mode = checkpointPolicy.getManualMode().name();
+            Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(" + mode + ")", null);
+
+            // Result row: busy flag, WAL pages, pages checkpointed
+            boolean completed = false;
+            if (cursor.moveToFirst()) {
+                completed = cursor.getInt(0) == 0;
+                Log.d(TAG, "WAL checkpoint (" + mode + "): " + cursor.getInt(2) + "/" +
+                        cursor.getInt(1) + " pages, busy=" + !completed);
+            }
+            cursor.close();
+
+            return completed;
+        } catch (Exception e) {
+            Log.e(TAG, "Error running WAL checkpoint: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Pragmas that return a row must go through rawQuery on Android
+    private void applyCheckpointPolicy(SQLiteDatabase db) {
+        CheckpointPolicy policy = checkpointPolicy;
+        runPragma(db, "wal_autocheckpoint = " + policy.getAutoCheckpointPages());
+        runPragma(db, "journal_size_limit = " + policy.getJournalSizeLimitBytes());
+    }
+
+    private void runPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        cursor.moveToFirst();
+        cursor.close();
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        applyCheckpointPolicy(db);
+    }
+
+    // ================== BACKUP AND RESTORE ==================
+
+    // Oldest schema a snapshot may have: older versions are dropped by onUpgrade, not migrated
+    private static final int MIN_RESTORABLE_VERSION = 3;
+
+    /**
+     * A database snapshot written by {@link #createSnapshot(File)}
+     */
+    public static final class Snapshot {
+        private final File file;
+        private final long sizeBytes;
+        private final long durationMs;
+
+        Snapshot(File file, long sizeBytes, long durationMs) {
+            this.file = file;
+            this.sizeBytes = sizeBytes;
+            this.durationMs = durationMs;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+    }
+
+    /**
+     * Write a compact, consistent copy of the live database to a file (VACUUM INTO).
+     * The copy is made on a separate read-only connection: in WAL mode it reads one
+     * snapshot of the data while writes through this helper carry on.
+     * @param target snapshot file, replaced if it exists
+     * @return snapshot details, or null on error
+     */
+    public Snapshot createSnapshot(File target) {
+        long startTime = System.nanoTime();
+        File temp = new File(target.getPath() + ".tmp");
+        // VACUUM INTO refuses to overwrite an existing file
+        temp.delete();
+
+        SQLiteDatabase snapshotConnection = null;
+        try {
+            String path = this.getReadableDatabase().getPath();
+            snapshotConnection = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+            snapshotConnection.execSQL("VACUUM INTO ?", new Object[]{temp.getPath()});
+            snapshotConnection.close();
+            snapshotConnection = null;
+
+            if (!temp.renameTo(target)) {
+                throw new IOException("Could not rename " + temp + " to " + target);
+            }
+
+            Snapshot snapshot = new Snapshot(target, target.length(), (System.nanoTime() - startTime) / 1_000_000);
+            Log.d(TAG, "Snapshot written to " + target.getName() + ": " + snapshot.getSizeBytes() +
+                    " bytes in " + snapshot.getDurationMs() + " ms");
+            return snapshot;
+        } catch (Exception e) {
+            Log.e(TAG, "Error creating database snapshot: " + e.getMessage(), e);
+            temp.delete();
+            return null;
+        } finally {
+            if (snapshotConnection != null) {
+                snapshotConnection.close();
+            }
+        }
+    }
+
+    /**
+     * Replace the database with a snapshot. The snapshot is checked first and copied next to
+     * the database file, then the connection is closed and the copy renamed over the live
+     * file, so the database is either fully old or fully restored. The connection reopens on
+     * the next access (migrating the snapshot if it has an older schema) and every observer
+     * of the invalidation tracker is told that all rows changed.
+     * What already happened outside the database is not rolled back: the SMS outbox, the alert
+     * cooldowns and the QuantityWriteBuffer's journal position are carried over from the live
+     * database, so a restore neither sends a message again nor replays a flushed tap.
+     * Pending writes (e.g. a QuantityWriteBuffer) should be flushed before restoring.
+     * @param snapshot file written by {@link #createSnapshot(File)}
+     * @return true if the snapshot was restored
+     */
+    public boolean restoreSnapshot(File snapshot) {
+        if (!isRestorableSnapshot(snapshot)) {
+            return false;
+        }
+
+        File databaseFile = new File(this.getReadableDatabase().getPath());
+        File staged = new File(databaseFile.getPath() + "-restore");
+
+        try {
+            // Copy on the same filesystem first, so the swap itself is a single rename
+            Files.copy(snapshot.toPath(), staged.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(staged.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+
+            // getWritableDatabase() locks the helper too, so nothing reopens the old file mid-swap
+            synchronized (this) {
+                closeCachedStatements();
+                super.close();
+                carryOverLiveState(staged, databaseFile);
+
+                // A leftover WAL would be replayed into the restored file - remove it first
+                Files.deleteIfExists(new File(databaseFile.getPath() + "-wal").toPath());
+                Files.deleteIfExists(new File(databaseFile.getPath() + "-shm").toPath());
+                Files.deleteIfExists(new File(databaseFile.getPath() + "-journal").toPath());
+                Files.move(staged.toPath(), databaseFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            Log.d(TAG, "Database restored from " + snapshot.getName());
+            invalidationTracker.notifyChanged(TABLE_USERS, null);
+            invalidationTracker.notifyChanged(TABLE_INVENTORY, null);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring database snapshot: " + e.getMessage(), e);
+            staged.delete();
+            return false;
+        }
+    }
+
+    // Copy the outbox, the alert cooldowns and the journal seq from the live database into the
+    // staged copy. The live connection is closed by then; the transaction waits for a write
+    // still running on it (e.g. a message being deleted as sent) so nothing is missed.
+    private void carryOverLiveState(File staged, File databaseFile) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(staged.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            // Snapshots older than version 6 have no metadata table; migration keeps this one
+            db.execSQL(CREATE_METADATA_TABLE);
+            db.execSQL("ATTACH DATABASE ? AS live", new Object[]{databaseFile.getPath()});
+
+            db.beginTransaction();
+            try {
+                for (String table : new String[]{TABLE_SMS_OUTBOX, TABLE_ALERT_COOLDOWNS}) {
+                    if (!hasTable(db, table)) {
+                        // Migration creates the table empty: queued messages are dropped, not resent
+                        Log.w(TAG, "Snapshot has no " + table + " table, live rows not carried over");
+                        continue;
+                    }
+                    db.execSQL("DELETE FROM main." + table);
+                    db.execSQL("INSERT INTO main." + table + " SELECT * FROM live." + table);
+                }
+
+                db.execSQL("DELETE FROM main." + TABLE_METADATA + " WHERE " + COLUMN_METADATA_KEY + " = ?",
+                        new Object[]{METADATA_QUANTITY_JOURNAL_SEQ});
+                db.execSQL("INSERT INTO main." + TABLE_METADATA + " SELECT * FROM live." + TABLE_METADATA +
+                        " WHERE " + COLUMN_METADATA_KEY + " = ?", new Object[]{METADATA_QUANTITY_JOURNAL_SEQ});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.execSQL("DETACH DATABASE live");
+        } finally {
+            db.close();
+        }
+    }
+
+    private static boolean hasTable(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery("SELECT 1 FROM main.sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{table});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Opens the snapshot read-only: must pass quick_check and have a schema this helper can open
+    private boolean isRestorableSnapshot(File snapshot) {
+        if (!snapshot.isFile()) {
+            Log.e(TAG, "Snapshot not found: " + snapshot);
+            return false;
+        }
+
+        SQLiteDatabase db = null;
+        try {
+            db = SQLiteDatabase.openDatabase(snapshot.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+            int version = db.getVersion();
+            if (version < MIN_RESTORABLE_VERSION || version > DATABASE_VERSION) {
+                Log.e(TAG, "Snapshot has unsupported schema version " + version);
+                return false;
+            }
+
+            Cursor cursor = db.rawQuery("PRAGMA quick_check", null);
+            String result = cursor.moveToFirst() ? cursor.getString(0) : null;
+            cursor.close();
+            if (!"ok".equals(result)) {
+                Log.e(TAG, "Snapshot failed integrity check: " + result);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Snapshot is not a readable database: " + e.getMessage(), e);
+            return false;
+        } finally {
+            if (db != null) {
+                db.close();
+            }
+        }
+    }
+
     // ================== USER OPERATIONS ==================
 
+    static final String QUERY_AUTHENTICATE_USER =
+            "SELECT " + COLUMN_USER_ID + " FROM " + TABLE_USERS +
+                    " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_PASSWORD + " = ?";
+
+    static final String QUERY_USER_EXISTS =
+            "SELECT " + COLUMN_USER_ID + " FROM " + TABLE_USERS +
+                    " WHERE " + COLUMN_USERNAME + " = ?";
+
     // Create new user account
     public boolean createUser(String username, String password, String email) {
         SQLiteDatabase db = this.getWritableDatabase();
@@ -186,6 +1097,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
             if (result != -1) {
                 Log.d(TAG, "User created successfully: " + username);
+                invalidationTracker.notifyChanged(TABLE_USERS, Collections.singletonList((int) result));
                 return true;
             } else {
                 Log.e(TAG, "Failed to create user: " + username);
@@ -194,8 +1106,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e(TAG, "Error creating user: " + e.getMessage(), e);
             return false;
-        } finally {
-            db.close();
         }
     }
 
@@ -205,10 +1115,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         try {
             String hashedPassword = hashPassword(password);
-            String query = "SELECT " + COLUMN_USER_ID + " FROM " + TABLE_USERS +
-                    " WHERE " + COLUMN_USERNAME + " = ? AND " + COLUMN_PASSWORD + " = ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{username, hashedPassword});
+            Cursor cursor = db.rawQuery(QUERY_AUTHENTICATE_USER, new String[]{username, hashedPassword});
 
             boolean isAuthenticated = cursor.getCount() > 0;
             cursor.close();
@@ -219,8 +1126,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e(TAG, "Error authenticating user: " + e.getMessage(), e);
             return false;
-        } finally {
-            db.close();
         }
     }
 
@@ -229,10 +1134,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getReadableDatabase();
 
         try {
-            String query = "SELECT " + COLUMN_USER_ID + " FROM " + TABLE_USERS +
-                    " WHERE " + COLUMN_USERNAME + " = ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{username});
+            Cursor cursor = db.rawQuery(QUERY_USER_EXISTS, new String[]{username});
             boolean exists = cursor.getCount() > 0;
             cursor.close();
 
@@ -241,76 +1143,485 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e(TAG, "Error checking if user exists: " + e.getMessage(), e);
             return false;
-        } finally {
-            db.close();
         }
     }
 
-    // ================== INVENTORY OPERATIONS ==================
+    // ================== STATEMENT LAYER ==================
+
+    // Explicit projection - column order matches InventoryItemMapper
+    private static final String INVENTORY_PROJECTION =
+            COLUMN_ITEM_ID + ", " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_WEIGHT + ", " +
+                    COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_NOTES + ", " + COLUMN_LAST_UPDATED;
+
+    static final String QUERY_ALL_ITEMS =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " ORDER BY " + COLUMN_ITEM_NAME;
+
+    static final String QUERY_ZERO_QUANTITY_ITEMS =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " WHERE " + COLUMN_ITEM_QUANTITY + " = 0 ORDER BY " + COLUMN_ITEM_NAME;
+
+    static final String QUERY_LOW_STOCK_ITEMS =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " WHERE " + COLUMN_ITEM_QUANTITY + " <= " + LOW_STOCK_THRESHOLD +
+                    " ORDER BY " + COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_NAME;
+
+    // Dashboard numbers from the trigger-maintained counters row
+    static final String QUERY_INVENTORY_STATS =
+            "SELECT sku_count, total_units, out_of_stock_count, low_stock_count, total_weight FROM " +
+                    TABLE_INVENTORY_STATS + " WHERE id = 1";
+
+    // The same numbers from one pass over idx_inventory_quantity_weight
+    static final String QUERY_COMPUTE_INVENTORY_STATS =
+            "SELECT COUNT(*), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + "), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + " = 0), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + " BETWEEN 1 AND " + LOW_STOCK_THRESHOLD + "), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_WEIGHT + " * " + COLUMN_ITEM_QUANTITY + "), 0) " +
+                    "FROM " + TABLE_INVENTORY;
+
+    static final String SQL_RECOMPUTE_INVENTORY_STATS =
+            "INSERT OR REPLACE INTO " + TABLE_INVENTORY_STATS + " (id, sku_count, out_of_stock_count, " +
+                    "low_stock_count, in_stock_count, total_units, total_weight) " +
+                    "SELECT 1, COUNT(*), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + " = 0), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + " BETWEEN 1 AND " + LOW_STOCK_THRESHOLD + "), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + " > " + LOW_STOCK_THRESHOLD + "), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_QUANTITY + "), 0), " +
+                    "COALESCE(SUM(" + COLUMN_ITEM_WEIGHT + " * " + COLUMN_ITEM_QUANTITY + "), 0) " +
+                    "FROM " + TABLE_INVENTORY;
+
+    // Keyset pagination over (item_name, item_id) - no OFFSET, so every page costs the same
+    private static final String PAGE_ORDER =
+            " ORDER BY " + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_ID + " LIMIT ?";
+
+    static final String QUERY_FIRST_PAGE =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY + PAGE_ORDER;
+
+    static final String QUERY_PAGE_AFTER =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " WHERE (" + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_ID + ") > (?, ?)" + PAGE_ORDER;
+
+    static final String QUERY_PAGE_FROM =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " WHERE (" + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_ID + ") >= (?, ?)" + PAGE_ORDER;
+
+    static final String QUERY_PAGE_BEFORE =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " WHERE (" + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_ID + ") < (?, ?)" +
+                    " ORDER BY " + COLUMN_ITEM_NAME + " DESC, " + COLUMN_ITEM_ID + " DESC LIMIT ?";
+
+    // Full-text search, best matches first. Name matches weigh more than notes in bm25.
+    static final String QUERY_SEARCH_ITEMS_FTS5 =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY + " JOIN (" +
+                    "SELECT rowid AS match_id, bm25(" + TABLE_INVENTORY_FTS + ", 10.0, 1.0) AS match_score" +
+                    " FROM " + TABLE_INVENTORY_FTS + " WHERE " + TABLE_INVENTORY_FTS + " MATCH ?" +
+                    " ORDER BY match_score LIMIT ?) ON " + COLUMN_ITEM_ID + " = match_id" +
+                    " ORDER BY match_score";
+
+    // FTS4 has no built-in ranking function - order by name instead
+    static final String QUERY_SEARCH_ITEMS_FTS4 =
+            "SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                    " WHERE " + COLUMN_ITEM_ID + " IN (SELECT docid FROM " + TABLE_INVENTORY_FTS +
+                    " WHERE " + TABLE_INVENTORY_FTS + " MATCH ?) ORDER BY " + COLUMN_ITEM_NAME + " LIMIT ?";
+
+    private static final int DEFAULT_SEARCH_LIMIT = 200;
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    // SELECT ... WHERE item_id IN (?, ?, ...) with the given number of placeholders
+    static String buildItemsByIdsQuery(int count) {
+        StringBuilder query = new StringBuilder("SELECT " + INVENTORY_PROJECTION + " FROM " + TABLE_INVENTORY +
+                " WHERE " + COLUMN_ITEM_ID + " IN (");
+        for (int i = 0; i < count; i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        return query.append(")").toString();
+    }
 
-    // Add new inventory item
-    public boolean addInventoryItem(String name, double weight, int quantity, String notes) {
-        SQLiteDatabase db = this.getWritableDatabase();
+    // Export reads the table in item_id (rowid) order, one keyset chunk at a time:
+    // each chunk is a short range scan and no query ever sorts the whole table
+    private static final String EXPORT_PROJECTION =
+            "i." + COLUMN_ITEM_ID + ", i." + COLUMN_ITEM_NAME + ", i." + COLUMN_ITEM_WEIGHT + ", i." +
+                    COLUMN_ITEM_QUANTITY + ", i." + COLUMN_ITEM_NOTES + ", i." + COLUMN_LAST_UPDATED;
+
+    /**
+     * Build the export chunk query. Arguments: [match expression,] last exported ID, limit.
+     * Columns are in {@link #EXPORT_PROJECTION} order.
+     */
+    static String buildExportQuery(InventoryExporter.Filter filter, boolean search) {
+        String idColumn = search ? TABLE_INVENTORY_FTS + ".rowid" : "i." + COLUMN_ITEM_ID;
+        StringBuilder query = new StringBuilder("SELECT " + EXPORT_PROJECTION + " FROM ");
+        if (search) {
+            query.append(TABLE_INVENTORY_FTS).append(" JOIN ").append(TABLE_INVENTORY).append(" i ON i.")
+                    .append(COLUMN_ITEM_ID).append(" = ").append(idColumn)
+                    .append(" WHERE ").append(TABLE_INVENTORY_FTS).append(" MATCH ? AND ");
+        } else {
+            query.append(TABLE_INVENTORY).append(" i WHERE ");
+        }
+        query.append(idColumn).append(" > ?");
 
-        try {
-            Log.d(TAG, "Adding inventory item: " + name + ", Weight: " + weight + ", Quantity: " + quantity + ", Notes: " + notes);
+        if (filter == InventoryExporter.Filter.ZERO_STOCK) {
+            query.append(" AND i.").append(COLUMN_ITEM_QUANTITY).append(" = 0");
+        } else if (filter == InventoryExporter.Filter.LOW_STOCK) {
+            query.append(" AND i.").append(COLUMN_ITEM_QUANTITY).append(" <= ").append(LOW_STOCK_THRESHOLD);
+        }
+        return query.append(" ORDER BY ").append(idColumn).append(" LIMIT ?").toString();
+    }
 
-            ContentValues values = new ContentValues();
-            values.put(COLUMN_ITEM_NAME, name);
-            values.put(COLUMN_ITEM_WEIGHT, weight);
-            values.put(COLUMN_ITEM_QUANTITY, quantity);
-            values.put(COLUMN_ITEM_NOTES, notes);
+    private volatile boolean fts5Enabled = true;
 
-            long result = db.insert(TABLE_INVENTORY, null, values);
+    // Which search query is in use (fts4 fallback has no ranking)
+    boolean isFts5Enabled() {
+        return fts5Enabled;
+    }
 
-            if (result != -1) {
-                Log.d(TAG, "Inventory item added successfully: " + name + " with ID: " + result);
-                return true;
-            } else {
-                Log.e(TAG, "Failed to add inventory item: " + name);
-                return false;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error adding inventory item: " + e.getMessage(), e);
-            return false;
-        } finally {
-            db.close();
+    // Hot write paths, compiled once and reused
+    static final String SQL_INSERT_ITEM =
+            "INSERT INTO " + TABLE_INVENTORY + " (" + COLUMN_ITEM_NAME + ", " + COLUMN_ITEM_WEIGHT + ", " +
+                    COLUMN_ITEM_QUANTITY + ", " + COLUMN_ITEM_NOTES + ") VALUES (?, ?, ?, ?)";
+
+    static final String SQL_UPDATE_QUANTITY =
+            "UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_ITEM_QUANTITY + " = ?, " +
+                    COLUMN_LAST_UPDATED + " = datetime('now') WHERE " + COLUMN_ITEM_ID + " = ?";
+
+    // Relative change, clamped at zero, evaluated inside SQLite (no read-modify-write)
+    static final String SQL_ADJUST_QUANTITY =
+            "UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_ITEM_QUANTITY + " = max(0, " + COLUMN_ITEM_QUANTITY + " + ?), " +
+                    COLUMN_LAST_UPDATED + " = datetime('now') WHERE " + COLUMN_ITEM_ID + " = ?";
+
+    static final String SQL_SELECT_QUANTITY =
+            "SELECT " + COLUMN_ITEM_QUANTITY + " FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_ITEM_ID + " = ?";
+
+    static final String QUERY_METADATA =
+            "SELECT " + COLUMN_METADATA_VALUE + " FROM " + TABLE_METADATA + " WHERE " + COLUMN_METADATA_KEY + " = ?";
+
+    static final String SQL_PUT_METADATA =
+            "INSERT INTO " + TABLE_METADATA + " (" + COLUMN_METADATA_KEY + ", " + COLUMN_METADATA_VALUE + ") VALUES (?, ?) " +
+                    "ON CONFLICT(" + COLUMN_METADATA_KEY + ") DO UPDATE SET " + COLUMN_METADATA_VALUE + " = excluded." + COLUMN_METADATA_VALUE;
+
+    static final String SQL_DELETE_ITEM =
+            "DELETE FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_ITEM_ID + " = ?";
+
+    // Stock ledger: quantity from snapshot + tail, and the tail itself, newest first
+    static final String QUERY_LEDGER_QUANTITY =
+            "SELECT COALESCE((SELECT quantity FROM " + TABLE_STOCK_SNAPSHOTS + " WHERE item_id = ?), 0) + " +
+                    "COALESCE((SELECT SUM(delta) FROM " + TABLE_STOCK_MOVEMENTS + " WHERE item_id = ?), 0)";
+
+    static final String QUERY_STOCK_MOVEMENTS =
+            "SELECT movement_id, item_id, delta, username, created_at FROM " + TABLE_STOCK_MOVEMENTS +
+                    " WHERE item_id = ? ORDER BY movement_id DESC LIMIT ?";
+
+    // Compaction, one batch at a time in movement_id order. Arguments: compacted-through id,
+    // age cutoff, batch size. (Clock changes can let a slightly newer movement into a batch.)
+    static final String QUERY_COMPACTION_CUTOFF =
+            "SELECT MAX(movement_id) FROM (SELECT movement_id FROM " + TABLE_STOCK_MOVEMENTS +
+                    " WHERE movement_id > ? AND created_at <= ? ORDER BY movement_id LIMIT ?)";
+
+    static final String SQL_FOLD_MOVEMENTS =
+            "INSERT INTO " + TABLE_STOCK_SNAPSHOTS + " (item_id, quantity, through_movement_id) " +
+                    "SELECT item_id, SUM(delta), ? FROM " + TABLE_STOCK_MOVEMENTS +
+                    " WHERE movement_id > ? AND movement_id <= ? GROUP BY item_id " +
+                    "ON CONFLICT(item_id) DO UPDATE SET quantity = quantity + excluded.quantity, " +
+                    "through_movement_id = excluded.through_movement_id";
+
+    // Snapshots of deleted items that the batch closed out
+    static final String SQL_DROP_CLOSED_SNAPSHOTS =
+            "DELETE FROM " + TABLE_STOCK_SNAPSHOTS + " WHERE quantity = 0 AND item_id IN (" +
+                    "SELECT item_id FROM " + TABLE_STOCK_MOVEMENTS + " WHERE movement_id > ? AND movement_id <= ?) " +
+                    "AND NOT EXISTS (SELECT 1 FROM " + TABLE_INVENTORY + " WHERE " + TABLE_INVENTORY + "." +
+                    COLUMN_ITEM_ID + " = " + TABLE_STOCK_SNAPSHOTS + ".item_id)";
+
+    // Quantity rollups: buckets in a range, the last bucket before it, and retention
+    static final String QUERY_QUANTITY_ROLLUPS =
+            "SELECT bucket_start, min_quantity, max_quantity, close_quantity, change_count FROM " + TABLE_QUANTITY_ROLLUPS +
+                    " WHERE resolution = ? AND item_id = ? AND bucket_start BETWEEN ? AND ? ORDER BY bucket_start";
+
+    static final String QUERY_QUANTITY_BEFORE =
+            "SELECT close_quantity FROM " + TABLE_QUANTITY_ROLLUPS +
+                    " WHERE resolution = ? AND item_id = ? AND bucket_start < ? ORDER BY bucket_start DESC LIMIT 1";
+
+    static final String SQL_PRUNE_QUANTITY_ROLLUPS =
+            "DELETE FROM " + TABLE_QUANTITY_ROLLUPS + " WHERE resolution = ? AND bucket_start < ?";
+
+    static final String SQL_DELETE_MOVEMENTS =
+            "DELETE FROM " + TABLE_STOCK_MOVEMENTS + " WHERE movement_id > ? AND movement_id <= ?";
+
+    // SMS outbox: due messages in send order, next wake-up time, queue depth and state changes
+    static final String QUERY_DUE_SMS =
+            "SELECT message_id, phone_number, body, attempts, created_at FROM " + TABLE_SMS_OUTBOX +
+                    " WHERE status = " + SMS_PENDING + " AND next_attempt_at <= ? ORDER BY next_attempt_at, message_id LIMIT ?";
+
+    static final String QUERY_NEXT_SMS_ATTEMPT =
+            "SELECT MIN(next_attempt_at) FROM " + TABLE_SMS_OUTBOX + " WHERE status = " + SMS_PENDING;
+
+    static final String QUERY_PENDING_SMS_COUNT =
+            "SELECT COUNT(*) FROM " + TABLE_SMS_OUTBOX + " WHERE status = " + SMS_PENDING;
+
+    static final String SQL_INSERT_SMS =
+            "INSERT INTO " + TABLE_SMS_OUTBOX + " (phone_number, body, next_attempt_at, created_at) VALUES (?, ?, ?, ?)";
+
+    static final String SQL_DELETE_SMS =
+            "DELETE FROM " + TABLE_SMS_OUTBOX + " WHERE message_id = ?";
+
+    static final String SQL_LEASE_SMS =
+            "UPDATE " + TABLE_SMS_OUTBOX + " SET next_attempt_at = ? WHERE message_id = ?";
+
+    static final String SQL_RESCHEDULE_SMS =
+            "UPDATE " + TABLE_SMS_OUTBOX + " SET attempts = ?, next_attempt_at = ?, last_error = ? WHERE message_id = ?";
+
+    static final String SQL_FAIL_SMS =
+            "UPDATE " + TABLE_SMS_OUTBOX + " SET status = " + SMS_FAILED + ", attempts = ?, last_error = ? WHERE message_id = ?";
+
+    // Alert cooldowns: last alert of an item, record an alert, drop expired ones
+    static final String QUERY_LAST_ALERT =
+            "SELECT last_alert_at FROM " + TABLE_ALERT_COOLDOWNS + " WHERE item_id = ?";
+
+    static final String SQL_RECORD_ALERT =
+            "INSERT INTO " + TABLE_ALERT_COOLDOWNS + " (item_id, last_alert_at) VALUES (?, ?) " +
+                    "ON CONFLICT(item_id) DO UPDATE SET last_alert_at = excluded.last_alert_at";
+
+    static final String SQL_PRUNE_ALERT_COOLDOWNS =
+            "DELETE FROM " + TABLE_ALERT_COOLDOWNS + " WHERE last_alert_at < ?";
+
+    // Recipients: everyone subscribed to an item or to one of two stock levels, the directory,
+    // and changes to recipients and subscriptions
+    static final String QUERY_ALERT_RECIPIENTS =
+            "SELECT phone_number FROM " + TABLE_RECIPIENTS + " WHERE recipient_id IN (" +
+                    "SELECT recipient_id FROM " + TABLE_RECIPIENT_SUBSCRIPTIONS +
+                    " WHERE kind = " + SUBSCRIPTION_ITEM + " AND target = ? UNION " +
+                    "SELECT recipient_id FROM " + TABLE_RECIPIENT_SUBSCRIPTIONS +
+                    " WHERE kind = " + SUBSCRIPTION_STOCK_LEVEL + " AND target IN (?, ?))";
+
+    static final String QUERY_RECIPIENTS =
+            "SELECT recipient_id, name, phone_number FROM " + TABLE_RECIPIENTS + " ORDER BY phone_number";
+
+    static final String QUERY_RECIPIENT_ID =
+            "SELECT recipient_id FROM " + TABLE_RECIPIENTS + " WHERE phone_number = ?";
+
+    static final String SQL_UPSERT_RECIPIENT =
+            "INSERT INTO " + TABLE_RECIPIENTS + " (name, phone_number) VALUES (?, ?) " +
+                    "ON CONFLICT(phone_number) DO UPDATE SET name = excluded.name";
+
+    static final String SQL_DELETE_RECIPIENT =
+            "DELETE FROM " + TABLE_RECIPIENTS + " WHERE recipient_id = ?";
+
+    static final String SQL_DELETE_RECIPIENT_SUBSCRIPTIONS =
+            "DELETE FROM " + TABLE_RECIPIENT_SUBSCRIPTIONS + " WHERE recipient_id = ?";
+
+    static final String SQL_SUBSCRIBE =
+            "INSERT OR IGNORE INTO " + TABLE_RECIPIENT_SUBSCRIPTIONS + " (kind, target, recipient_id) VALUES (?, ?, ?)";
+
+    static final String SQL_UNSUBSCRIBE =
+            "DELETE FROM " + TABLE_RECIPIENT_SUBSCRIPTIONS + " WHERE kind = ? AND target = ? AND recipient_id = ?";
+
+    private final Map<String, SQLiteStatement> statementCache = new HashMap<>();
+    private SQLiteDatabase statementDatabase;
+
+    /**
+     * Maps inventory rows to InventoryItem objects. Column indices are resolved
+     * once per query instead of once per row.
+     */
+    private static final class InventoryItemMapper {
+
+        private final int idIndex;
+        private final int nameIndex;
+        private final int weightIndex;
+        private final int quantityIndex;
+        private final int notesIndex;
+        private final int lastUpdatedIndex;
+
+        InventoryItemMapper(Cursor cursor) {
+            idIndex = cursor.getColumnIndexOrThrow(COLUMN_ITEM_ID);
+            nameIndex = cursor.getColumnIndexOrThrow(COLUMN_ITEM_NAME);
+            weightIndex = cursor.getColumnIndexOrThrow(COLUMN_ITEM_WEIGHT);
+            quantityIndex = cursor.getColumnIndexOrThrow(COLUMN_ITEM_QUANTITY);
+            notesIndex = cursor.getColumnIndexOrThrow(COLUMN_ITEM_NOTES);
+            lastUpdatedIndex = cursor.getColumnIndexOrThrow(COLUMN_LAST_UPDATED);
+        }
+
+        InventoryItem map(Cursor cursor) {
+            // Setters normalize NULL text columns to empty strings
+            InventoryItem item = new InventoryItem();
+            item.setId(cursor.getInt(idIndex));
+            item.setName(cursor.getString(nameIndex));
+            item.setWeight(cursor.getDouble(weightIndex));
+            item.setQuantity(cursor.getInt(quantityIndex));
+            item.setNotes(cursor.getString(notesIndex));
+            item.setLastUpdated(cursor.getString(lastUpdatedIndex));
+            return item;
         }
     }
 
-    // Get all inventory items
-    public List<InventoryItem> getAllInventoryItems() {
+    // Run an inventory query and map every row
+    private List<InventoryItem> queryInventoryItems(String query, String[] args) {
         List<InventoryItem> items = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
+        Cursor cursor = db.rawQuery(query, args);
         try {
-            String query = "SELECT * FROM " + TABLE_INVENTORY + " ORDER BY " + COLUMN_ITEM_NAME;
-            Cursor cursor = db.rawQuery(query, null);
-
             if (cursor.moveToFirst()) {
+                InventoryItemMapper mapper = new InventoryItemMapper(cursor);
                 do {
-                    InventoryItem item = new InventoryItem();
-                    item.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ITEM_ID)));
-                    item.setName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ITEM_NAME)));
-                    item.setWeight(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_ITEM_WEIGHT)));
-                    item.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ITEM_QUANTITY)));
-                    item.setNotes(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ITEM_NOTES)));
-                    item.setLastUpdated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LAST_UPDATED)));
-
-                    items.add(item);
+                    items.add(mapper.map(cursor));
                 } while (cursor.moveToNext());
             }
-
+        } finally {
             cursor.close();
-            Log.d(TAG, "Retrieved " + items.size() + " inventory items");
+        }
+
+        return items;
+    }
+
+    // Get (or compile) a statement bound to the current connection
+    private SQLiteStatement getCachedStatement(SQLiteDatabase db, String sql) {
+        synchronized (statementCache) {
+            if (statementDatabase != db) {
+                // Connection was reopened - statements from the old one are unusable
+                closeCachedStatements();
+                statementDatabase = db;
+            }
+
+            SQLiteStatement statement = statementCache.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statementCache.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    private void closeCachedStatements() {
+        synchronized (statementCache) {
+            for (SQLiteStatement statement : statementCache.values()) {
+                // Callers bind and execute under the statement's lock - let one in use finish
+                synchronized (statement) {
+                    statement.close();
+                }
+            }
+            statementCache.clear();
+            statementDatabase = null;
+        }
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    // ================== INVENTORY OPERATIONS ==================
+
+    // Add new inventory item
+    public boolean addInventoryItem(String name, double weight, int quantity, String notes) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            Log.d(TAG, "Adding inventory item: " + name + ", Weight: " + weight + ", Quantity: " + quantity + ", Notes: " + notes);
 
+            SQLiteStatement statement = getCachedStatement(db, SQL_INSERT_ITEM);
+            long result;
+
+            synchronized (statement) {
+                bindNullableString(statement, 1, name);
+                statement.bindDouble(2, weight);
+                statement.bindLong(3, quantity);
+                bindNullableString(statement, 4, notes);
+                result = statement.executeInsert();
+                statement.clearBindings();
+            }
+
+            if (result != -1) {
+                Log.d(TAG, "Inventory item added successfully: " + name + " with ID: " + result);
+                invalidationTracker.notifyChanged(TABLE_INVENTORY, Collections.singletonList((int) result));
+                return true;
+            } else {
+                Log.e(TAG, "Failed to add inventory item: " + name);
+                return false;
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Error getting inventory items: " + e.getMessage(), e);
-        } finally {
-            db.close();
+            Log.e(TAG, "Error adding inventory item: " + e.getMessage(), e);
+            return false;
         }
+    }
 
-        return items;
+    /**
+     * Insert many items in a single transaction using one compiled statement.
+     * Either every item is inserted or none is (the transaction is rolled back
+     * on the first invalid item or failed insert).
+     * @param items items to insert; their IDs are set on success
+     * @return generated IDs in iteration order, or an empty list if nothing was inserted
+     */
+    public List<Long> addInventoryItems(Collection<InventoryItem> items) {
+        List<Long> ids = new ArrayList<>(items.size());
+        if (items.isEmpty()) {
+            return ids;
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        long startTime = System.nanoTime();
+
+        try {
+            SQLiteStatement statement = getCachedStatement(db, SQL_INSERT_ITEM);
+
+            synchronized (statement) {
+                db.beginTransactionNonExclusive();
+                try {
+                    for (InventoryItem item : items) {
+                        if (!item.isValid()) {
+                            Log.e(TAG, "Bulk insert aborted, invalid item: " + item);
+                            return new ArrayList<>();
+                        }
+
+                        bindNullableString(statement, 1, item.getName());
+                        statement.bindDouble(2, item.getWeight());
+                        statement.bindLong(3, item.getQuantity());
+                        bindNullableString(statement, 4, item.getNotes());
+
+                        long id = statement.executeInsert();
+                        if (id == -1) {
+                            Log.e(TAG, "Bulk insert aborted, failed to insert: " + item.getName());
+                            return new ArrayList<>();
+                        }
+                        ids.add(id);
+                    }
+
+                    db.setTransactionSuccessful();
+                } finally {
+                    statement.clearBindings();
+                    db.endTransaction();
+                }
+            }
+
+            // Only hand out IDs once the transaction has committed
+            List<Integer> itemIds = new ArrayList<>(ids.size());
+            int index = 0;
+            for (InventoryItem item : items) {
+                item.setId(ids.get(index++).intValue());
+                itemIds.add(item.getId());
+            }
+            invalidationTracker.notifyChanged(TABLE_INVENTORY, itemIds);
+
+            Log.d(TAG, "Bulk inserted " + ids.size() + " inventory items in " +
+                    (System.nanoTime() - startTime) / 1_000_000 + " ms");
+            return ids;
+        } catch (Exception e) {
+            Log.e(TAG, "Error bulk inserting inventory items: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    // Get all inventory items
+    public List<InventoryItem> getAllInventoryItems() {
+        try {
+            List<InventoryItem> items = queryInventoryItems(QUERY_ALL_ITEMS, null);
+            Log.d(TAG, "Retrieved " + items.size() + " inventory items");
+            return items;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting inventory items: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
     }
 
     // Update item quantity
@@ -318,16 +1629,19 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
 
         try {
-            ContentValues values = new ContentValues();
-            values.put(COLUMN_ITEM_QUANTITY, newQuantity);
-            values.put(COLUMN_LAST_UPDATED, "datetime('now')");
-
-            int rowsAffected = db.update(TABLE_INVENTORY, values,
-                    COLUMN_ITEM_ID + " = ?",
-                    new String[]{String.valueOf(itemId)});
+            SQLiteStatement statement = getCachedStatement(db, SQL_UPDATE_QUANTITY);
+            int rowsAffected;
+
+            synchronized (statement) {
+                statement.bindLong(1, newQuantity);
+                statement.bindLong(2, itemId);
+                rowsAffected = statement.executeUpdateDelete();
+                statement.clearBindings();
+            }
 
             if (rowsAffected > 0) {
                 Log.d(TAG, "Item quantity updated - ID: " + itemId + ", New Quantity: " + newQuantity);
+                invalidationTracker.notifyChanged(TABLE_INVENTORY, Collections.singletonList(itemId));
                 return true;
             } else {
                 Log.e(TAG, "Failed to update item quantity - ID: " + itemId);
@@ -336,8 +1650,709 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e(TAG, "Error updating item quantity: " + e.getMessage(), e);
             return false;
+        }
+    }
+
+    /**
+     * Atomically add a delta to an item's quantity (clamped at zero) and stamp last_updated
+     * @param itemId item to change
+     * @param delta amount to add (negative to remove stock)
+     * @return the new quantity, or -1 if the item does not exist or the update failed
+     */
+    public int adjustQuantity(int itemId, int delta) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement adjust = getCachedStatement(db, SQL_ADJUST_QUANTITY);
+            SQLiteStatement select = getCachedStatement(db, SQL_SELECT_QUANTITY);
+            int newQuantity = -1;
+
+            db.beginTransactionNonExclusive();
+            try {
+                int rowsAffected;
+                synchronized (adjust) {
+                    adjust.bindLong(1, delta);
+                    adjust.bindLong(2, itemId);
+                    rowsAffected = adjust.executeUpdateDelete();
+                    adjust.clearBindings();
+                }
+
+                if (rowsAffected > 0) {
+                    // Same transaction, so no other write can land in between
+                    synchronized (select) {
+                        select.bindLong(1, itemId);
+                        newQuantity = (int) select.simpleQueryForLong();
+                        select.clearBindings();
+                    }
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            if (newQuantity >= 0) {
+                Log.d(TAG, "Item quantity adjusted - ID: " + itemId + ", Delta: " + delta + ", New Quantity: " + newQuantity);
+                invalidationTracker.notifyChanged(TABLE_INVENTORY, Collections.singletonList(itemId));
+            } else {
+                Log.e(TAG, "Failed to adjust item quantity - ID: " + itemId);
+            }
+            return newQuantity;
+        } catch (Exception e) {
+            Log.e(TAG, "Error adjusting item quantity: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Apply a batch of quantity deltas (clamped at zero like {@link #adjustQuantity(int, int)})
+     * in one transaction, together with the journal position they cover
+     * @param deltas summed delta per item ID
+     * @param journalSeq last QuantityWriteBuffer journal entry included in the batch
+     * @return true if the whole batch was committed
+     */
+    public boolean applyQuantityDeltas(Map<Integer, Integer> deltas, long journalSeq) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement adjust = getCachedStatement(db, SQL_ADJUST_QUANTITY);
+            SQLiteStatement putMetadata = getCachedStatement(db, SQL_PUT_METADATA);
+
+            db.beginTransactionNonExclusive();
+            try {
+                // A batch at or below the stored position is already in the database
+                // (e.g. replayed from the journal); applying it again would count it twice
+                long appliedSeq = getAppliedJournalSeq(db);
+                if (journalSeq <= appliedSeq) {
+                    Log.w(TAG, "Skipped quantity deltas already applied (journal seq " + journalSeq +
+                            ", stored " + appliedSeq + ")");
+                    db.setTransactionSuccessful();
+                    return true;
+                }
+
+                synchronized (adjust) {
+                    for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+                        if (entry.getValue() == 0) {
+                            continue;
+                        }
+                        adjust.bindLong(1, entry.getValue());
+                        adjust.bindLong(2, entry.getKey());
+                        adjust.executeUpdateDelete(); // Items deleted in the meantime simply match nothing
+                    }
+                    adjust.clearBindings();
+                }
+
+                // Committed with the quantities, so a replay never applies a delta twice
+                synchronized (putMetadata) {
+                    putMetadata.bindString(1, METADATA_QUANTITY_JOURNAL_SEQ);
+                    putMetadata.bindString(2, String.valueOf(journalSeq));
+                    putMetadata.executeInsert();
+                    putMetadata.clearBindings();
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            Log.d(TAG, "Applied quantity deltas for " + deltas.size() + " items (journal seq " + journalSeq + ")");
+            if (!deltas.isEmpty()) {
+                invalidationTracker.notifyChanged(TABLE_INVENTORY, deltas.keySet());
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying quantity deltas: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Journal position stored by applyQuantityDeltas, or -1 if there is none yet
+    private long getAppliedJournalSeq(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery(QUERY_METADATA, new String[]{METADATA_QUANTITY_JOURNAL_SEQ});
+        try {
+            return cursor.moveToFirst() ? Long.parseLong(cursor.getString(0)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
         } finally {
-            db.close();
+            cursor.close();
+        }
+    }
+
+    /**
+     * Read a value from the app metadata table
+     * @param key metadata key
+     * @return stored value, or null if not set
+     */
+    String getMetadata(String key) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_METADATA, new String[]{key});
+            String value = cursor.moveToFirst() ? cursor.getString(0) : null;
+            cursor.close();
+            return value;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading metadata " + key + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // ================== STOCK LEDGER ==================
+
+    // Movements folded per compaction transaction, so writers are never held up for long
+    private static final int LEDGER_COMPACTION_BATCH = 10_000;
+
+    // Two compactions folding the same range would count it twice
+    private final Object ledgerCompactionLock = new Object();
+
+    /**
+     * Set the user recorded on stock movements from now on
+     * @param username signed-in user, or null
+     */
+    public void setActiveUser(String username) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement putMetadata = getCachedStatement(db, SQL_PUT_METADATA);
+            synchronized (putMetadata) {
+                putMetadata.bindString(1, METADATA_ACTIVE_USER);
+                bindNullableString(putMetadata, 2, username);
+                putMetadata.executeInsert();
+                putMetadata.clearBindings();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error setting active user: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Quantity derived from the ledger: snapshot plus the movements after it.
+     * Always equal to the item's item_quantity; used to audit the ledger.
+     * @param itemId item ID
+     * @return derived quantity (0 for unknown items), or -1 on error
+     */
+    public int getLedgerQuantity(int itemId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            String id = String.valueOf(itemId);
+            Cursor cursor = db.rawQuery(QUERY_LEDGER_QUANTITY, new String[]{id, id});
+            int quantity = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            cursor.close();
+            return quantity;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading ledger quantity: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Recent stock movements of one item that have not been compacted yet
+     * @param itemId item ID
+     * @param limit maximum number of movements
+     * @return movements, newest first
+     */
+    public List<StockMovement> getStockMovements(int itemId, int limit) {
+        List<StockMovement> movements = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_STOCK_MOVEMENTS,
+                    new String[]{String.valueOf(itemId), String.valueOf(limit)});
+            while (cursor.moveToNext()) {
+                movements.add(new StockMovement(cursor.getLong(0), cursor.getInt(1), cursor.getInt(2),
+                        cursor.isNull(3) ? null : cursor.getString(3), cursor.getLong(4)));
+            }
+            cursor.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting stock movements: " + e.getMessage(), e);
+        }
+        return movements;
+    }
+
+    /**
+     * Fold movements older than the given age into the per-item snapshots and delete them.
+     * Runs in batches of short transactions; meant for a background thread.
+     * @param minAgeSeconds only movements at least this old are compacted (0 for all)
+     * @return number of movements compacted, or -1 on error
+     */
+    public int compactStockLedger(long minAgeSeconds) {
+        synchronized (ledgerCompactionLock) {
+            SQLiteDatabase db = this.getWritableDatabase();
+            String cutoffTime = String.valueOf(System.currentTimeMillis() / 1000 - minAgeSeconds);
+            int compacted = 0;
+
+            try {
+                String stored = getMetadata(METADATA_LEDGER_COMPACTED_THROUGH);
+                long compactedThrough = stored != null ? Long.parseLong(stored) : 0;
+
+                while (true) {
+                    // New movements always get higher IDs, so the batch range can be picked
+                    // before the transaction starts
+                    Cursor cursor = db.rawQuery(QUERY_COMPACTION_CUTOFF, new String[]{String.valueOf(compactedThrough),
+                            cutoffTime, String.valueOf(LEDGER_COMPACTION_BATCH)});
+                    long batchEnd = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : compactedThrough;
+                    cursor.close();
+                    if (batchEnd <= compactedThrough) {
+                        break;
+                    }
+
+                    db.beginTransactionNonExclusive();
+                    try (SQLiteStatement delete = db.compileStatement(SQL_DELETE_MOVEMENTS)) {
+                        Object[] range = {compactedThrough, batchEnd};
+                        db.execSQL(SQL_FOLD_MOVEMENTS, new Object[]{batchEnd, compactedThrough, batchEnd});
+                        db.execSQL(SQL_DROP_CLOSED_SNAPSHOTS, range);
+
+                        delete.bindLong(1, compactedThrough);
+                        delete.bindLong(2, batchEnd);
+                        int deleted = delete.executeUpdateDelete();
+
+                        db.execSQL(SQL_PUT_METADATA, new Object[]{METADATA_LEDGER_COMPACTED_THROUGH, String.valueOf(batchEnd)});
+                        db.setTransactionSuccessful();
+                        compacted += deleted;
+                    } finally {
+                        db.endTransaction();
+                    }
+                    compactedThrough = batchEnd;
+                }
+
+                Log.d(TAG, "Stock ledger compacted: " + compacted + " movements folded into snapshots");
+                return compacted;
+            } catch (Exception e) {
+                Log.e(TAG, "Error compacting stock ledger: " + e.getMessage(), e);
+                return -1;
+            }
+        }
+    }
+
+    // ================== QUANTITY HISTORY ==================
+
+    // Default chart width in points
+    public static final int DEFAULT_SERIES_POINTS = 500;
+
+    /**
+     * Stock level of one item over a time range, at the finest resolution that is still
+     * retained for the range start and fits in {@code maxPoints} points
+     * @param itemId item ID
+     * @param fromSeconds range start, Unix seconds
+     * @param toSeconds range end, Unix seconds (inclusive)
+     * @param maxPoints maximum number of points
+     * @return evenly spaced series, or {@link QuantitySeries#EMPTY} on error
+     */
+    public QuantitySeries getQuantitySeries(int itemId, long fromSeconds, long toSeconds, int maxPoints) {
+        long now = System.currentTimeMillis() / 1000;
+        QuantitySeries.Resolution resolution = QuantitySeries.Resolution.forRange(fromSeconds, toSeconds, now, maxPoints);
+        return getQuantitySeries(itemId, fromSeconds, toSeconds, resolution);
+    }
+
+    /**
+     * Stock level of one item over a time range at a fixed resolution
+     * @return evenly spaced series, or {@link QuantitySeries#EMPTY} on error
+     */
+    public QuantitySeries getQuantitySeries(int itemId, long fromSeconds, long toSeconds,
+                                            QuantitySeries.Resolution resolution) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long from = resolution.bucketStart(fromSeconds);
+        String id = String.valueOf(itemId);
+
+        try {
+            List<QuantitySeries.Point> buckets = new ArrayList<>();
+            Cursor cursor = db.rawQuery(QUERY_QUANTITY_ROLLUPS, new String[]{
+                    String.valueOf(resolution.getSeconds()), id, String.valueOf(from), String.valueOf(toSeconds)});
+            while (cursor.moveToNext()) {
+                buckets.add(new QuantitySeries.Point(cursor.getLong(0), cursor.getInt(1), cursor.getInt(2),
+                        cursor.getInt(3), cursor.getInt(4)));
+            }
+            cursor.close();
+
+            // Level going into the range; day buckets are never pruned, so fall back to those
+            Integer initial = readQuantityBefore(db, resolution, id, from);
+            if (initial == null && resolution != QuantitySeries.Resolution.DAY) {
+                initial = readQuantityBefore(db, QuantitySeries.Resolution.DAY, id,
+                        QuantitySeries.Resolution.DAY.bucketStart(from));
+            }
+
+            return QuantitySeries.fill(resolution, from, toSeconds, initial, buckets);
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting quantity series: " + e.getMessage(), e);
+            return QuantitySeries.EMPTY;
+        }
+    }
+
+    private Integer readQuantityBefore(SQLiteDatabase db, QuantitySeries.Resolution resolution, String itemId, long before) {
+        Cursor cursor = db.rawQuery(QUERY_QUANTITY_BEFORE,
+                new String[]{String.valueOf(resolution.getSeconds()), itemId, String.valueOf(before)});
+        Integer quantity = cursor.moveToFirst() ? cursor.getInt(0) : null;
+        cursor.close();
+        return quantity;
+    }
+
+    /**
+     * Delete minute and hour buckets past their retention period. Day buckets are kept,
+     * so older ranges are still served, just at a coarser resolution.
+     * @return number of buckets deleted, or -1 on error
+     */
+    public int pruneQuantityRollups() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        long now = System.currentTimeMillis() / 1000;
+        int deleted = 0;
+
+        try (SQLiteStatement prune = db.compileStatement(SQL_PRUNE_QUANTITY_ROLLUPS)) {
+            for (QuantitySeries.Resolution resolution : QuantitySeries.Resolution.values()) {
+                if (resolution.getRetentionSeconds() == 0) {
+                    continue;
+                }
+                prune.bindLong(1, resolution.getSeconds());
+                prune.bindLong(2, now - resolution.getRetentionSeconds());
+                deleted += prune.executeUpdateDelete();
+            }
+
+            Log.d(TAG, "Pruned " + deleted + " expired quantity rollups");
+            return deleted;
+        } catch (Exception e) {
+            Log.e(TAG, "Error pruning quantity rollups: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    // ================== SMS OUTBOX ==================
+
+    /**
+     * Queue a message; SmsDispatcher sends it in the background
+     * @param phoneNumber recipient
+     * @param body message text
+     * @return message ID, or -1 on error
+     */
+    public long enqueueSms(String phoneNumber, String body) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement insert = getCachedStatement(db, SQL_INSERT_SMS);
+            long now = System.currentTimeMillis();
+            synchronized (insert) {
+                insert.bindString(1, phoneNumber);
+                insert.bindString(2, body);
+                insert.bindLong(3, now);
+                insert.bindLong(4, now);
+                long messageId = insert.executeInsert();
+                insert.clearBindings();
+                return messageId;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error queueing SMS: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Pending messages whose next attempt is due
+     * @param nowMillis current time, Unix millis
+     * @param limit maximum number of messages
+     * @return messages in send order
+     */
+    public List<OutboxMessage> getDueSms(long nowMillis, int limit) {
+        List<OutboxMessage> messages = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_DUE_SMS, new String[]{String.valueOf(nowMillis), String.valueOf(limit)});
+            while (cursor.moveToNext()) {
+                messages.add(new OutboxMessage(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getInt(3), cursor.getLong(4)));
+            }
+            cursor.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting due SMS: " + e.getMessage(), e);
+        }
+        return messages;
+    }
+
+    /**
+     * Earliest next attempt of any pending message
+     * @return Unix millis, or -1 if nothing is pending (or on error)
+     */
+    public long getNextSmsAttemptTime() {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_NEXT_SMS_ATTEMPT, null);
+            long next = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : -1;
+            cursor.close();
+            return next;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting next SMS attempt: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Messages waiting to be sent, including ones waiting for a retry
+     * @return count, or -1 on error
+     */
+    public int getPendingSmsCount() {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_PENDING_SMS_COUNT, null);
+            int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            cursor.close();
+            return count;
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting pending SMS: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    // Remove a message the SMS service reported as sent
+    public boolean deleteSms(long messageId) {
+        return updateSms(SQL_DELETE_SMS, messageId);
+    }
+
+    // Keep a message that is being sent from coming due again until the given Unix millis
+    public boolean leaseSms(long messageId, long untilMillis) {
+        return updateSms(SQL_LEASE_SMS, untilMillis, messageId);
+    }
+
+    /**
+     * Record a failed attempt and when to try again
+     * @param messageId message ID
+     * @param attempts failed attempts so far
+     * @param nextAttemptAt Unix millis
+     * @param error reason of the last failure, may be null
+     * @return true if the message was updated
+     */
+    public boolean rescheduleSms(long messageId, int attempts, long nextAttemptAt, String error) {
+        return updateSms(SQL_RESCHEDULE_SMS, attempts, nextAttemptAt, error, messageId);
+    }
+
+    // Give up on a message; it stays in the outbox as failed
+    public boolean failSms(long messageId, int attempts, String error) {
+        return updateSms(SQL_FAIL_SMS, attempts, error, messageId);
+    }
+
+    private boolean updateSms(String sql, Object... args) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement statement = getCachedStatement(db, sql);
+            synchronized (statement) {
+                for (int i = 0; i < args.length; i++) {
+                    Object arg = args[i];
+                    if (arg == null) {
+                        statement.bindNull(i + 1);
+                    } else if (arg instanceof String) {
+                        statement.bindString(i + 1, (String) arg);
+                    } else {
+                        statement.bindLong(i + 1, ((Number) arg).longValue());
+                    }
+                }
+                int rows = statement.executeUpdateDelete();
+                statement.clearBindings();
+                return rows > 0;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating SMS outbox: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // ================== ALERT COOLDOWNS ==================
+
+    /**
+     * Time of the last stock alert for an item
+     * @param itemId item ID
+     * @return Unix millis, or -1 if the item has no alert on record (or on error)
+     */
+    public long getLastAlertTime(int itemId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_LAST_ALERT, new String[]{String.valueOf(itemId)});
+            long lastAlert = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+            cursor.close();
+            return lastAlert;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading alert cooldown: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Record that a stock alert was raised for an item
+     * @param itemId item ID
+     * @param alertTime Unix millis
+     * @return true if recorded
+     */
+    public boolean recordAlert(int itemId, long alertTime) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement record = getCachedStatement(db, SQL_RECORD_ALERT);
+            synchronized (record) {
+                record.bindLong(1, itemId);
+                record.bindLong(2, alertTime);
+                record.executeInsert();
+                record.clearBindings();
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error recording alert: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Delete alert records older than the cooldown; they no longer suppress anything
+     * @param before Unix millis
+     * @return number of records deleted, or -1 on error
+     */
+    public int pruneAlertCooldowns(long before) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try (SQLiteStatement prune = db.compileStatement(SQL_PRUNE_ALERT_COOLDOWNS)) {
+            prune.bindLong(1, before);
+            int deleted = prune.executeUpdateDelete();
+            Log.d(TAG, "Pruned " + deleted + " expired alert cooldowns");
+            return deleted;
+        } catch (Exception e) {
+            Log.e(TAG, "Error pruning alert cooldowns: " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    // ================== RECIPIENTS ==================
+
+    /**
+     * Add a recipient, or rename the one that already has this number
+     * @param name display name, may be null
+     * @param phoneNumber number in any common format; stored normalized
+     * @return recipient ID, or -1 if the number is invalid (or on error)
+     */
+    public long addRecipient(String name, String phoneNumber) {
+        String normalized = PhoneNumbers.normalize(phoneNumber);
+        if (normalized == null) {
+            Log.w(TAG, "Invalid recipient phone number: " + phoneNumber);
+            return -1;
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL(SQL_UPSERT_RECIPIENT, new Object[]{name, normalized});
+            long recipientId = -1;
+            Cursor cursor = db.rawQuery(QUERY_RECIPIENT_ID, new String[]{normalized});
+            if (cursor.moveToFirst()) {
+                recipientId = cursor.getLong(0);
+            }
+            cursor.close();
+            db.setTransactionSuccessful();
+            return recipientId;
+        } catch (Exception e) {
+            Log.e(TAG, "Error adding recipient: " + e.getMessage(), e);
+            return -1;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Remove a recipient and all of its subscriptions
+    public boolean deleteRecipient(long recipientId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL(SQL_DELETE_RECIPIENT_SUBSCRIPTIONS, new Object[]{recipientId});
+            try (SQLiteStatement delete = db.compileStatement(SQL_DELETE_RECIPIENT)) {
+                delete.bindLong(1, recipientId);
+                boolean deleted = delete.executeUpdateDelete() > 0;
+                db.setTransactionSuccessful();
+                return deleted;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error deleting recipient: " + e.getMessage(), e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * All recipients, by phone number
+     * @return recipients, empty on error
+     */
+    public List<Recipient> getRecipients() {
+        List<Recipient> recipients = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        try {
+            Cursor cursor = db.rawQuery(QUERY_RECIPIENTS, null);
+            while (cursor.moveToNext()) {
+                recipients.add(new Recipient(cursor.getLong(0), cursor.getString(1), cursor.getString(2)));
+            }
+            cursor.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting recipients: " + e.getMessage(), e);
+        }
+        return recipients;
+    }
+
+    public boolean subscribeToItem(long recipientId, int itemId) {
+        return updateSubscription(SQL_SUBSCRIBE, SUBSCRIPTION_ITEM, itemId, recipientId);
+    }
+
+    public boolean unsubscribeFromItem(long recipientId, int itemId) {
+        return updateSubscription(SQL_UNSUBSCRIBE, SUBSCRIPTION_ITEM, itemId, recipientId);
+    }
+
+    public boolean subscribeToStockLevel(long recipientId, Recipient.StockLevel level) {
+        return updateSubscription(SQL_SUBSCRIBE, SUBSCRIPTION_STOCK_LEVEL, level.getCode(), recipientId);
+    }
+
+    public boolean unsubscribeFromStockLevel(long recipientId, Recipient.StockLevel level) {
+        return updateSubscription(SQL_UNSUBSCRIBE, SUBSCRIPTION_STOCK_LEVEL, level.getCode(), recipientId);
+    }
+
+    /**
+     * Phone numbers to alert about an item: subscribers of the item and of every stock level
+     * it has reached. Reads only the matching subscriptions.
+     * @param itemId item ID
+     * @param level level the item reached
+     * @return normalized phone numbers, each once; empty if nobody is subscribed (or on error)
+     */
+    public List<String> getAlertRecipients(int itemId, Recipient.StockLevel level) {
+        List<String> phoneNumbers = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        // Out of stock is also low stock
+        Recipient.StockLevel other = level == Recipient.StockLevel.OUT_OF_STOCK ? Recipient.StockLevel.LOW_STOCK : level;
+        try {
+            Cursor cursor = db.rawQuery(QUERY_ALERT_RECIPIENTS, new String[]{String.valueOf(itemId),
+                    String.valueOf(level.getCode()), String.valueOf(other.getCode())});
+            while (cursor.moveToNext()) {
+                phoneNumbers.add(cursor.getString(0));
+            }
+            cursor.close();
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting alert recipients: " + e.getMessage(), e);
+        }
+        return phoneNumbers;
+    }
+
+    private boolean updateSubscription(String sql, int kind, long target, long recipientId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        try {
+            SQLiteStatement statement = getCachedStatement(db, sql);
+            synchronized (statement) {
+                statement.bindLong(1, kind);
+                statement.bindLong(2, target);
+                statement.bindLong(3, recipientId);
+                int rows = statement.executeUpdateDelete();
+                statement.clearBindings();
+                return rows > 0;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating subscription: " + e.getMessage(), e);
+            return false;
         }
     }
 
@@ -346,12 +2361,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
 
         try {
-            int rowsAffected = db.delete(TABLE_INVENTORY,
-                    COLUMN_ITEM_ID + " = ?",
-                    new String[]{String.valueOf(itemId)});
+            SQLiteStatement statement = getCachedStatement(db, SQL_DELETE_ITEM);
+            int rowsAffected;
+
+            synchronized (statement) {
+                statement.bindLong(1, itemId);
+                rowsAffected = statement.executeUpdateDelete();
+                statement.clearBindings();
+            }
 
             if (rowsAffected > 0) {
                 Log.d(TAG, "Inventory item deleted - ID: " + itemId);
+                invalidationTracker.notifyChanged(TABLE_INVENTORY, Collections.singletonList(itemId));
                 return true;
             } else {
                 Log.e(TAG, "Failed to delete inventory item - ID: " + itemId);
@@ -360,78 +2381,223 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e(TAG, "Error deleting inventory item: " + e.getMessage(), e);
             return false;
-        } finally {
-            db.close();
         }
     }
 
-    // Get items with zero quantity (for notifications)
-    public List<InventoryItem> getZeroQuantityItems() {
-        List<InventoryItem> zeroItems = new ArrayList<>();
+    /**
+     * Load specific items, e.g. the rows reported by the invalidation tracker
+     * @param itemIds item IDs to load
+     * @return the items that still exist, in no particular order
+     */
+    public List<InventoryItem> getInventoryItemsByIds(Collection<Integer> itemIds) {
+        List<InventoryItem> items = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(itemIds);
+
+        try {
+            // Chunked to stay well below SQLite's bound-parameter limit
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY));
+                String[] args = new String[chunk.size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = String.valueOf(chunk.get(i));
+                }
+                items.addAll(queryInventoryItems(buildItemsByIdsQuery(args.length), args));
+            }
+            return items;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting inventory items by ID: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Open the next chunk of an export. The caller must close the cursor.
+     * @param filter which items to include
+     * @param matchExpression full-text expression from {@link #getMatchExpression}, or null for no search
+     * @param afterId last item ID already exported (0 to start)
+     * @param limit maximum number of rows in the chunk
+     * @return cursor over id, name, weight, quantity, notes, last_updated
+     */
+    Cursor queryExportChunk(InventoryExporter.Filter filter, String matchExpression, long afterId, int limit) {
         SQLiteDatabase db = this.getReadableDatabase();
+        String query = buildExportQuery(filter, matchExpression != null);
+        String[] args = matchExpression != null
+                ? new String[]{matchExpression, String.valueOf(afterId), String.valueOf(limit)}
+                : new String[]{String.valueOf(afterId), String.valueOf(limit)};
+        return db.rawQuery(query, args);
+    }
+
+    // MATCH expression for the active full-text module (empty if the text has no searchable words)
+    String getMatchExpression(String searchQuery) {
+        return buildMatchExpression(searchQuery, fts5Enabled);
+    }
+
+    /**
+     * Inventory-wide counts and totals, read from the trigger-maintained counters row
+     * @return current statistics, or {@link InventoryStats#EMPTY} on error
+     */
+    public InventoryStats getInventoryStats() {
+        return readInventoryStats(QUERY_INVENTORY_STATS);
+    }
+
+    // Full recompute from the inventory table (consistency checks, not for the UI)
+    InventoryStats computeInventoryStats() {
+        return readInventoryStats(QUERY_COMPUTE_INVENTORY_STATS);
+    }
 
+    /**
+     * Rebuild the counters row from the inventory table, e.g. to discard floating-point
+     * drift in total_weight after very many updates
+     */
+    void recomputeInventoryStats() {
         try {
-            String query = "SELECT * FROM " + TABLE_INVENTORY +
-                    " WHERE " + COLUMN_ITEM_QUANTITY + " = 0";
+            this.getWritableDatabase().execSQL(SQL_RECOMPUTE_INVENTORY_STATS);
+        } catch (Exception e) {
+            Log.e(TAG, "Error recomputing inventory stats: " + e.getMessage(), e);
+        }
+    }
 
-            Cursor cursor = db.rawQuery(query, null);
+    // Both stats queries return: skus, units, out of stock, low stock, weight
+    private InventoryStats readInventoryStats(String query) {
+        SQLiteDatabase db = this.getReadableDatabase();
 
+        try {
+            Cursor cursor = db.rawQuery(query, null);
+            InventoryStats stats = InventoryStats.EMPTY;
             if (cursor.moveToFirst()) {
-                do {
-                    InventoryItem item = new InventoryItem();
-                    item.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ITEM_ID)));
-                    item.setName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ITEM_NAME)));
-                    item.setWeight(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_ITEM_WEIGHT)));
-                    item.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ITEM_QUANTITY)));
-                    item.setNotes(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ITEM_NOTES)));
-
-                    zeroItems.add(item);
-                } while (cursor.moveToNext());
+                stats = new InventoryStats(cursor.getInt(0), cursor.getLong(1), cursor.getInt(2),
+                        cursor.getInt(3), cursor.getDouble(4));
             }
-
             cursor.close();
+            return stats;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting inventory stats: " + e.getMessage(), e);
+            return InventoryStats.EMPTY;
+        }
+    }
 
+    // Get items with zero quantity (for notifications)
+    public List<InventoryItem> getZeroQuantityItems() {
+        try {
+            return queryInventoryItems(QUERY_ZERO_QUANTITY_ITEMS, null);
         } catch (Exception e) {
             Log.e(TAG, "Error getting zero quantity items: " + e.getMessage(), e);
-        } finally {
-            db.close();
+            return new ArrayList<>();
         }
+    }
 
-        return zeroItems;
+    // Get items at or below the low stock threshold (including out of stock), lowest first
+    public List<InventoryItem> getLowStockItems() {
+        try {
+            return queryInventoryItems(QUERY_LOW_STOCK_ITEMS, null);
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting low stock items: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
     }
 
-    // Search inventory items by name
-    public List<InventoryItem> searchInventoryItems(String searchQuery) {
-        List<InventoryItem> items = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+    /**
+     * Get the page of items that follows the given key in (name, id) order
+     * @param afterName name of the last item already loaded, or null for the first page
+     * @param afterId ID of the last item already loaded
+     * @param limit maximum number of items to return
+     * @return items sorted by name, then ID
+     */
+    public List<InventoryItem> getInventoryPage(String afterName, int afterId, int limit) {
+        try {
+            if (afterName == null) {
+                return queryInventoryItems(QUERY_FIRST_PAGE, new String[]{String.valueOf(limit)});
+            }
+            return queryInventoryItems(QUERY_PAGE_AFTER,
+                    new String[]{afterName, String.valueOf(afterId), String.valueOf(limit)});
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting inventory page: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
 
+    /**
+     * Get a page of items starting at (and including) the given key, used to
+     * refresh an already loaded range in place
+     */
+    public List<InventoryItem> getInventoryPageFrom(String fromName, int fromId, int limit) {
         try {
-            String query = "SELECT * FROM " + TABLE_INVENTORY +
-                    " WHERE " + COLUMN_ITEM_NAME + " LIKE ? ORDER BY " + COLUMN_ITEM_NAME;
+            return queryInventoryItems(QUERY_PAGE_FROM,
+                    new String[]{fromName, String.valueOf(fromId), String.valueOf(limit)});
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting inventory page: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
 
-            Cursor cursor = db.rawQuery(query, new String[]{"%" + searchQuery + "%"});
+    /**
+     * Get the page of items that precedes the given key, for scrolling back up
+     * @return items sorted by name, then ID (ascending, closest to the key last)
+     */
+    public List<InventoryItem> getInventoryPageBefore(String beforeName, int beforeId, int limit) {
+        try {
+            List<InventoryItem> items = queryInventoryItems(QUERY_PAGE_BEFORE,
+                    new String[]{beforeName, String.valueOf(beforeId), String.valueOf(limit)});
+            Collections.reverse(items);
+            return items;
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting previous inventory page: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
 
-            if (cursor.moveToFirst()) {
-                do {
-                    InventoryItem item = new InventoryItem();
-                    item.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ITEM_ID)));
-                    item.setName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ITEM_NAME)));
-                    item.setWeight(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_ITEM_WEIGHT)));
-                    item.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ITEM_QUANTITY)));
-                    item.setNotes(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_ITEM_NOTES)));
-
-                    items.add(item);
-                } while (cursor.moveToNext());
-            }
+    /**
+     * Search item names and notes using the full-text index. Every word in the query
+     * must match the start of a word in the item (prefix search), best matches first.
+     * @param searchQuery text typed by the user
+     * @return up to 200 matching items
+     */
+    public List<InventoryItem> searchInventoryItems(String searchQuery) {
+        return searchInventoryItems(searchQuery, DEFAULT_SEARCH_LIMIT);
+    }
 
-            cursor.close();
+    /**
+     * Full-text prefix search with relevance ranking
+     * @param searchQuery text typed by the user
+     * @param limit maximum number of results
+     * @return matching items, most relevant first
+     */
+    public List<InventoryItem> searchInventoryItems(String searchQuery, int limit) {
+        try {
+            String matchExpression = buildMatchExpression(searchQuery, fts5Enabled);
+            if (matchExpression.isEmpty()) {
+                return new ArrayList<>();
+            }
 
+            String query = fts5Enabled ? QUERY_SEARCH_ITEMS_FTS5 : QUERY_SEARCH_ITEMS_FTS4;
+            return queryInventoryItems(query, new String[]{matchExpression, String.valueOf(limit)});
         } catch (Exception e) {
             Log.e(TAG, "Error searching inventory items: " + e.getMessage(), e);
-        } finally {
-            db.close();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Turn free text into a MATCH expression: each word becomes a quoted prefix term,
+     * so punctuation and operator keywords (AND, OR, NOT, NEAR) are never interpreted.
+     * Terms are ANDed together.
+     */
+    static String buildMatchExpression(String searchQuery, boolean fts5) {
+        if (searchQuery == null) {
+            return "";
         }
 
-        return items;
+        StringBuilder expression = new StringBuilder();
+        for (String term : searchQuery.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            // fts5 puts the prefix marker after the phrase, fts4 inside it
+            expression.append(fts5 ? "\"" + term + "\"*" : "\"" + term + "*\"");
+        }
+        return expression.toString();
     }
-}
\ No newline at end of file
+}
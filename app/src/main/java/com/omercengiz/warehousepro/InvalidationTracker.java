@@ -0,0 +1,139 @@
+package com.omercengiz.warehousepro;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * InvalidationTracker - per-table change versions for DatabaseHelper
+ * Every committed write bumps the version of the table it touched and records which
+ * rows changed, so screens can skip a reload when nothing happened and otherwise
+ * refresh only the changed rows.
+ */
+public class InvalidationTracker {
+
+    // Changed rows remembered per table; older changes only report "something changed"
+    private static final int MAX_CHANGELOG_SIZE = 512;
+
+    // Row ID recorded when a write could have touched any row
+    private static final int ALL_ROWS = -1;
+
+    /**
+     * Callback for committed writes. Called on the thread that did the write.
+     */
+    public interface Observer {
+        void onInvalidated(String table, long version, Set<Integer> changedIds);
+    }
+
+    private static final class Change {
+        final long version;
+        final int rowId;
+
+        Change(long version, int rowId) {
+            this.version = version;
+            this.rowId = rowId;
+        }
+    }
+
+    private final Map<String, Long> versions = new HashMap<>();
+    private final Map<String, ArrayDeque<Change>> changelogs = new HashMap<>();
+    private final Map<String, Long> trimmedVersions = new HashMap<>(); // Newest version dropped from a changelog
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Current version of a table (0 until the first write in this process)
+     * @param table table name
+     * @return version counter
+     */
+    public synchronized long getVersion(String table) {
+        Long version = versions.get(table);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Rows changed after a version seen earlier
+     * @param table table name
+     * @param sinceVersion version the caller last saw
+     * @return changed row IDs (empty if nothing changed), or null if the changes are no
+     * longer known row by row and the caller has to reload everything
+     */
+    public synchronized Set<Integer> getChangedIds(String table, long sinceVersion) {
+        long current = getVersion(table);
+        Set<Integer> changedIds = new HashSet<>();
+        if (sinceVersion >= current) {
+            return changedIds;
+        }
+
+        Long trimmedVersion = trimmedVersions.get(table);
+        if (trimmedVersion != null && trimmedVersion > sinceVersion) {
+            return null; // Part of the changes was trimmed from the changelog
+        }
+
+        ArrayDeque<Change> changelog = changelogs.get(table);
+        if (changelog == null) {
+            return changedIds;
+        }
+
+        for (Change change : changelog) {
+            if (change.version <= sinceVersion) {
+                continue;
+            }
+            if (change.rowId == ALL_ROWS) {
+                return null;
+            }
+            changedIds.add(change.rowId);
+        }
+        return changedIds;
+    }
+
+    /**
+     * Record a committed write and notify observers
+     * @param table table that was written
+     * @param rowIds changed row IDs, or null if any row may have changed
+     */
+    public void notifyChanged(String table, Collection<Integer> rowIds) {
+        long version;
+        Set<Integer> changedIds = null;
+
+        synchronized (this) {
+            version = getVersion(table) + 1;
+            versions.put(table, version);
+
+            ArrayDeque<Change> changelog = changelogs.get(table);
+            if (changelog == null) {
+                changelog = new ArrayDeque<>();
+                changelogs.put(table, changelog);
+            }
+
+            if (rowIds == null || rowIds.size() > MAX_CHANGELOG_SIZE) {
+                changelog.addLast(new Change(version, ALL_ROWS));
+            } else {
+                changedIds = new HashSet<>(rowIds);
+                for (int rowId : changedIds) {
+                    changelog.addLast(new Change(version, rowId));
+                }
+            }
+
+            while (changelog.size() > MAX_CHANGELOG_SIZE) {
+                trimmedVersions.put(table, changelog.removeFirst().version);
+            }
+        }
+
+        for (Observer observer : observers) {
+            observer.onInvalidated(table, version, changedIds != null ? Collections.unmodifiableSet(changedIds) : null);
+        }
+    }
+}
@@ -3,29 +3,36 @@ package com.omercengiz.warehousepro;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Toast;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import java.util.List;
 
 public class InventoryActivity extends AppCompatActivity implements InventoryAdapter.OnItemActionListener {
 
+    private static final String TAG = "InventoryActivity";
+
     private RecyclerView inventoryRecyclerView;
     private EditText searchBar;
     private LinearLayout emptyState;
     private FloatingActionButton fabAddItem;
 
     private DatabaseHelper databaseHelper;
+    private AsyncDatabase asyncDatabase;
+    private QuantityWriteBuffer quantityWriteBuffer;
     private InventoryAdapter inventoryAdapter;
-    private List<InventoryItem> inventoryItems;
+    private long inventoryVersion = -1; // Inventory table version last shown, -1 before the first load
     private String currentUsername;
     private SharedPreferences preferences;
 
@@ -34,6 +41,9 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
     private static final String KEY_FIRST_LOGIN = "first_login_";
     private static final String KEY_LAST_WELCOME_SHOWN = "last_welcome_shown";
 
+    // Movements younger than this stay in the ledger as individual entries
+    private static final long LEDGER_RETENTION_SECONDS = 30L * 24 * 60 * 60;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -45,8 +55,14 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
         // Initialize preferences
         preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
 
-        // Initialize database helper
-        databaseHelper = new DatabaseHelper(this);
+        // Initialize database helper (change tracking only)
+        databaseHelper = DatabaseHelper.getInstance(this);
+        asyncDatabase = AsyncDatabase.getInstance(this);
+        // Stock movements are recorded under this user
+        asyncDatabase.setActiveUser(currentUsername);
+
+        // Batches +/- taps; also replays taps a crash left unwritten
+        quantityWriteBuffer = QuantityWriteBuffer.getInstance(this);
 
         // Initialize views
         initializeViews();
@@ -78,9 +94,8 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
         // Set layout manager
         inventoryRecyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        // Initialize adapter with empty list
-        inventoryItems = databaseHelper.getAllInventoryItems();
-        inventoryAdapter = new InventoryAdapter(this, inventoryItems, this);
+        // Initialize adapter - items are loaded page by page as the user scrolls
+        inventoryAdapter = new InventoryAdapter(this, this, quantityWriteBuffer);
 
         // Set adapter to RecyclerView
         inventoryRecyclerView.setAdapter(inventoryAdapter);
@@ -93,10 +108,9 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                // Filter inventory items as user types
+                // Filter inventory items as user types (empty state updates once results arrive)
                 if (inventoryAdapter != null) {
                     inventoryAdapter.filter(s.toString());
-                    updateEmptyState();
                 }
             }
 
@@ -120,16 +134,28 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
 
     private void loadInventoryData() {
         try {
-            // Get all inventory items from database
-            inventoryItems = databaseHelper.getAllInventoryItems();
+            if (inventoryAdapter == null) {
+                return;
+            }
 
-            // Update adapter
-            if (inventoryAdapter != null) {
-                inventoryAdapter.updateItems(inventoryItems);
+            InvalidationTracker tracker = databaseHelper.getInvalidationTracker();
+            long currentVersion = tracker.getVersion(DatabaseHelper.TABLE_INVENTORY);
+
+            if (inventoryVersion < 0) {
+                // First load; the empty state is updated in onItemsLoaded
+                inventoryAdapter.reload();
+            } else if (currentVersion != inventoryVersion) {
+                // Refresh only the rows written since the last load, if they are still known
+                Set<Integer> changedIds = tracker.getChangedIds(DatabaseHelper.TABLE_INVENTORY, inventoryVersion);
+                if (changedIds != null) {
+                    inventoryAdapter.refreshItems(changedIds);
+                } else {
+                    inventoryAdapter.reload();
+                }
             }
+            // Otherwise nothing changed since the last load
 
-            // Update empty state
-            updateEmptyState();
+            inventoryVersion = currentVersion;
 
         } catch (Exception e) {
             Toast.makeText(this, "Error loading inventory: " + e.getMessage(), Toast.LENGTH_LONG).show();
@@ -195,6 +221,11 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
         // Removed the "Item deleted successfully" toast since adapter already shows it
     }
 
+    @Override
+    public void onItemsLoaded() {
+        updateEmptyState();
+    }
+
     @Override
     public void onItemClicked(InventoryItem item) {
         // Handle item click - could open edit dialog or detail view
@@ -222,11 +253,24 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
     }
 
     private void triggerLowStockNotification(InventoryItem item) {
-        // Check if we should send SMS notification
-        // This will integrate with SMS functionality
         String message = "⚠️ OUT OF STOCK: " + item.getName();
         Toast.makeText(this, message, Toast.LENGTH_LONG).show();
 
+        // Don't ask again for an item that alerted recently (e.g. tapped -, +, - again)
+        AlertCooldown cooldown = AlertCooldown.getInstance(this);
+        try {
+            TaskScheduler.getInstance().submit(this, TaskScheduler.Pool.IO, () -> cooldown.isCoolingDown(item.getId()),
+                    coolingDown -> {
+                        if (!coolingDown) {
+                            showStockAlertDialog(item);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Stock alert check skipped, IO queue full");
+        }
+    }
+
+    private void showStockAlertDialog(InventoryItem item) {
         // Show SMS confirmation dialog (less intrusive than before)
         android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(this);
         builder.setTitle("Stock Alert")
@@ -249,22 +293,45 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
             // Navigate to SMS permission screen
             Intent intent = new Intent(this, NotificationActivity.class);
             startActivity(intent);
+            smsManager.cleanup();
             return;
         }
 
-        // Send SMS in background to avoid blocking UI
-        AsyncTask.execute(() -> {
-            boolean smsResult = smsManager.sendLowStockAlert(item);
-
-            // Update UI on main thread
-            runOnUiThread(() -> {
-                if (smsResult) {
-                    Toast.makeText(this, "✅ SMS sent for " + item.getName(), Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(this, "❌ SMS failed", Toast.LENGTH_SHORT).show();
+        // Items running out close together share one SMS; nothing is sent right away.
+        // Checking the cooldown reads the database, so it runs in the background.
+        long windowMinutes = Math.max(1, AlertDigester.getInstance(this).getWindowMillis() / 60_000);
+        // The alert is written even if the screen goes away; only the toast belongs to it
+        CompletableFuture<Integer> alert = new CompletableFuture<>();
+        try {
+            TaskScheduler.getInstance().execute(TaskScheduler.Pool.IO, () -> {
+                try {
+                    alert.complete(smsManager.addToAlertDigest(item));
+                } catch (RuntimeException e) {
+                    alert.completeExceptionally(e);
+                } finally {
+                    smsManager.cleanup();
                 }
             });
-        });
+        } catch (RejectedExecutionException e) {
+            smsManager.cleanup();
+            Toast.makeText(this, "❌ SMS failed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        AsyncDatabase.deliverTo(this, alert.thenApplyAsync(result -> result, getMainExecutor()))
+                .whenComplete((result, error) -> {
+                    int status = error == null ? result : -1;
+                    if (status == SMSManagerHelper.ALERT_QUEUED) {
+                        Toast.makeText(this, "✅ " + item.getName() + " added to the stock alert, sent within " +
+                                windowMinutes + " min", Toast.LENGTH_SHORT).show();
+                    } else if (status == SMSManagerHelper.ALERT_NO_RECIPIENTS) {
+                        Toast.makeText(this, "No SMS recipients subscribed to " + item.getName(), Toast.LENGTH_SHORT).show();
+                    } else if (status == SMSManagerHelper.ALERT_SUPPRESSED) {
+                        Toast.makeText(this, item.getName() + " was already alerted recently", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "❌ SMS failed", Toast.LENGTH_SHORT).show();
+                    }
+                });
     }
 
     // ================== Activity Lifecycle ==================
@@ -274,8 +341,7 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == 100 && resultCode == RESULT_OK) {
-            // New item was added, refresh the inventory
-            loadInventoryData();
+            // New item was added - onResume picks it up from the change tracker
             // Show brief success message (less intrusive)
             Toast.makeText(this, "✅ Item added", Toast.LENGTH_SHORT).show();
         }
@@ -284,19 +350,59 @@ public class InventoryActivity extends AppCompatActivity implements InventoryAda
     @Override
     protected void onResume() {
         super.onResume();
-        // Refresh data when returning to this activity (but no welcome message)
+        // Refresh data when returning to this activity if anything changed (but no welcome message)
         loadInventoryData();
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Don't leave buffered quantity taps behind when the screen goes away
+        quantityWriteBuffer.flush();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Fold old ledger movements into snapshots, drop expired rollups and alert cooldowns,
+        // then fold the write-ahead log back into the database, while the screen is hidden
+        // Not tied to this screen: it should finish even if the activity is destroyed, so it
+        // holds its own database reference and only the application context
+        Context appContext = getApplicationContext();
+        DatabaseHelper maintenanceDatabase = DatabaseHelper.getInstance(appContext);
+        try {
+            TaskScheduler.getInstance().execute(TaskScheduler.Pool.IO, () -> {
+                try {
+                    maintenanceDatabase.compactStockLedger(LEDGER_RETENTION_SECONDS);
+                    maintenanceDatabase.pruneQuantityRollups();
+                    AlertCooldown.getInstance(appContext).prune();
+                    maintenanceDatabase.checkpoint();
+                } finally {
+                    maintenanceDatabase.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            maintenanceDatabase.close();
+            Log.w(TAG, "Maintenance skipped, IO queue full");
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         if (databaseHelper != null) {
             databaseHelper.close();
         }
+        if (asyncDatabase != null) {
+            asyncDatabase.close();
+        }
         if (inventoryAdapter != null) {
             inventoryAdapter.cleanup();
         }
+        if (quantityWriteBuffer != null) {
+            // Final flush runs in the background before the buffer lets go of the database
+            quantityWriteBuffer.close();
+        }
     }
 
     @Override
@@ -3,6 +3,7 @@ package com.omercengiz.warehousepro;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,12 +11,15 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import android.os.AsyncTask;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * InventoryAdapter - RecyclerView adapter for displaying inventory items
@@ -23,13 +27,33 @@ import android.os.AsyncTask;
  */
 public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.InventoryViewHolder> {
 
+    // Paging configuration
+    private static final String TAG = "InventoryAdapter";
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int MAX_WINDOW_SIZE = 4 * PAGE_SIZE;
+
     private Context context;
-    private List<InventoryItem> inventoryItems;
-    private List<InventoryItem> filteredItems; // For search functionality
+    private LifecycleOwner owner; // The activity; results of its edits are dropped once it is destroyed
+    private List<InventoryItem> filteredItems; // Items currently displayed (paged window or search results)
     private OnItemActionListener listener;
-    private DatabaseHelper databaseHelper;
+    private InventoryRepository repository; // Cached item reads, write-through updates
+    private AsyncDatabase asyncDatabase; // Edits and deletes made from the list
+    private QuantityWriteBuffer writeBuffer; // +/- taps are written behind, released by the activity
     private SMSManagerHelper smsManager;
 
+    // Paging state - the window is a contiguous range of the (name, id) ordering
+    private final TaskScheduler.SerialExecutor pageLoader =
+            TaskScheduler.getInstance().serialExecutor(TaskScheduler.Pool.IO); // One load at a time, in order
+    private RecyclerView recyclerView;
+    private String searchQuery = "";
+    private boolean hasMoreBefore = false;
+    private boolean hasMoreAfter = false;
+    private boolean loadingPage = false;
+    private int loadGeneration = 0; // Incremented on reload/search so stale pages are dropped
+    private volatile boolean cleanedUp = false; // Loads chained after a flush are dropped after cleanup
+    private InventoryStats stats = InventoryStats.EMPTY; // Whole-table counts, refreshed with the window
+
     // Toast management to prevent spam
     private Toast currentToast;
     private Handler toastHandler;
@@ -43,20 +67,23 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
         void onItemDeleted(InventoryItem item);
         void onItemClicked(InventoryItem item);
         void onZeroQuantityReached(InventoryItem item);
+        void onItemsLoaded();
     }
 
     /**
-     * Constructor for InventoryAdapter
-     * @param context Activity context
-     * @param inventoryItems List of inventory items to display
+     * Constructor for InventoryAdapter. Items are loaded page by page from the database.
+     * @param context Activity context (must be a LifecycleOwner)
      * @param listener Callback listener for item actions
+     * @param writeBuffer Buffer that batches quantity taps into background writes
      */
-    public InventoryAdapter(Context context, List<InventoryItem> inventoryItems, OnItemActionListener listener) {
+    public InventoryAdapter(Context context, OnItemActionListener listener, QuantityWriteBuffer writeBuffer) {
         this.context = context;
-        this.inventoryItems = inventoryItems != null ? inventoryItems : new ArrayList<>();
-        this.filteredItems = new ArrayList<>(this.inventoryItems);
+        this.owner = (LifecycleOwner) context;
+        this.filteredItems = new ArrayList<>();
         this.listener = listener;
-        this.databaseHelper = new DatabaseHelper(context);
+        this.repository = InventoryRepository.getInstance(context);
+        this.asyncDatabase = AsyncDatabase.getInstance(context);
+        this.writeBuffer = writeBuffer;
         this.smsManager = new SMSManagerHelper(context);
 
         // Initialize toast management
@@ -64,6 +91,27 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
         this.pendingToasts = new HashMap<>();
     }
 
+    private final RecyclerView.OnScrollListener prefetchListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+            checkPrefetch();
+        }
+    };
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView view) {
+        super.onAttachedToRecyclerView(view);
+        recyclerView = view;
+        recyclerView.addOnScrollListener(prefetchListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView view) {
+        super.onDetachedFromRecyclerView(view);
+        view.removeOnScrollListener(prefetchListener);
+        recyclerView = null;
+    }
+
     @NonNull
     @Override
     public InventoryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -155,24 +203,19 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
 
             // Plus button - increase quantity
             btnPlus.setOnClickListener(v -> {
-                int currentQuantity = item.getQuantity();
-                int newQuantity = currentQuantity + 1;
-
-                // Update database
-                if (databaseHelper.updateItemQuantity(item.getId(), newQuantity)) {
-                    item.setQuantity(newQuantity);
-                    updateQuantityDisplay(item);
-
-                    // Notify listener
-                    if (listener != null) {
-                        listener.onQuantityChanged(item, newQuantity);
-                    }
+                // Update the row now, the database write is batched in the background
+                int newQuantity = item.getQuantity() + 1;
+                item.setQuantity(newQuantity);
+                updateQuantityDisplay(item);
+                writeBuffer.add(item.getId(), 1);
 
-                    // Show debounced toast
-                    showDebouncedToast(item.getId(), "Updated: " + item.getName() + " → " + newQuantity);
-                } else {
-                    showToast("Failed to update quantity");
+                // Notify listener
+                if (listener != null) {
+                    listener.onQuantityChanged(item, newQuantity);
                 }
+
+                // Show debounced toast
+                showDebouncedToast(item.getId(), "Updated: " + item.getName() + " → " + newQuantity);
             });
 
             // Minus button - decrease quantity
@@ -180,31 +223,27 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
                 int currentQuantity = item.getQuantity();
 
                 if (currentQuantity > 0) {
+                    // Update the row now, the database write is batched (and clamped at zero)
                     int newQuantity = currentQuantity - 1;
+                    item.setQuantity(newQuantity);
+                    updateQuantityDisplay(item);
+                    writeBuffer.add(item.getId(), -1);
 
-                    // Update database
-                    if (databaseHelper.updateItemQuantity(item.getId(), newQuantity)) {
-                        item.setQuantity(newQuantity);
-                        updateQuantityDisplay(item);
-
-                        // Notify listener
-                        if (listener != null) {
-                            listener.onQuantityChanged(item, newQuantity);
-
-                            // Check if quantity reached zero (for SMS notification)
-                            if (newQuantity == 0) {
-                                listener.onZeroQuantityReached(item);
-                            }
-                        }
+                    // Notify listener
+                    if (listener != null) {
+                        listener.onQuantityChanged(item, newQuantity);
 
-                        // Show appropriate message
+                        // Check if quantity reached zero (for SMS notification)
                         if (newQuantity == 0) {
-                            showToast("⚠️ " + item.getName() + " is now out of stock!");
-                        } else {
-                            showDebouncedToast(item.getId(), "Updated: " + item.getName() + " → " + newQuantity);
+                            listener.onZeroQuantityReached(item);
                         }
+                    }
+
+                    // Show appropriate message
+                    if (newQuantity == 0) {
+                        showToast("⚠️ " + item.getName() + " is now out of stock!");
                     } else {
-                        showToast("Failed to update quantity");
+                        showDebouncedToast(item.getId(), "Updated: " + item.getName() + " → " + newQuantity);
                     }
                 } else {
                     showToast("Quantity is already 0");
@@ -278,11 +317,21 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
                         return;
                     }
 
-                    // Update database
-                    if (databaseHelper.updateItemQuantity(item.getId(), newQuantity)) {
+                    // Update database in the background; buffered taps land first, or they
+                    // would be added on top of the new value
+                    asyncDatabase.updateItemQuantity(owner, writeBuffer, item.getId(), newQuantity).whenComplete((updated, error) -> {
+                        if (!Boolean.TRUE.equals(updated)) {
+                            showToast("Failed to update quantity");
+                            return;
+                        }
+
                         int oldQuantity = item.getQuantity();
                         item.setQuantity(newQuantity);
-                        updateQuantityDisplay(item);
+                        // The row may have been rebound or removed in the meantime
+                        int position = filteredItems.indexOf(item);
+                        if (position >= 0) {
+                            notifyItemChanged(position);
+                        }
 
                         // Notify listener
                         if (listener != null) {
@@ -300,9 +349,7 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
                         } else {
                             showToast("Updated: " + item.getName() + " → " + newQuantity);
                         }
-                    } else {
-                        showToast("Failed to update quantity");
-                    }
+                    });
 
                 } catch (NumberFormatException e) {
                     showToast("Please enter a valid number");
@@ -343,14 +390,16 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
          * @param item InventoryItem to delete
          */
         private void deleteItem(InventoryItem item) {
-            if (databaseHelper.deleteInventoryItem(item.getId())) {
-                // Remove from both lists
-                inventoryItems.remove(item);
-                filteredItems.remove(item);
-
-                // Notify adapter
-                int position = getAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
+            asyncDatabase.deleteInventoryItem(owner, item.getId()).whenComplete((deleted, error) -> {
+                if (!Boolean.TRUE.equals(deleted)) {
+                    showToast("Failed to delete item");
+                    return;
+                }
+
+                // Remove from the displayed list (the row may have moved in the meantime)
+                int position = filteredItems.indexOf(item);
+                if (position >= 0) {
+                    filteredItems.remove(position);
                     notifyItemRemoved(position);
                     notifyItemRangeChanged(position, filteredItems.size());
                 }
@@ -361,9 +410,7 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
                 }
 
                 showToast("Deleted: " + item.getName());
-            } else {
-                showToast("Failed to delete item");
-            }
+            });
         }
     }
 
@@ -416,17 +463,255 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
         currentToast.show();
     }
 
+    // ================== PAGING ==================
+
+    /**
+     * Reload the items currently in the window (or the first page if nothing is loaded yet),
+     * keeping the user's scroll position. Search results are re-run instead.
+     */
+    public void reload() {
+        if (!searchQuery.isEmpty()) {
+            runSearch(searchQuery);
+            return;
+        }
+
+        if (filteredItems.isEmpty()) {
+            loadFirstPage();
+            return;
+        }
+
+        InventoryItem first = filteredItems.get(0);
+        int windowSize = Math.max(filteredItems.size(), PAGE_SIZE);
+        int generation = ++loadGeneration;
+        loadingPage = true;
+
+        loadAfterFlush(() -> {
+            List<InventoryItem> page = repository.getInventoryPageFrom(first.getName(), first.getId(), windowSize);
+            InventoryStats latestStats = repository.getInventoryStats();
+            toastHandler.post(() -> {
+                if (generation != loadGeneration) return;
+                loadingPage = false;
+                stats = latestStats;
+                filteredItems.clear();
+                filteredItems.addAll(page);
+                hasMoreAfter = page.size() == windowSize;
+                notifyDataSetChanged();
+                onPageLoaded();
+            });
+        });
+    }
+
+    // Start over from the beginning of the ordering
+    private void loadFirstPage() {
+        int generation = ++loadGeneration;
+        loadingPage = true;
+
+        loadAfterFlush(() -> {
+            List<InventoryItem> page = repository.getInventoryPage(null, 0, PAGE_SIZE);
+            InventoryStats latestStats = repository.getInventoryStats();
+            toastHandler.post(() -> {
+                if (generation != loadGeneration) return;
+                loadingPage = false;
+                stats = latestStats;
+                filteredItems.clear();
+                filteredItems.addAll(page);
+                hasMoreBefore = false;
+                hasMoreAfter = page.size() == PAGE_SIZE;
+                notifyDataSetChanged();
+                onPageLoaded();
+            });
+        });
+    }
+
+    // Load the next or previous page when the user scrolls close to either end of the window
+    private void checkPrefetch() {
+        if (recyclerView == null || loadingPage || !searchQuery.isEmpty() || filteredItems.isEmpty()) {
+            return;
+        }
+
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+
+        if (hasMoreAfter && lastVisible >= filteredItems.size() - 1 - PREFETCH_DISTANCE) {
+            loadNextPage();
+        } else if (hasMoreBefore && firstVisible != RecyclerView.NO_POSITION && firstVisible <= PREFETCH_DISTANCE) {
+            loadPreviousPage();
+        }
+    }
+
+    private void loadNextPage() {
+        InventoryItem last = filteredItems.get(filteredItems.size() - 1);
+        int generation = loadGeneration;
+        loadingPage = true;
+
+        loadAfterFlush(() -> {
+            List<InventoryItem> page = repository.getInventoryPage(last.getName(), last.getId(), PAGE_SIZE);
+            toastHandler.post(() -> {
+                if (generation != loadGeneration) return;
+                loadingPage = false;
+                hasMoreAfter = page.size() == PAGE_SIZE;
+
+                int insertAt = filteredItems.size();
+                filteredItems.addAll(page);
+                notifyItemRangeInserted(insertAt, page.size());
+
+                // Keep the window bounded by dropping the oldest items at the top
+                int overflow = filteredItems.size() - MAX_WINDOW_SIZE;
+                if (overflow > 0) {
+                    filteredItems.subList(0, overflow).clear();
+                    notifyItemRangeRemoved(0, overflow);
+                    hasMoreBefore = true;
+                }
+
+                onPageLoaded();
+            });
+        });
+    }
+
+    private void loadPreviousPage() {
+        InventoryItem first = filteredItems.get(0);
+        int generation = loadGeneration;
+        loadingPage = true;
+
+        loadAfterFlush(() -> {
+            List<InventoryItem> page = repository.getInventoryPageBefore(first.getName(), first.getId(), PAGE_SIZE);
+            toastHandler.post(() -> {
+                if (generation != loadGeneration) return;
+                loadingPage = false;
+                hasMoreBefore = page.size() == PAGE_SIZE;
+
+                filteredItems.addAll(0, page);
+                notifyItemRangeInserted(0, page.size());
+
+                // Keep the window bounded by dropping items at the bottom
+                int overflow = filteredItems.size() - MAX_WINDOW_SIZE;
+                if (overflow > 0) {
+                    int removeFrom = filteredItems.size() - overflow;
+                    filteredItems.subList(removeFrom, filteredItems.size()).clear();
+                    notifyItemRangeRemoved(removeFrom, overflow);
+                    hasMoreAfter = true;
+                }
+
+                onPageLoaded();
+            });
+        });
+    }
+
+    /**
+     * Refresh only the given rows: displayed rows are updated or removed, and the window is
+     * reloaded only if a changed item that is not displayed belongs inside it (e.g. a new item)
+     * @param changedIds IDs reported by the invalidation tracker
+     */
+    public void refreshItems(Set<Integer> changedIds) {
+        if (changedIds.isEmpty()) {
+            return;
+        }
+
+        int generation = loadGeneration;
+
+        loadAfterFlush(() -> {
+            List<InventoryItem> changedItems = repository.getItems(changedIds);
+            InventoryStats latestStats = repository.getInventoryStats();
+            toastHandler.post(() -> {
+                if (generation != loadGeneration) return;
+                stats = latestStats;
+                applyChangedItems(changedIds, changedItems);
+            });
+        });
+    }
+
+    private void applyChangedItems(Set<Integer> changedIds, List<InventoryItem> changedItems) {
+        Map<Integer, InventoryItem> changedById = new HashMap<>();
+        for (InventoryItem item : changedItems) {
+            changedById.put(item.getId(), item);
+        }
+
+        // Update rows on screen, drop the ones that were deleted
+        for (int position = filteredItems.size() - 1; position >= 0; position--) {
+            int itemId = filteredItems.get(position).getId();
+            if (!changedIds.contains(itemId)) {
+                continue;
+            }
+
+            InventoryItem updated = changedById.remove(itemId);
+            if (updated != null) {
+                filteredItems.set(position, updated);
+                notifyItemChanged(position);
+            } else {
+                filteredItems.remove(position);
+                notifyItemRemoved(position);
+            }
+        }
+
+        for (InventoryItem item : changedById.values()) {
+            if (belongsInWindow(item)) {
+                reload();
+                return;
+            }
+        }
+
+        if (listener != null) {
+            listener.onItemsLoaded();
+        }
+    }
+
+    // Whether an item that is not displayed falls inside the loaded part of the (name, id) ordering
+    private boolean belongsInWindow(InventoryItem item) {
+        if (!searchQuery.isEmpty() || filteredItems.isEmpty()) {
+            return true; // Can't tell without re-running the search / nothing loaded yet
+        }
+
+        InventoryItem first = filteredItems.get(0);
+        InventoryItem last = filteredItems.get(filteredItems.size() - 1);
+        boolean afterFirst = !hasMoreBefore || compareOrder(item, first) >= 0;
+        boolean beforeLast = !hasMoreAfter || compareOrder(item, last) <= 0;
+        return afterFirst && beforeLast;
+    }
+
+    private static int compareOrder(InventoryItem a, InventoryItem b) {
+        int byName = a.getName().compareTo(b.getName());
+        return byName != 0 ? byName : Integer.compare(a.getId(), b.getId());
+    }
+
+    // Run a load once our own buffered taps are committed. Chained on the flush rather than
+    // waiting for it, so a loader thread is never blocked behind the buffer's writer.
+    private void loadAfterFlush(Runnable load) {
+        writeBuffer.flushAsync().whenComplete((ignored, error) -> {
+            if (cleanedUp) {
+                return;
+            }
+            try {
+                pageLoader.execute(load);
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Page load skipped, loader queue full");
+            }
+        });
+    }
+
+    private void onPageLoaded() {
+        if (listener != null) {
+            listener.onItemsLoaded();
+        }
+        // The screen may still not be filled (or the user kept scrolling while loading)
+        checkPrefetch();
+    }
+
     // ================== ADAPTER METHODS ==================
 
     /**
-     * Update the entire item list and refresh display
+     * Replace the displayed items with a fixed list (paging is suspended)
      * @param newItems New list of inventory items
      */
     public void updateItems(List<InventoryItem> newItems) {
-        this.inventoryItems.clear();
-        this.inventoryItems.addAll(newItems);
         this.filteredItems.clear();
         this.filteredItems.addAll(newItems);
+        hasMoreBefore = false;
+        hasMoreAfter = false;
         notifyDataSetChanged();
     }
 
@@ -435,33 +720,44 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
      * @param item InventoryItem to add
      */
     public void addItem(InventoryItem item) {
-        inventoryItems.add(item);
         filteredItems.add(item);
         notifyItemInserted(filteredItems.size() - 1);
     }
 
     /**
-     * Filter items based on search query
+     * Filter items based on search query. An empty query returns to the paged list.
      * @param query Search query string
      */
     public void filter(String query) {
-        filteredItems.clear();
+        String trimmedQuery = query == null ? "" : query.trim();
+        if (trimmedQuery.equals(searchQuery)) {
+            return;
+        }
+
+        searchQuery = trimmedQuery;
 
-        if (query == null || query.trim().isEmpty()) {
+        if (searchQuery.isEmpty()) {
             // Show all items if query is empty
-            filteredItems.addAll(inventoryItems);
+            loadFirstPage();
         } else {
-            // Filter items that contain the query in their name
-            String lowerCaseQuery = query.toLowerCase().trim();
-            for (InventoryItem item : inventoryItems) {
-                if (item.getName().toLowerCase().contains(lowerCaseQuery) ||
-                        item.getNotes().toLowerCase().contains(lowerCaseQuery)) {
-                    filteredItems.add(item);
-                }
-            }
+            runSearch(searchQuery);
         }
+    }
 
-        notifyDataSetChanged();
+    private void runSearch(String query) {
+        int generation = ++loadGeneration;
+        loadingPage = false;
+
+        loadAfterFlush(() -> {
+            List<InventoryItem> results = repository.searchInventoryItems(query);
+            toastHandler.post(() -> {
+                if (generation != loadGeneration) return;
+                updateItems(results);
+                if (listener != null) {
+                    listener.onItemsLoaded();
+                }
+            });
+        });
     }
 
     /**
@@ -484,18 +780,20 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
         return filteredItems.isEmpty();
     }
 
+    /**
+     * Inventory-wide statistics from the last load (not just the loaded page window)
+     * @return latest statistics
+     */
+    public InventoryStats getInventoryStats() {
+        return stats;
+    }
+
     /**
      * Get count of out-of-stock items
      * @return number of items with zero quantity
      */
     public int getOutOfStockCount() {
-        int count = 0;
-        for (InventoryItem item : inventoryItems) {
-            if (item.isOutOfStock()) {
-                count++;
-            }
-        }
-        return count;
+        return stats.getOutOfStockCount();
     }
 
     /**
@@ -503,13 +801,7 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
      * @return number of items with low stock
      */
     public int getLowStockCount() {
-        int count = 0;
-        for (InventoryItem item : inventoryItems) {
-            if (item.isLowStock() && !item.isOutOfStock()) {
-                count++;
-            }
-        }
-        return count;
+        return stats.getLowStockCount();
     }
 
     /**
@@ -517,21 +809,25 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
      * @return total number of items
      */
     public int getTotalItemCount() {
-        return inventoryItems.size();
+        return stats.getTotalSkus();
     }
 
     /**
      * Refresh data from database
      */
     public void refreshData() {
-        List<InventoryItem> freshData = databaseHelper.getAllInventoryItems();
-        updateItems(freshData);
+        reload();
     }
 
     /**
      * Clean up resources
      */
     public void cleanup() {
+        // Drop any page loads still queued or in flight
+        cleanedUp = true;
+        loadGeneration++;
+        pageLoader.clear();
+
         // Cancel all pending toasts
         if (toastHandler != null) {
             for (Runnable toast : pendingToasts.values()) {
@@ -549,6 +845,14 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.Inve
         if (smsManager != null) {
             smsManager.cleanup();
         }
+
+        // Release shared repository (and database) references
+        if (repository != null) {
+            repository.close();
+        }
+        if (asyncDatabase != null) {
+            asyncDatabase.close();
+        }
     }
 
-}
\ No newline at end of file
+}
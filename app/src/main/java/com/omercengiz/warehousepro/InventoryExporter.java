@@ -0,0 +1,235 @@
+package com.omercengiz.warehousepro;
+
+import android.database.Cursor;
+import android.util.Log;
+import org.json.JSONObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InventoryExporter - writes the inventory table to a CSV or JSON Lines file
+ *
+ * Rows go straight from the cursor into a fixed-size buffer and through a FileChannel,
+ * one keyset chunk at a time, so memory use does not depend on the table size.
+ * The file is written under a temporary name and renamed when complete.
+ * Both formats use the column names InventoryImporter accepts, so an export can be re-imported.
+ */
+public class InventoryExporter {
+
+    private static final String TAG = "InventoryExporter";
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,name,weight,quantity,notes,last_updated\n";
+
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    public enum Filter {
+        ALL,
+        ZERO_STOCK,
+        LOW_STOCK // At or below the low stock threshold, including out of stock
+    }
+
+    /**
+     * Progress callback, called on the exporting thread after every chunk
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsWritten);
+    }
+
+    // Cursor columns, see DatabaseHelper.buildExportQuery
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int WEIGHT = 2;
+    private static final int QUANTITY = 3;
+    private static final int NOTES = 4;
+    private static final int LAST_UPDATED = 5;
+
+    private final DatabaseHelper databaseHelper;
+    private final int chunkSize;
+    private volatile boolean cancelled = false;
+
+    public InventoryExporter(DatabaseHelper databaseHelper) {
+        this(databaseHelper, DEFAULT_CHUNK_SIZE);
+    }
+
+    // Explicit chunk size, used by tests
+    InventoryExporter(DatabaseHelper databaseHelper, int chunkSize) {
+        this.databaseHelper = databaseHelper;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Stop an export running on another thread. The partial file is deleted.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Export items to a file. Blocks until done - call from a background thread.
+     * @param target output file, replaced if it exists
+     * @param format CSV or JSON Lines
+     * @param filter which items to include
+     * @param searchTerm only items matching this text (same rules as the search box), or null for all
+     * @param listener progress callback, may be null
+     * @return number of rows written
+     * @throws IOException if the file can't be written or the export was cancelled
+     */
+    public long export(File target, Format format, Filter filter, String searchTerm,
+                       ProgressListener listener) throws IOException {
+        cancelled = false;
+        long startTime = System.nanoTime();
+
+        String matchExpression = null;
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            // Text without searchable words matches nothing, as in the search box
+            matchExpression = databaseHelper.getMatchExpression(searchTerm);
+        }
+
+        File temp = new File(target.getPath() + ".tmp");
+        long rows = 0;
+        boolean complete = false;
+
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            StringBuilder line = new StringBuilder(256);
+
+            if (format == Format.CSV) {
+                write(channel, buffer, CSV_HEADER);
+            }
+
+            if (matchExpression == null || !matchExpression.isEmpty()) {
+                long lastId = 0;
+                int chunkRows;
+                do {
+                    if (cancelled) {
+                        throw new InterruptedIOException("Export cancelled");
+                    }
+
+                    chunkRows = 0;
+                    Cursor cursor = databaseHelper.queryExportChunk(filter, matchExpression, lastId, chunkSize);
+                    try {
+                        while (cursor.moveToNext()) {
+                            line.setLength(0);
+                            if (format == Format.CSV) {
+                                appendCsv(line, cursor);
+                            } else {
+                                appendJson(line, cursor);
+                            }
+                            write(channel, buffer, line);
+                            lastId = cursor.getLong(ID);
+                            chunkRows++;
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+
+                    rows += chunkRows;
+                    if (listener != null && chunkRows > 0) {
+                        listener.onProgress(rows);
+                    }
+                } while (chunkRows == chunkSize);
+            }
+
+            flush(channel, buffer);
+            channel.force(false);
+            complete = true;
+        } finally {
+            if (!complete && !temp.delete()) {
+                Log.w(TAG, "Could not delete partial export " + temp);
+            }
+        }
+
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Log.d(TAG, "Exported " + rows + " rows to " + target.getName() + " in " +
+                (System.nanoTime() - startTime) / 1_000_000 + " ms");
+        return rows;
+    }
+
+    // ================== FORMATTING ==================
+
+    private static void appendCsv(StringBuilder line, Cursor cursor) {
+        line.append(cursor.getLong(ID)).append(',');
+        appendCsvField(line, cursor.getString(NAME));
+        line.append(',').append(cursor.getDouble(WEIGHT))
+                .append(',').append(cursor.getInt(QUANTITY)).append(',');
+        appendCsvField(line, cursor.getString(NOTES));
+        line.append(',');
+        appendCsvField(line, cursor.getString(LAST_UPDATED));
+        line.append('\n');
+    }
+
+    // Quote only when needed; quotes inside a field are doubled
+    static void appendCsvField(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            line.append(value);
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static void appendJson(StringBuilder line, Cursor cursor) {
+        line.append("{\"id\":").append(cursor.getLong(ID))
+                .append(",\"name\":").append(JSONObject.quote(cursor.getString(NAME)))
+                .append(",\"weight\":").append(cursor.getDouble(WEIGHT))
+                .append(",\"quantity\":").append(cursor.getInt(QUANTITY))
+                .append(",\"notes\":").append(JSONObject.quote(cursor.getString(NOTES)))
+                .append(",\"last_updated\":").append(JSONObject.quote(cursor.getString(LAST_UPDATED)))
+                .append("}\n");
+    }
+
+    // ================== OUTPUT ==================
+
+    private static void write(FileChannel channel, ByteBuffer buffer, CharSequence text) throws IOException {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            flush(channel, buffer);
+        }
+        if (bytes.length > buffer.capacity()) {
+            // Larger than the whole buffer - write it directly
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,577 @@
+package com.omercengiz.warehousepro;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InventoryImporter - bulk import of inventory items from CSV or JSON files
+ *
+ * The file is streamed, never loaded as a whole. The calling thread reads raw records and
+ * hands them out in chunks to a pool of parser threads, which parse and validate them with
+ * the same rules as AddItemActivity (see {@link InventoryValidator}). One writer thread
+ * takes the parsed chunks in file order and inserts each one as a single transaction.
+ * A bounded queue between the stages keeps memory use flat for files of any size.
+ *
+ * CSV files need a header row with name, weight and quantity columns (notes is optional,
+ * item_ prefixes are accepted). JSON files are either JSON Lines (one object per line) or
+ * a single array of objects with the same keys.
+ */
+public class InventoryImporter {
+
+    private static final String TAG = "InventoryImporter";
+
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Field order used for every format
+    private static final int NAME = 0;
+    private static final int WEIGHT = 1;
+    private static final int QUANTITY = 2;
+    private static final int NOTES = 3;
+    private static final String[] FIELD_NAMES = {"name", "weight", "quantity", "notes"};
+
+    public enum Format {
+        CSV,
+        JSON // JSON Lines or one top-level array
+    }
+
+    /**
+     * Progress callback, called on the writer thread after every batch
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsRead, long rowsImported, long rowsRejected);
+    }
+
+    /**
+     * A row that was not imported
+     */
+    public static final class RowError {
+        private final long row;
+        private final String message;
+
+        RowError(long row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        // 1-based data row (the CSV header is not counted)
+        public long getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + row + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an import. Only the first {@link #MAX_REPORTED_ERRORS} errors are kept.
+     */
+    public static final class ImportResult {
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsRejected;
+        private final List<RowError> errors = new ArrayList<>();
+        private boolean cancelled;
+        private long durationMs;
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getRowsImported() {
+            return rowsImported;
+        }
+
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "ImportResult{read=%d, imported=%d, rejected=%d, cancelled=%b, %d ms}",
+                    rowsRead, rowsImported, rowsRejected, cancelled, durationMs);
+        }
+    }
+
+    // One record as read from the file: raw text (CSV, JSON Lines) or fields already split (JSON array)
+    private static final class RawRow {
+        final long row;
+        final String text;
+        final String[] fields;
+
+        RawRow(long row, String text, String[] fields) {
+            this.row = row;
+            this.text = text;
+            this.fields = fields;
+        }
+    }
+
+    private static final class ParsedChunk {
+        final List<InventoryItem> items = new ArrayList<>();
+        final List<Long> itemRows = new ArrayList<>();
+        final List<RowError> errors = new ArrayList<>();
+        int rowsRead;
+    }
+
+    // Marks the end of the input in the writer queue
+    private static final Future<ParsedChunk> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+    private final DatabaseHelper databaseHelper;
+    private final int batchSize;
+    private final int parserThreads;
+    private volatile boolean cancelled = false;
+
+    public InventoryImporter(DatabaseHelper databaseHelper) {
+        this(databaseHelper, DEFAULT_BATCH_SIZE, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    // Explicit batch size and parser count, used by tests and benchmarks
+    InventoryImporter(DatabaseHelper databaseHelper, int batchSize, int parserThreads) {
+        this.databaseHelper = databaseHelper;
+        this.batchSize = Math.max(1, batchSize);
+        this.parserThreads = Math.max(1, parserThreads);
+    }
+
+    /**
+     * Guess the format from a file name (.json, .jsonl and .ndjson are JSON, anything else CSV)
+     */
+    public static Format detectFormat(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".json") || lower.endsWith(".jsonl") || lower.endsWith(".ndjson")
+                ? Format.JSON : Format.CSV;
+    }
+
+    /**
+     * Stop an import running on another thread. Batches already written stay in the database.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Import a file. Blocks until done - call from a background thread.
+     * @param file CSV or JSON file
+     * @param format file format
+     * @param listener progress callback, may be null
+     * @return counts and the per-row error report
+     * @throws IOException if the file can't be read or has no usable header
+     */
+    public ImportResult importFile(File file, Format format, ProgressListener listener) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return importStream(input, format, listener);
+        }
+    }
+
+    /**
+     * Import from a stream (e.g. a content URI). Blocks until done - call from a background thread.
+     */
+    public ImportResult importStream(InputStream input, Format format, ProgressListener listener) throws IOException {
+        cancelled = false;
+        long startTime = System.nanoTime();
+        ImportResult result = new ImportResult();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        BlockingQueue<Future<ParsedChunk>> queue = new ArrayBlockingQueue<>(parserThreads * 2);
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> writerDone = writer.submit(() -> {
+                writeChunks(queue, result, listener);
+                return null;
+            });
+
+            try {
+                if (format == Format.CSV) {
+                    readCsv(reader, parsers, queue, writerDone);
+                } else {
+                    readJson(reader, parsers, queue, writerDone);
+                }
+            } finally {
+                enqueue(queue, END_OF_INPUT, writerDone);
+            }
+
+            writerDone.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        } finally {
+            parsers.shutdownNow();
+            writer.shutdownNow();
+        }
+
+        result.cancelled = cancelled;
+        result.durationMs = (System.nanoTime() - startTime) / 1_000_000;
+        Log.d(TAG, "Import finished: " + result);
+        return result;
+    }
+
+    // ================== READER (calling thread) ==================
+
+    private void readCsv(BufferedReader reader, ExecutorService parsers, BlockingQueue<Future<ParsedChunk>> queue,
+                         Future<?> writerDone) throws IOException, InterruptedException {
+        String headerRecord = readCsvRecord(reader);
+        if (headerRecord == null) {
+            return; // Empty file
+        }
+        int[] columns = mapCsvHeader(parseCsvRecord(headerRecord));
+
+        List<RawRow> chunk = new ArrayList<>(batchSize);
+        long row = 0;
+        String record;
+
+        while (!cancelled && (record = readCsvRecord(reader)) != null) {
+            if (record.trim().isEmpty()) {
+                continue;
+            }
+            chunk.add(new RawRow(++row, record, null));
+            if (chunk.size() == batchSize) {
+                submitChunk(chunk, Format.CSV, columns, parsers, queue, writerDone);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        submitChunk(chunk, Format.CSV, columns, parsers, queue, writerDone);
+    }
+
+    private void readJson(BufferedReader reader, ExecutorService parsers, BlockingQueue<Future<ParsedChunk>> queue,
+                          Future<?> writerDone) throws IOException, InterruptedException {
+        // Peek at the first non-whitespace character: '[' is an array, anything else JSON Lines
+        int first;
+        do {
+            reader.mark(1);
+            first = reader.read();
+        } while (first != -1 && Character.isWhitespace(first));
+        if (first == -1) {
+            return;
+        }
+        reader.reset();
+
+        List<RawRow> chunk = new ArrayList<>(batchSize);
+        long row = 0;
+
+        if (first == '[') {
+            // Objects are split into fields here, the parsers only validate them
+            JsonReader json = new JsonReader(reader);
+            json.beginArray();
+            while (!cancelled && json.hasNext()) {
+                chunk.add(new RawRow(++row, null, readJsonFields(json)));
+                if (chunk.size() == batchSize) {
+                    submitChunk(chunk, Format.JSON, null, parsers, queue, writerDone);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+        } else {
+            String line;
+            while (!cancelled && (line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                chunk.add(new RawRow(++row, line, null));
+                if (chunk.size() == batchSize) {
+                    submitChunk(chunk, Format.JSON, null, parsers, queue, writerDone);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        submitChunk(chunk, Format.JSON, null, parsers, queue, writerDone);
+    }
+
+    private void submitChunk(List<RawRow> chunk, Format format, int[] columns, ExecutorService parsers,
+                             BlockingQueue<Future<ParsedChunk>> queue, Future<?> writerDone) throws InterruptedException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        enqueue(queue, parsers.submit(() -> parseChunk(chunk, format, columns)), writerDone);
+    }
+
+    // Blocks while the writer is behind, but gives up if the writer has stopped
+    private static void enqueue(BlockingQueue<Future<ParsedChunk>> queue, Future<ParsedChunk> chunk,
+                                Future<?> writerDone) throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (writerDone.isDone()) {
+                return;
+            }
+        }
+    }
+
+    // One CSV record; quoted fields may span several lines
+    private static String readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        StringBuilder record = null;
+        while (countQuotes(line) % 2 != 0) {
+            String next = reader.readLine();
+            if (next == null) {
+                break; // Unterminated quote - the parser reports the row
+            }
+            if (record == null) {
+                record = new StringBuilder(line);
+            }
+            record.append('\n').append(next);
+            line = record.toString();
+        }
+        return line;
+    }
+
+    private static int countQuotes(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Column index of each field (notes may be -1)
+    private static int[] mapCsvHeader(List<String> header) throws IOException {
+        int[] columns = {-1, -1, -1, -1};
+        for (int i = 0; i < header.size(); i++) {
+            int field = fieldIndex(header.get(i));
+            if (field >= 0 && columns[field] < 0) {
+                columns[field] = i;
+            }
+        }
+
+        for (int field = NAME; field <= QUANTITY; field++) {
+            if (columns[field] < 0) {
+                throw new IOException("CSV header has no " + FIELD_NAMES[field] + " column");
+            }
+        }
+        return columns;
+    }
+
+    // "name", "Item Name", "item_name" -> NAME, etc.
+    private static int fieldIndex(String column) {
+        String key = column.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+        if (key.startsWith("item_")) {
+            key = key.substring(5);
+        }
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            if (FIELD_NAMES[field].equals(key)) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    private static String[] readJsonFields(JsonReader json) throws IOException {
+        String[] fields = new String[FIELD_NAMES.length];
+        if (json.peek() != JsonToken.BEGIN_OBJECT) {
+            json.skipValue();
+            return fields; // Not an object - rejected as "Item name is required"
+        }
+
+        json.beginObject();
+        while (json.hasNext()) {
+            int field = fieldIndex(json.nextName());
+            JsonToken token = json.peek();
+            if (field >= 0 && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                fields[field] = json.nextString();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return fields;
+    }
+
+    // ================== PARSERS (pool threads) ==================
+
+    private static ParsedChunk parseChunk(List<RawRow> rows, Format format, int[] columns) {
+        ParsedChunk chunk = new ParsedChunk();
+        chunk.rowsRead = rows.size();
+
+        for (RawRow raw : rows) {
+            String[] fields;
+            try {
+                if (raw.fields != null) {
+                    fields = raw.fields;
+                } else if (format == Format.CSV) {
+                    fields = csvFields(raw.text, columns);
+                } else {
+                    fields = jsonLineFields(raw.text);
+                }
+            } catch (IllegalArgumentException | JSONException e) {
+                chunk.errors.add(new RowError(raw.row, "Unreadable row: " + e.getMessage()));
+                continue;
+            }
+
+            String name = trim(fields[NAME]);
+            String weight = trim(fields[WEIGHT]);
+            String quantity = trim(fields[QUANTITY]);
+            String notes = fields[NOTES] == null ? "" : fields[NOTES].trim();
+
+            String error = InventoryValidator.validate(name, weight, quantity);
+            if (error != null) {
+                chunk.errors.add(new RowError(raw.row, error));
+                continue;
+            }
+
+            InventoryItem item = new InventoryItem(name, Double.parseDouble(weight), Integer.parseInt(quantity), notes);
+            if (!item.isValid()) {
+                chunk.errors.add(new RowError(raw.row, "Invalid item data"));
+                continue;
+            }
+
+            chunk.items.add(item);
+            chunk.itemRows.add(raw.row);
+        }
+        return chunk;
+    }
+
+    private static String[] csvFields(String record, int[] columns) {
+        List<String> values = parseCsvRecord(record);
+        String[] fields = new String[FIELD_NAMES.length];
+        for (int field = 0; field < fields.length; field++) {
+            int column = columns[field];
+            fields[field] = column >= 0 && column < values.size() ? values.get(column) : null;
+        }
+        return fields;
+    }
+
+    private static String[] jsonLineFields(String line) throws JSONException {
+        JSONObject object = new JSONObject(line);
+        String[] fields = new String[FIELD_NAMES.length];
+        for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            int field = fieldIndex(key);
+            Object value = object.opt(key);
+            if (field >= 0 && fields[field] == null && (value instanceof String || value instanceof Number)) {
+                fields[field] = value.toString();
+            }
+        }
+        return fields;
+    }
+
+    // RFC 4180 style: comma separated, fields may be quoted, "" inside quotes is a quote
+    static List<String> parseCsvRecord(String record) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    // ================== WRITER (single thread) ==================
+
+    private void writeChunks(BlockingQueue<Future<ParsedChunk>> queue, ImportResult result,
+                             ProgressListener listener) throws InterruptedException, ExecutionException {
+        while (true) {
+            Future<ParsedChunk> next = queue.take();
+            if (next == END_OF_INPUT) {
+                return;
+            }
+
+            ParsedChunk chunk = next.get();
+            result.rowsRead += chunk.rowsRead;
+            result.rowsRejected += chunk.errors.size();
+            for (RowError error : chunk.errors) {
+                reportError(result, error);
+            }
+
+            if (cancelled) {
+                continue; // Drain the queue without writing
+            }
+
+            // One transaction per chunk; all-or-nothing, so a failed chunk rejects all of its rows
+            if (!chunk.items.isEmpty()) {
+                if (databaseHelper.addInventoryItems(chunk.items).size() == chunk.items.size()) {
+                    result.rowsImported += chunk.items.size();
+                } else {
+                    result.rowsRejected += chunk.items.size();
+                    for (long row : chunk.itemRows) {
+                        reportError(result, new RowError(row, "Database write failed"));
+                    }
+                }
+            }
+
+            if (listener != null) {
+                listener.onProgress(result.rowsRead, result.rowsImported, result.rowsRejected);
+            }
+        }
+    }
+
+    private static void reportError(ImportResult result, RowError error) {
+        if (result.errors.size() < MAX_REPORTED_ERRORS) {
+            result.errors.add(error);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.util.Log;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * InventoryRepository - read-through item cache in front of DatabaseHelper
+ * Items are cached by item_id. Lookups by ID are served from memory when possible,
+ * list queries still go to the database but warm the cache with their rows. Writes go
+ * to the database first and then update the cache (write-through); writes made by
+ * anything else are picked up through the database's invalidation tracker.
+ */
+public class InventoryRepository {
+
+    private static final String TAG = "InventoryRepository";
+
+    public static final long DEFAULT_MAX_CACHE_BYTES = 512 * 1024;
+
+    /**
+     * Which cached item to drop first when the cache is over its size bound
+     */
+    public enum EvictionPolicy {
+        LRU, // Least recently used
+        LFU  // Least frequently used (ties broken by age)
+    }
+
+    // Shared instance, reference counted like DatabaseHelper
+    private static InventoryRepository instance;
+    private static int referenceCount = 0;
+
+    private final DatabaseHelper databaseHelper;
+    private final boolean ownsDatabaseHelper;
+    private final ItemCache cache;
+
+    private final InvalidationTracker.Observer invalidationObserver = (table, version, changedIds) -> {
+        if (!DatabaseHelper.TABLE_INVENTORY.equals(table)) {
+            return;
+        }
+        if (changedIds == null) {
+            invalidateAll();
+        } else {
+            for (int itemId : changedIds) {
+                invalidate(itemId);
+            }
+        }
+    };
+
+    /**
+     * Get the process-wide repository. Every call must be balanced by {@link #close()}.
+     * @param context Any context (the application context is retained)
+     * @return shared InventoryRepository instance
+     */
+    public static synchronized InventoryRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new InventoryRepository(DatabaseHelper.getInstance(context), true,
+                    EvictionPolicy.LRU, DEFAULT_MAX_CACHE_BYTES);
+        }
+        referenceCount++;
+        return instance;
+    }
+
+    // Standalone repository over an explicit database, used by instrumented tests
+    InventoryRepository(DatabaseHelper databaseHelper, EvictionPolicy policy, long maxCacheBytes) {
+        this(databaseHelper, false, policy, maxCacheBytes);
+    }
+
+    private InventoryRepository(DatabaseHelper databaseHelper, boolean ownsDatabaseHelper,
+                                EvictionPolicy policy, long maxCacheBytes) {
+        this.databaseHelper = databaseHelper;
+        this.ownsDatabaseHelper = ownsDatabaseHelper;
+        this.cache = new ItemCache(policy, maxCacheBytes);
+        databaseHelper.getInvalidationTracker().addObserver(invalidationObserver);
+    }
+
+    /**
+     * Release a reference obtained from {@link #getInstance(Context)}. The cache is dropped
+     * and the database reference released once the last reference is gone.
+     */
+    public void close() {
+        synchronized (InventoryRepository.class) {
+            if (this == instance) {
+                if (referenceCount > 0) {
+                    referenceCount--;
+                }
+                if (referenceCount > 0) {
+                    return;
+                }
+                instance = null;
+            }
+        }
+
+        databaseHelper.getInvalidationTracker().removeObserver(invalidationObserver);
+        invalidateAll();
+        if (ownsDatabaseHelper) {
+            databaseHelper.close();
+        }
+    }
+
+    // ================== READS ==================
+
+    /**
+     * Get one item, from memory if it is cached
+     * @param itemId item to look up
+     * @return a copy of the item, or null if it does not exist
+     */
+    public InventoryItem getItem(int itemId) {
+        List<InventoryItem> items = getItems(Collections.singletonList(itemId));
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    /**
+     * Get several items; only the ones that are not cached are read, with one query
+     * @param itemIds items to look up
+     * @return copies of the items that exist, in no particular order
+     */
+    public List<InventoryItem> getItems(Collection<Integer> itemIds) {
+        List<InventoryItem> items = new ArrayList<>(itemIds.size());
+        List<Integer> missing = new ArrayList<>();
+
+        for (int itemId : itemIds) {
+            InventoryItem cached = cache.get(itemId);
+            if (cached != null) {
+                items.add(cached);
+            } else {
+                missing.add(itemId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long version = inventoryVersion();
+            items.addAll(cacheAll(databaseHelper.getInventoryItemsByIds(missing), version));
+        }
+        return items;
+    }
+
+    public List<InventoryItem> getInventoryPage(String afterName, int afterId, int limit) {
+        long version = inventoryVersion();
+        return cacheAll(databaseHelper.getInventoryPage(afterName, afterId, limit), version);
+    }
+
+    public List<InventoryItem> getInventoryPageFrom(String fromName, int fromId, int limit) {
+        long version = inventoryVersion();
+        return cacheAll(databaseHelper.getInventoryPageFrom(fromName, fromId, limit), version);
+    }
+
+    public List<InventoryItem> getInventoryPageBefore(String beforeName, int beforeId, int limit) {
+        long version = inventoryVersion();
+        return cacheAll(databaseHelper.getInventoryPageBefore(beforeName, beforeId, limit), version);
+    }
+
+    public List<InventoryItem> searchInventoryItems(String searchQuery) {
+        long version = inventoryVersion();
+        return cacheAll(databaseHelper.searchInventoryItems(searchQuery), version);
+    }
+
+    public List<InventoryItem> getZeroQuantityItems() {
+        long version = inventoryVersion();
+        return cacheAll(databaseHelper.getZeroQuantityItems(), version);
+    }
+
+    // Aggregates are not cached - they change with every write
+    public InventoryStats getInventoryStats() {
+        return databaseHelper.getInventoryStats();
+    }
+
+    // ================== WRITES (write-through) ==================
+
+    public boolean updateItemQuantity(int itemId, int newQuantity) {
+        InventoryItem cached = cache.peek(itemId);
+        long version = inventoryVersion();
+        if (!databaseHelper.updateItemQuantity(itemId, newQuantity)) {
+            return false;
+        }
+        writeThroughQuantity(cached, newQuantity, version + 1);
+        return true;
+    }
+
+    public int adjustQuantity(int itemId, int delta) {
+        InventoryItem cached = cache.peek(itemId);
+        long version = inventoryVersion();
+        int newQuantity = databaseHelper.adjustQuantity(itemId, delta);
+        if (newQuantity >= 0) {
+            writeThroughQuantity(cached, newQuantity, version + 1);
+        }
+        return newQuantity;
+    }
+
+    public boolean deleteInventoryItem(int itemId) {
+        boolean deleted = databaseHelper.deleteInventoryItem(itemId);
+        invalidate(itemId);
+        return deleted;
+    }
+
+    // ================== CACHE ==================
+
+    // Drop one item, e.g. after a write that did not go through the repository
+    public void invalidate(int itemId) {
+        cache.remove(itemId);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return cache.hits;
+    }
+
+    public long getMissCount() {
+        return cache.misses;
+    }
+
+    public long getEvictionCount() {
+        return cache.evictions;
+    }
+
+    public long getCacheSizeBytes() {
+        return cache.sizeBytes;
+    }
+
+    public int getCachedItemCount() {
+        return cache.itemCount();
+    }
+
+    private long inventoryVersion() {
+        return databaseHelper.getInvalidationTracker().getVersion(DatabaseHelper.TABLE_INVENTORY);
+    }
+
+    // Rows read before a write to the table (e.g. a buffered delta commit) may be stale, and the
+    // write's eviction has already run, so they are only cached if no write happened since
+    private List<InventoryItem> cacheAll(List<InventoryItem> items, long readVersion) {
+        cache.putAllIf(items, () -> inventoryVersion() == readVersion);
+        return items;
+    }
+
+    // The database stamped last_updated itself; mirror it closely enough for display. Only if
+    // our write was the only one since the peek - otherwise the entry stays evicted.
+    private void writeThroughQuantity(InventoryItem cached, int newQuantity, long expectedVersion) {
+        if (cached == null) {
+            return;
+        }
+        cached.setQuantity(newQuantity);
+        cached.setLastUpdated(formatUtcNow());
+        cache.putAllIf(Collections.singletonList(cached), () -> inventoryVersion() == expectedVersion);
+    }
+
+    private static String formatUtcNow() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date());
+    }
+
+    private static InventoryItem copyOf(InventoryItem item) {
+        return new InventoryItem(item.getId(), item.getName(), item.getWeight(), item.getQuantity(),
+                item.getNotes(), item.getLastUpdated());
+    }
+
+    // Rough heap cost of one cached item: object headers, fields and string contents
+    static long estimateSize(InventoryItem item) {
+        long size = 96;
+        size += stringSize(item.getName());
+        size += stringSize(item.getNotes());
+        size += stringSize(item.getLastUpdated());
+        return size;
+    }
+
+    private static long stringSize(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    /**
+     * Size-bounded item cache. Stores copies so callers can't change cached items.
+     */
+    private static final class ItemCache {
+
+        private static final class Entry {
+            final InventoryItem item;
+            final long size;
+            int frequency = 1;
+
+            Entry(InventoryItem item, long size) {
+                this.item = item;
+                this.size = size;
+            }
+        }
+
+        private final EvictionPolicy policy;
+        private final long maxBytes;
+
+        // Access-ordered for LRU; insertion order only for LFU
+        private final LinkedHashMap<Integer, Entry> entries;
+
+        // LFU buckets: frequency -> item IDs, oldest first
+        private final TreeMap<Integer, LinkedHashSet<Integer>> frequencies = new TreeMap<>();
+
+        // Guarded by "this"; read without locking for statistics
+        private volatile long sizeBytes = 0;
+        private volatile long hits = 0;
+        private volatile long misses = 0;
+        private volatile long evictions = 0;
+
+        ItemCache(EvictionPolicy policy, long maxBytes) {
+            this.policy = policy != null ? policy : EvictionPolicy.LRU;
+            this.maxBytes = Math.max(0, maxBytes);
+            this.entries = new LinkedHashMap<>(16, 0.75f, this.policy == EvictionPolicy.LRU);
+        }
+
+        synchronized InventoryItem get(int itemId) {
+            Entry entry = entries.get(itemId);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            touch(itemId, entry);
+            return copyOf(entry.item);
+        }
+
+        // Copy of a cached item without counting it as a hit or access
+        synchronized InventoryItem peek(int itemId) {
+            Entry entry = entries.get(itemId);
+            return entry != null ? copyOf(entry.item) : null;
+        }
+
+        synchronized void put(InventoryItem item) {
+            long size = estimateSize(item);
+            if (size > maxBytes) {
+                remove(item.getId());
+                return;
+            }
+
+            Entry previous = removeEntry(item.getId());
+            Entry entry = new Entry(copyOf(item), size);
+            if (previous != null) {
+                entry.frequency = previous.frequency;
+            }
+
+            entries.put(item.getId(), entry);
+            if (policy == EvictionPolicy.LFU) {
+                bucket(entry.frequency).add(item.getId());
+            }
+            sizeBytes += size;
+
+            while (sizeBytes > maxBytes && !entries.isEmpty()) {
+                evictOne();
+            }
+        }
+
+        // Checked under the cache lock: an eviction for a newer write cannot run in between
+        synchronized void putAllIf(Collection<InventoryItem> items, BooleanSupplier unchanged) {
+            if (!unchanged.getAsBoolean()) {
+                return;
+            }
+            for (InventoryItem item : items) {
+                put(item);
+            }
+        }
+
+        synchronized void remove(int itemId) {
+            removeEntry(itemId);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            frequencies.clear();
+            sizeBytes = 0;
+        }
+
+        synchronized int itemCount() {
+            return entries.size();
+        }
+
+        private void touch(int itemId, Entry entry) {
+            if (policy == EvictionPolicy.LFU) {
+                removeFromBucket(itemId, entry.frequency);
+                entry.frequency++;
+                bucket(entry.frequency).add(itemId);
+            }
+            // LRU: the access-ordered map already moved the entry to the end
+        }
+
+        private void evictOne() {
+            int victim;
+            if (policy == EvictionPolicy.LFU) {
+                Iterator<Integer> oldest = frequencies.firstEntry().getValue().iterator();
+                victim = oldest.next();
+            } else {
+                victim = entries.keySet().iterator().next();
+            }
+
+            removeEntry(victim);
+            evictions++;
+            Log.v(TAG, "Evicted item " + victim + " from cache");
+        }
+
+        private Entry removeEntry(int itemId) {
+            Entry entry = entries.remove(itemId);
+            if (entry != null) {
+                removeFromBucket(itemId, entry.frequency);
+                sizeBytes -= entry.size;
+            }
+            return entry;
+        }
+
+        private LinkedHashSet<Integer> bucket(int frequency) {
+            LinkedHashSet<Integer> bucket = frequencies.get(frequency);
+            if (bucket == null) {
+                bucket = new LinkedHashSet<>();
+                frequencies.put(frequency, bucket);
+            }
+            return bucket;
+        }
+
+        private void removeFromBucket(int itemId, int frequency) {
+            LinkedHashSet<Integer> bucket = frequencies.get(frequency);
+            if (bucket != null) {
+                bucket.remove(itemId);
+                if (bucket.isEmpty()) {
+                    frequencies.remove(frequency);
+                }
+            }
+        }
+    }
+}
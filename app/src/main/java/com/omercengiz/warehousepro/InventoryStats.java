@@ -0,0 +1,53 @@
+package com.omercengiz.warehousepro;
+
+/**
+ * InventoryStats - dashboard numbers for the whole inventory table
+ * Low stock means 1 to 5 units (out-of-stock items are counted separately).
+ */
+public class InventoryStats {
+
+    public static final InventoryStats EMPTY = new InventoryStats(0, 0, 0, 0, 0.0);
+
+    private final int totalSkus;
+    private final long totalUnits;
+    private final int outOfStockCount;
+    private final int lowStockCount;
+    private final double totalWeight;
+
+    public InventoryStats(int totalSkus, long totalUnits, int outOfStockCount, int lowStockCount, double totalWeight) {
+        this.totalSkus = totalSkus;
+        this.totalUnits = totalUnits;
+        this.outOfStockCount = outOfStockCount;
+        this.lowStockCount = lowStockCount;
+        this.totalWeight = totalWeight;
+    }
+
+    // Number of distinct items (rows)
+    public int getTotalSkus() {
+        return totalSkus;
+    }
+
+    // Sum of all quantities
+    public long getTotalUnits() {
+        return totalUnits;
+    }
+
+    public int getOutOfStockCount() {
+        return outOfStockCount;
+    }
+
+    public int getLowStockCount() {
+        return lowStockCount;
+    }
+
+    // Sum of weight * quantity, in kg
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InventoryStats{skus=%d, units=%d, outOfStock=%d, lowStock=%d, weight=%.1f}",
+                totalSkus, totalUnits, outOfStockCount, lowStockCount, totalWeight);
+    }
+}
@@ -0,0 +1,77 @@
+package com.omercengiz.warehousepro;
+
+/**
+ * InventoryValidator - input rules for new inventory items
+ * Shared by AddItemActivity and InventoryImporter so both accept exactly the same data.
+ * Each check returns an error message, or null if the value is valid.
+ */
+public final class InventoryValidator {
+
+    public static final int MIN_NAME_LENGTH = 2;
+    public static final double MAX_WEIGHT = 10000;
+    public static final int MAX_QUANTITY = 100000;
+
+    private InventoryValidator() {
+    }
+
+    public static String validateName(String name) {
+        if (name == null || name.isEmpty()) {
+            return "Item name is required";
+        }
+        if (name.length() < MIN_NAME_LENGTH) {
+            return "Item name must be at least " + MIN_NAME_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    public static String validateWeight(String weight) {
+        if (weight == null || weight.isEmpty()) {
+            return "Weight is required";
+        }
+        try {
+            double value = Double.parseDouble(weight);
+            if (value <= 0) {
+                return "Weight must be greater than 0";
+            }
+            if (value > MAX_WEIGHT) {
+                return "Weight seems too large. Please check.";
+            }
+            return null;
+        } catch (NumberFormatException e) {
+            return "Please enter a valid number";
+        }
+    }
+
+    public static String validateQuantity(String quantity) {
+        if (quantity == null || quantity.isEmpty()) {
+            return "Quantity is required";
+        }
+        try {
+            int value = Integer.parseInt(quantity);
+            if (value < 0) {
+                return "Quantity cannot be negative";
+            }
+            if (value > MAX_QUANTITY) {
+                return "Quantity seems too large. Please check.";
+            }
+            return null;
+        } catch (NumberFormatException e) {
+            return "Please enter a valid whole number";
+        }
+    }
+
+    /**
+     * Validate all fields of a new item
+     * @return the first error message, or null if the item can be saved
+     */
+    public static String validate(String name, String weight, String quantity) {
+        String error = validateName(name);
+        if (error == null) {
+            error = validateWeight(weight);
+        }
+        if (error == null) {
+            error = validateQuantity(quantity);
+        }
+        return error;
+    }
+}
@@ -14,15 +14,15 @@ public class MainActivity extends AppCompatActivity {
     private TextInputEditText passwordInput;
     private Button loginButton;
     private Button createAccountButton;
-    private DatabaseHelper databaseHelper;
+    private AsyncDatabase asyncDatabase;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // Initialize database helper
-        databaseHelper = new DatabaseHelper(this);
+        // Database calls run in the background, results arrive on the main thread
+        asyncDatabase = AsyncDatabase.getInstance(this);
 
         // Initialize views
         usernameInput = findViewById(R.id.usernameInput);
@@ -65,34 +65,42 @@ public class MainActivity extends AppCompatActivity {
             return; // Validation failed, error message already shown
         }
 
-        // Authenticate with database
-        if (databaseHelper.authenticateUser(username, password)) {
-            // Login successful
-            Toast.makeText(MainActivity.this,
-                    "Welcome back, " + username + "!",
-                    Toast.LENGTH_SHORT).show();
+        // Authenticate with database in the background; no double submits while it runs
+        loginButton.setEnabled(false);
+        asyncDatabase.authenticateUser(this, username, password).whenComplete((authenticated, error) -> {
+            loginButton.setEnabled(true);
+            if (isFinishing()) {
+                return; // Left the screen while signing in
+            }
 
-            // Navigate to Inventory screen
-            Intent intent = new Intent(MainActivity.this, InventoryActivity.class);
-            intent.putExtra("USERNAME", username); // Pass username to next activity
-            startActivity(intent);
+            if (Boolean.TRUE.equals(authenticated)) {
+                // Login successful
+                Toast.makeText(MainActivity.this,
+                        "Welcome back, " + username + "!",
+                        Toast.LENGTH_SHORT).show();
 
-            // Add smooth transition
-            overridePendingTransition(android.R.anim.slide_in_left, android.R.anim.slide_out_right);
+                // Navigate to Inventory screen
+                Intent intent = new Intent(MainActivity.this, InventoryActivity.class);
+                intent.putExtra("USERNAME", username); // Pass username to next activity
+                startActivity(intent);
 
-            // Clear input fields for security
-            clearInputFields();
+                // Add smooth transition
+                overridePendingTransition(android.R.anim.slide_in_left, android.R.anim.slide_out_right);
 
-        } else {
-            // Login failed
-            Toast.makeText(MainActivity.this,
-                    "Invalid username or password. Please try again.",
-                    Toast.LENGTH_LONG).show();
+                // Clear input fields for security
+                clearInputFields();
 
-            // Clear password field for security
-            passwordInput.setText("");
-            passwordInput.requestFocus();
-        }
+            } else {
+                // Login failed
+                Toast.makeText(MainActivity.this,
+                        "Invalid username or password. Please try again.",
+                        Toast.LENGTH_LONG).show();
+
+                // Clear password field for security
+                passwordInput.setText("");
+                passwordInput.requestFocus();
+            }
+        });
     }
 
     /**
@@ -163,9 +171,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Close database connection
-        if (databaseHelper != null) {
-            databaseHelper.close();
+        // Release shared database reference
+        if (asyncDatabase != null) {
+            asyncDatabase.close();
         }
     }
 }
\ No newline at end of file
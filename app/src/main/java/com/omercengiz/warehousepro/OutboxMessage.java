@@ -0,0 +1,49 @@
+package com.omercengiz.warehousepro;
+
+/**
+ * OutboxMessage - one SMS waiting in the sms_outbox table
+ */
+public class OutboxMessage {
+
+    private final long id;
+    private final String phoneNumber;
+    private final String body;
+    private final int attempts;
+    private final long createdAt;
+
+    public OutboxMessage(long id, String phoneNumber, String body, int attempts, long createdAt) {
+        this.id = id;
+        this.phoneNumber = phoneNumber;
+        this.body = body;
+        this.attempts = attempts;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    // Failed send attempts so far
+    public int getAttempts() {
+        return attempts;
+    }
+
+    // Unix time in milliseconds
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OutboxMessage{id=%d, to='%s', attempts=%d, at=%d}",
+                id, phoneNumber, attempts, createdAt);
+    }
+}
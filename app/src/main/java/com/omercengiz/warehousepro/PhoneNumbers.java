@@ -0,0 +1,61 @@
+package com.omercengiz.warehousepro;
+
+import java.util.regex.Pattern;
+
+/**
+ * PhoneNumbers - validation, normalization and display of phone numbers
+ *
+ * Patterns are compiled once; recipients are stored normalized, so alert sending never
+ * has to clean a number up again.
+ */
+public final class PhoneNumbers {
+
+    // Spaces, dashes, dots and parentheses people type into numbers
+    private static final Pattern FORMATTING = Pattern.compile("[\\s\\-().]");
+    // Optional "+", then 7-15 digits (E.164 allows at most 15)
+    private static final Pattern NORMALIZED = Pattern.compile("\\+?\\d{7,15}");
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D");
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Normalize a number for storage and sending: formatting removed, an international
+     * "00" prefix written as "+"
+     * @param phoneNumber number as typed, e.g. "+1 (555) 123-4567"
+     * @return normalized number, e.g. "+15551234567", or null if it is not a valid number
+     */
+    public static String normalize(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+
+        String clean = FORMATTING.matcher(phoneNumber).replaceAll("");
+        if (clean.startsWith("00")) {
+            clean = "+" + clean.substring(2);
+        }
+        return NORMALIZED.matcher(clean).matches() ? clean : null;
+    }
+
+    /**
+     * @return true if the number has 7-15 digits once formatting is removed
+     */
+    public static boolean isValid(String phoneNumber) {
+        return normalize(phoneNumber) != null;
+    }
+
+    /**
+     * Format a number for display
+     * @param phoneNumber raw or normalized number
+     * @return "(123) 456-7890" for 10-digit numbers, otherwise the number as given
+     */
+    public static String format(String phoneNumber) {
+        if (phoneNumber == null) return "";
+
+        String digits = NON_DIGITS.matcher(phoneNumber).replaceAll("");
+        if (digits.length() == 10) {
+            return "(" + digits.substring(0, 3) + ") " + digits.substring(3, 6) + "-" + digits.substring(6);
+        }
+        return phoneNumber;
+    }
+}
@@ -0,0 +1,116 @@
+package com.omercengiz.warehousepro;
+
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.telephony.SmsManager;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PlatformSmsSender - sends through the platform SmsManager and reports the outcome
+ *
+ * SmsManager does not throw for radio off, no service or generic failures; it reports them
+ * later through the "sent" PendingIntent of each part. Every part gets one, and a receiver
+ * completes the message's future once all parts have reported, exceptionally if one failed.
+ */
+final class PlatformSmsSender implements SmsSender {
+
+    private static final String TAG = "PlatformSmsSender";
+
+    private static final String ACTION_SMS_SENT = "com.omercengiz.warehousepro.SMS_SENT";
+    private static final String EXTRA_SEND_ID = "send_id";
+
+    private final Context context;
+    private final SmsManager smsManager; // Null without telephony
+    private final AtomicInteger nextSendId = new AtomicInteger();
+    private final AtomicInteger nextRequestCode = new AtomicInteger();
+
+    // Messages waiting for their parts to report, by send ID
+    private final Map<Integer, PendingSend> pending = new ConcurrentHashMap<>();
+
+    private final BroadcastReceiver resultReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            PendingSend send = pending.get(intent.getIntExtra(EXTRA_SEND_ID, -1));
+            if (send != null) {
+                send.partReported(getResultCode());
+            }
+        }
+    };
+
+    /**
+     * @param context Any context (the application context is retained, and the result
+     *                receiver stays registered for the life of the process)
+     */
+    PlatformSmsSender(Context context) {
+        this.context = context.getApplicationContext();
+        this.smsManager = this.context.getSystemService(SmsManager.class);
+        this.context.registerReceiver(resultReceiver, new IntentFilter(ACTION_SMS_SENT),
+                Context.RECEIVER_NOT_EXPORTED);
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String phoneNumber, String body) {
+        if (smsManager == null) {
+            return CompletableFuture.failedFuture(new UnsupportedOperationException("No SMS service"));
+        }
+
+        ArrayList<String> parts = smsManager.divideMessage(body);
+        int sendId = nextSendId.incrementAndGet();
+        PendingSend send = new PendingSend(parts.size());
+        pending.put(sendId, send);
+        // Also drops sends whose result never came and were timed out by the caller
+        send.result.whenComplete((ignored, error) -> pending.remove(sendId));
+
+        ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            Intent intent = new Intent(ACTION_SMS_SENT)
+                    .setPackage(context.getPackageName())
+                    .putExtra(EXTRA_SEND_ID, sendId);
+            // One request code per part, or the parts would share one PendingIntent; one left
+            // over from a previous process is replaced rather than reused with its old extras
+            sentIntents.add(PendingIntent.getBroadcast(context, nextRequestCode.getAndIncrement(), intent,
+                    PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_CANCEL_CURRENT));
+        }
+
+        try {
+            if (parts.size() == 1) {
+                smsManager.sendTextMessage(phoneNumber, null, body, sentIntents.get(0), null);
+            } else {
+                smsManager.sendMultipartTextMessage(phoneNumber, null, parts, sentIntents, null);
+            }
+        } catch (RuntimeException e) {
+            send.result.completeExceptionally(e);
+        }
+        return send.result;
+    }
+
+    /**
+     * One message, until every part has reported
+     */
+    private static final class PendingSend {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        private int partsLeft;
+
+        PendingSend(int parts) {
+            this.partsLeft = parts;
+        }
+
+        synchronized void partReported(int resultCode) {
+            if (resultCode != Activity.RESULT_OK) {
+                Log.w(TAG, "SMS part failed, result code " + resultCode);
+                result.completeExceptionally(new IllegalStateException("SMS service error " + resultCode));
+            } else if (--partsLeft == 0) {
+                result.complete(null);
+            }
+        }
+    }
+}
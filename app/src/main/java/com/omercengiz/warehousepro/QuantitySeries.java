@@ -0,0 +1,159 @@
+package com.omercengiz.warehousepro;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * QuantitySeries - stock level of one item over time, one point per bucket, ready to plot
+ *
+ * Built from the quantity_rollups table. Buckets without changes carry the previous
+ * level forward, so the points are evenly spaced.
+ */
+public class QuantitySeries {
+
+    /**
+     * Rollup bucket sizes and how long each one is kept (0 = forever)
+     */
+    public enum Resolution {
+        MINUTE(60, 2L * 24 * 60 * 60),
+        HOUR(60 * 60, 90L * 24 * 60 * 60),
+        DAY(24 * 60 * 60, 0);
+
+        private final int seconds;
+        private final long retentionSeconds;
+
+        Resolution(int seconds, long retentionSeconds) {
+            this.seconds = seconds;
+            this.retentionSeconds = retentionSeconds;
+        }
+
+        public int getSeconds() {
+            return seconds;
+        }
+
+        public long getRetentionSeconds() {
+            return retentionSeconds;
+        }
+
+        // Start of the bucket that contains the given time
+        public long bucketStart(long timeSeconds) {
+            return Math.floorDiv(timeSeconds, seconds) * seconds;
+        }
+
+        /**
+         * Finest resolution that still has data at {@code fromSeconds} and needs at most
+         * {@code maxPoints} points for the range
+         */
+        public static Resolution forRange(long fromSeconds, long toSeconds, long nowSeconds, int maxPoints) {
+            for (Resolution resolution : values()) {
+                boolean retained = resolution.retentionSeconds == 0 ||
+                        fromSeconds >= nowSeconds - resolution.retentionSeconds;
+                long points = (toSeconds - fromSeconds) / resolution.seconds + 1;
+                if (retained && points <= maxPoints) {
+                    return resolution;
+                }
+            }
+            return DAY;
+        }
+    }
+
+    /**
+     * One bucket: lowest, highest and closing quantity
+     */
+    public static final class Point {
+        private final long time;
+        private final int min;
+        private final int max;
+        private final int close;
+        private final int changes;
+
+        public Point(long time, int min, int max, int close, int changes) {
+            this.time = time;
+            this.min = min;
+            this.max = max;
+            this.close = close;
+            this.changes = changes;
+        }
+
+        // Bucket start, Unix seconds
+        public long getTime() {
+            return time;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        // Quantity at the end of the bucket
+        public int getClose() {
+            return close;
+        }
+
+        // Quantity changes within the bucket (0 for carried-forward points)
+        public int getChanges() {
+            return changes;
+        }
+
+        @Override
+        public String toString() {
+            return time + ": " + close + " [" + min + ".." + max + "]";
+        }
+    }
+
+    public static final QuantitySeries EMPTY = new QuantitySeries(Resolution.DAY, Collections.emptyList());
+
+    private final Resolution resolution;
+    private final List<Point> points;
+
+    public QuantitySeries(Resolution resolution, List<Point> points) {
+        this.resolution = resolution;
+        this.points = Collections.unmodifiableList(points);
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    /**
+     * Build an evenly spaced series from the stored buckets
+     * @param resolution bucket size of {@code buckets}
+     * @param fromSeconds range start (rounded down to a bucket)
+     * @param toSeconds range end, inclusive
+     * @param initialQuantity level before the range, or null if unknown (the series then
+     *                        starts at the first stored bucket)
+     * @param buckets stored buckets inside the range, in time order
+     * @return one point per bucket
+     */
+    static QuantitySeries fill(Resolution resolution, long fromSeconds, long toSeconds,
+                               Integer initialQuantity, List<Point> buckets) {
+        List<Point> points = new ArrayList<>();
+        long step = resolution.getSeconds();
+        int next = 0;
+        Integer level = initialQuantity;
+
+        for (long time = resolution.bucketStart(fromSeconds); time <= toSeconds; time += step) {
+            // Buckets before this grid point (e.g. before the range start) only move the level
+            while (next < buckets.size() && buckets.get(next).getTime() < time) {
+                level = buckets.get(next++).getClose();
+            }
+
+            if (next < buckets.size() && buckets.get(next).getTime() == time) {
+                Point bucket = buckets.get(next++);
+                points.add(bucket);
+                level = bucket.getClose();
+            } else if (level != null) {
+                points.add(new Point(time, level, level, level, 0));
+            }
+        }
+        return new QuantitySeries(resolution, points);
+    }
+}
@@ -0,0 +1,406 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuantityWriteBuffer - write-behind buffer for +/- taps
+ * Sums the deltas per item and writes them to SQLite in one transaction on a background
+ * thread, either after a short delay or once enough taps are pending.
+ *
+ * Every tap is first appended to a small journal file, so taps that were not flushed yet
+ * survive a crash and are replayed the next time the buffer is created. The database stores
+ * the last journal entry it has applied, which keeps a replay from applying a delta twice.
+ *
+ * There is one journal per process, so there is one buffer per process too: activities get
+ * it from {@link #getInstance(Context)} and release it with {@link #close()}.
+ */
+public class QuantityWriteBuffer {
+
+    private static final String TAG = "QuantityWriteBuffer";
+
+    public static final String JOURNAL_FILE_NAME = "quantity-journal.log";
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+    public static final int DEFAULT_MAX_PENDING_TAPS = 50;
+
+    private static final long FLUSH_WAIT_SECONDS = 5;
+
+    // Shared instance, reference counted like DatabaseHelper
+    private static QuantityWriteBuffer instance;
+    private static int referenceCount = 0;
+
+    // Writer thread of the shared instance. It outlives the instance, so a buffer created
+    // right after the last one was released (e.g. on rotation) only recovers the journal
+    // once the old buffer's final flush has been committed and its journal closed.
+    private static ScheduledExecutorService sharedWriter;
+
+    private final DatabaseHelper databaseHelper;
+    private final boolean shared;
+    private final File journalFile;
+    private final long flushIntervalMs;
+    private final int maxPendingTaps;
+    private final ScheduledExecutorService writer;
+
+    // Guarded by "this"
+    private Map<Integer, Integer> pendingDeltas = new HashMap<>();
+    private int pendingTaps = 0;
+    private ScheduledFuture<?> scheduledFlush;
+    private FileOutputStream journal;
+    private StringBuilder unjournaledTaps = new StringBuilder(); // Taps made before recovery finished
+    private long lastJournalSeq = 0;
+    private boolean recovered = false;
+    private boolean closed = false;
+
+    // Statistics
+    private long tapCount = 0;
+    private long flushCount = 0;
+
+    /**
+     * Get the process-wide buffer, which journals to the app's files directory.
+     * Every call must be balanced by a call to {@link #close()}.
+     * @param context Any context (the application context is retained)
+     * @return shared QuantityWriteBuffer instance
+     */
+    public static synchronized QuantityWriteBuffer getInstance(Context context) {
+        if (instance == null) {
+            if (sharedWriter == null) {
+                sharedWriter = Executors.newSingleThreadScheduledExecutor();
+            }
+            instance = new QuantityWriteBuffer(DatabaseHelper.getInstance(context), true, sharedWriter,
+                    new File(context.getApplicationContext().getFilesDir(), JOURNAL_FILE_NAME),
+                    DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_MAX_PENDING_TAPS);
+        }
+        referenceCount++;
+        return instance;
+    }
+
+    // Standalone buffer with explicit database, journal and flush settings, used by instrumented tests
+    QuantityWriteBuffer(DatabaseHelper databaseHelper, File journalFile, long flushIntervalMs, int maxPendingTaps) {
+        this(databaseHelper, false, Executors.newSingleThreadScheduledExecutor(), journalFile,
+                flushIntervalMs, maxPendingTaps);
+    }
+
+    private QuantityWriteBuffer(DatabaseHelper databaseHelper, boolean shared, ScheduledExecutorService writer,
+                                File journalFile, long flushIntervalMs, int maxPendingTaps) {
+        this.databaseHelper = databaseHelper;
+        this.shared = shared;
+        this.writer = writer;
+        this.journalFile = journalFile;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxPendingTaps = Math.max(1, maxPendingTaps);
+
+        // Runs before any flush, since the writer thread executes tasks in order
+        writer.execute(this::recover);
+    }
+
+    /**
+     * Record a quantity change. Returns immediately; the database is updated later.
+     * @param itemId item to change
+     * @param delta amount to add (negative to remove stock)
+     */
+    public synchronized void add(int itemId, int delta) {
+        if (closed) {
+            Log.e(TAG, "Tap ignored, buffer already closed - ID: " + itemId);
+            return;
+        }
+
+        tapCount++;
+        appendToJournal(itemId, delta);
+
+        mergeDelta(pendingDeltas, itemId, delta);
+        pendingTaps++;
+
+        if (pendingTaps >= maxPendingTaps) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = writer.schedule(this::flushPending, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write pending changes in the background without waiting
+     */
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        cancelScheduledFlush();
+        writer.execute(this::flushPending);
+    }
+
+    /**
+     * Write pending changes in the background
+     * @return future completed once they are committed (right away if the buffer is closed)
+     */
+    public synchronized CompletableFuture<Void> flushAsync() {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        cancelScheduledFlush();
+        return CompletableFuture.runAsync(this::flushPending, writer);
+    }
+
+    /**
+     * Write pending changes and wait until they are committed (must not be called from the
+     * main thread while the database is busy, and never from the writer thread itself)
+     * @return true if nothing is pending anymore
+     */
+    public boolean flushAndWait() {
+        Future<?> done;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            cancelScheduledFlush();
+            done = writer.submit(this::flushPending);
+        }
+
+        try {
+            done.get(FLUSH_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Log.e(TAG, "Error waiting for flush: " + e.getMessage(), e);
+            return false;
+        }
+
+        synchronized (this) {
+            return pendingDeltas.isEmpty();
+        }
+    }
+
+    /**
+     * Release a reference obtained from {@link #getInstance(Context)}. Once the last one is
+     * released, everything pending is flushed and the journal and database reference are
+     * released; the final write still happens in the background.
+     */
+    public void close() {
+        synchronized (QuantityWriteBuffer.class) {
+            if (this == instance) {
+                if (referenceCount > 0) {
+                    referenceCount--;
+                }
+                if (referenceCount > 0) {
+                    return;
+                }
+                instance = null;
+            }
+        }
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancelScheduledFlush();
+
+            writer.execute(() -> {
+                flushPending();
+                closeJournal();
+                if (shared) {
+                    databaseHelper.close();
+                }
+            });
+            if (!shared) {
+                writer.shutdown();
+            }
+        }
+    }
+
+    // Number of taps recorded and number of database transactions used for them
+    public synchronized long getTapCount() {
+        return tapCount;
+    }
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    // ================== WRITER THREAD ==================
+
+    private void flushPending() {
+        Map<Integer, Integer> batch;
+        long batchSeq;
+
+        synchronized (this) {
+            scheduledFlush = null;
+            if (pendingDeltas.isEmpty()) {
+                return;
+            }
+            batch = pendingDeltas;
+            batchSeq = lastJournalSeq;
+            pendingDeltas = new HashMap<>();
+            pendingTaps = 0;
+        }
+
+        boolean applied = databaseHelper.applyQuantityDeltas(batch, batchSeq);
+
+        synchronized (this) {
+            if (applied) {
+                flushCount++;
+                // Nothing was journaled after this batch - the journal can start over. Not after
+                // close: the journal is released, and the next buffer skips the applied entries.
+                if (!closed && lastJournalSeq == batchSeq && unjournaledTaps.length() == 0) {
+                    resetJournal();
+                }
+            } else {
+                // Keep the deltas (the journal still has them too) and retry later
+                for (Map.Entry<Integer, Integer> entry : batch.entrySet()) {
+                    mergeDelta(pendingDeltas, entry.getKey(), entry.getValue());
+                }
+                if (scheduledFlush == null && !closed) {
+                    scheduledFlush = writer.schedule(this::flushPending, flushIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    // Replay journal entries the database has not seen yet, then start a fresh journal
+    private void recover() {
+        long appliedSeq = 0;
+        String storedSeq = databaseHelper.getMetadata(DatabaseHelper.METADATA_QUANTITY_JOURNAL_SEQ);
+        if (storedSeq != null) {
+            try {
+                appliedSeq = Long.parseLong(storedSeq);
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Invalid stored journal seq: " + storedSeq);
+            }
+        }
+
+        Map<Integer, Integer> replay = new HashMap<>();
+        long maxSeq = appliedSeq;
+
+        if (journalFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(journalFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // seq,itemId,delta - a torn last line from a crash is skipped
+                    String[] parts = line.split(",");
+                    if (parts.length != 3) {
+                        continue;
+                    }
+                    try {
+                        long seq = Long.parseLong(parts[0]);
+                        int itemId = Integer.parseInt(parts[1]);
+                        int delta = Integer.parseInt(parts[2]);
+                        if (seq > appliedSeq) {
+                            mergeDelta(replay, itemId, delta);
+                        }
+                        maxSeq = Math.max(maxSeq, seq);
+                    } catch (NumberFormatException e) {
+                        Log.w(TAG, "Skipping malformed journal entry: " + line);
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading journal: " + e.getMessage(), e);
+            }
+        }
+
+        boolean replayed = maxSeq == appliedSeq || databaseHelper.applyQuantityDeltas(replay, maxSeq);
+        if (maxSeq > appliedSeq) {
+            Log.d(TAG, "Journal replay up to seq " + maxSeq + " (" + replay.size() + " items): " +
+                    (replayed ? "applied" : "failed, retrying with the next flush"));
+        }
+
+        synchronized (this) {
+            lastJournalSeq = maxSeq;
+            recovered = true;
+
+            if (replayed) {
+                // Everything in the journal is in the database now
+                openJournal(true);
+            } else {
+                // Keep the journal and let the next flush carry the deltas
+                openJournal(false);
+                for (Map.Entry<Integer, Integer> entry : replay.entrySet()) {
+                    mergeDelta(pendingDeltas, entry.getKey(), entry.getValue());
+                }
+                if (scheduledFlush == null && !closed) {
+                    scheduledFlush = writer.schedule(this::flushPending, flushIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            // Taps made while recovery was running get their sequence numbers now
+            if (unjournaledTaps.length() > 0) {
+                String[] taps = unjournaledTaps.toString().split("\n");
+                unjournaledTaps = new StringBuilder();
+                for (String tap : taps) {
+                    String[] parts = tap.split(",");
+                    appendToJournal(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+                }
+            }
+        }
+    }
+
+    // ================== JOURNAL (guarded by "this") ==================
+
+    private void appendToJournal(int itemId, int delta) {
+        if (!recovered) {
+            unjournaledTaps.append(itemId).append(',').append(delta).append('\n');
+            return;
+        }
+
+        // Advanced even if the write fails: every batch needs a higher seq than the last one,
+        // or the database takes it for one it has already applied
+        long seq = ++lastJournalSeq;
+        if (journal == null) {
+            return;
+        }
+        try {
+            // One unbuffered write per tap: survives a process crash without an fsync
+            journal.write((seq + "," + itemId + "," + delta + "\n").getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing journal: " + e.getMessage(), e);
+        }
+    }
+
+    private void openJournal(boolean truncate) {
+        try {
+            journal = new FileOutputStream(journalFile, !truncate);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening journal: " + e.getMessage(), e);
+        }
+    }
+
+    private void resetJournal() {
+        closeJournal();
+        openJournal(true);
+    }
+
+    private void closeJournal() {
+        synchronized (this) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Error closing journal: " + e.getMessage(), e);
+                }
+                journal = null;
+            }
+        }
+    }
+
+    private static void mergeDelta(Map<Integer, Integer> deltas, int itemId, int delta) {
+        Integer current = deltas.get(itemId);
+        deltas.put(itemId, current == null ? delta : current + delta);
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.omercengiz.warehousepro;
+
+/**
+ * Recipient - a person who receives stock alerts by SMS
+ *
+ * Recipients subscribe to single items or to a stock level; an alert goes to everyone
+ * subscribed to the item or to a level the item has reached.
+ */
+public class Recipient {
+
+    /**
+     * Stock levels a recipient can subscribe to
+     */
+    public enum StockLevel {
+        OUT_OF_STOCK(0), // Quantity 0
+        LOW_STOCK(1);    // Quantity 5 or less, which includes out of stock
+
+        private final int code;
+
+        StockLevel(int code) {
+            this.code = code;
+        }
+
+        // Value stored in the database
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private final long id;
+    private final String name;
+    private final String phoneNumber;
+
+    public Recipient(long id, String name, String phoneNumber) {
+        this.id = id;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Normalized, ready to send to
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getDisplayPhoneNumber() {
+        return PhoneNumbers.format(phoneNumber);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Recipient{id=%d, name='%s', phone='%s'}", id, name, phoneNumber);
+    }
+}
@@ -7,6 +7,7 @@ import android.widget.Button;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.google.android.material.textfield.TextInputEditText;
+import java.util.concurrent.CompletableFuture;
 
 public class RegistrationActivity extends AppCompatActivity {
 
@@ -16,15 +17,20 @@ public class RegistrationActivity extends AppCompatActivity {
     private TextInputEditText confirmPasswordInput;
     private Button createAccountButton;
     private Button cancelButton;
-    private DatabaseHelper databaseHelper;
+    private AsyncDatabase asyncDatabase;
+
+    // Outcome of a registration attempt
+    private static final int REGISTRATION_CREATED = 0;
+    private static final int REGISTRATION_USERNAME_TAKEN = 1;
+    private static final int REGISTRATION_FAILED = 2;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_registration);
 
-        // Initialize database helper
-        databaseHelper = new DatabaseHelper(this);
+        // Database calls run in the background, results arrive on the main thread
+        asyncDatabase = AsyncDatabase.getInstance(this);
 
         // Initialize views
         initializeViews();
@@ -73,32 +79,43 @@ public class RegistrationActivity extends AppCompatActivity {
             return; // Validation failed
         }
 
-        // Check if username already exists
-        if (databaseHelper.userExists(username)) {
-            usernameInput.setError("Username already exists");
-            usernameInput.requestFocus();
-            Toast.makeText(this, "Username '" + username + "' is already taken", Toast.LENGTH_LONG).show();
-            return;
-        }
+        // Check the username, then create the account, both in the background
+        createAccountButton.setEnabled(false);
+        asyncDatabase.userExists(this, username).thenCompose(exists -> {
+            if (exists) {
+                return CompletableFuture.completedFuture(REGISTRATION_USERNAME_TAKEN);
+            }
+            return asyncDatabase.createUser(this, username, password, email)
+                    .thenApply(created -> created ? REGISTRATION_CREATED : REGISTRATION_FAILED);
+        }).whenComplete((result, error) -> {
+            createAccountButton.setEnabled(true);
+            if (isFinishing()) {
+                return; // Left the screen while registering
+            }
 
-        // Create new user
-        if (databaseHelper.createUser(username, password, email)) {
-            // Registration successful
-            Toast.makeText(this, "Account created successfully! Welcome, " + username + "!", Toast.LENGTH_LONG).show();
+            if (result != null && result == REGISTRATION_USERNAME_TAKEN) {
+                usernameInput.setError("Username already exists");
+                usernameInput.requestFocus();
+                Toast.makeText(this, "Username '" + username + "' is already taken", Toast.LENGTH_LONG).show();
 
-            // Navigate to SMS permissions screen
-            Intent intent = new Intent(RegistrationActivity.this, NotificationActivity.class);
-            intent.putExtra("USERNAME", username);
-            intent.putExtra("FROM_REGISTRATION", true);
-            startActivity(intent);
+            } else if (result != null && result == REGISTRATION_CREATED) {
+                // Registration successful
+                Toast.makeText(this, "Account created successfully! Welcome, " + username + "!", Toast.LENGTH_LONG).show();
 
-            // Close registration activity
-            finish();
+                // Navigate to SMS permissions screen
+                Intent intent = new Intent(RegistrationActivity.this, NotificationActivity.class);
+                intent.putExtra("USERNAME", username);
+                intent.putExtra("FROM_REGISTRATION", true);
+                startActivity(intent);
 
-        } else {
-            // Registration failed
-            Toast.makeText(this, "Failed to create account. Please try again.", Toast.LENGTH_LONG).show();
-        }
+                // Close registration activity
+                finish();
+
+            } else {
+                // Registration failed
+                Toast.makeText(this, "Failed to create account. Please try again.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     /**
@@ -179,8 +196,8 @@ public class RegistrationActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (databaseHelper != null) {
-            databaseHelper.close();
+        if (asyncDatabase != null) {
+            asyncDatabase.close();
         }
     }
 }
\ No newline at end of file
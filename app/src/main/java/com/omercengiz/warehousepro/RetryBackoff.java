@@ -0,0 +1,55 @@
+package com.omercengiz.warehousepro;
+
+import java.util.Random;
+
+/**
+ * RetryBackoff - exponential retry delays with jitter
+ *
+ * The delay doubles with every failed attempt up to a maximum. Half of it is fixed and half
+ * random, so retries of many messages that failed together spread out instead of all
+ * hitting the SMS service again at the same moment.
+ */
+public class RetryBackoff {
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+
+    /**
+     * @param baseDelayMillis delay after the first failure (before jitter)
+     * @param maxDelayMillis upper bound of any delay
+     * @param maxAttempts attempts in total before giving up
+     */
+    public RetryBackoff(long baseDelayMillis, long maxDelayMillis, int maxAttempts) {
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * @param failedAttempts attempts made so far, all failed
+     * @return true if another attempt is allowed
+     */
+    public boolean shouldRetry(int failedAttempts) {
+        return failedAttempts < maxAttempts;
+    }
+
+    /**
+     * Delay before the next attempt
+     * @param failedAttempts attempts made so far, at least 1
+     * @param random jitter source
+     * @return delay in milliseconds, between half of and the full exponential delay
+     */
+    public long delayMillis(int failedAttempts, Random random) {
+        int doublings = Math.min(Math.max(0, failedAttempts - 1), 62);
+        long ceiling = baseDelayMillis > (maxDelayMillis >> doublings)
+                ? maxDelayMillis
+                : Math.min(maxDelayMillis, baseDelayMillis << doublings);
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
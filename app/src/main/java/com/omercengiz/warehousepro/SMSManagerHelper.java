@@ -3,28 +3,46 @@ package com.omercengiz.warehousepro;
 import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.telephony.SmsManager;
 import android.util.Log;
 import androidx.core.content.ContextCompat;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 
 /**
  * SMSManager - Handles SMS sending functionality for inventory notifications
- * Manages SMS permissions and sending low stock alerts
+ * Manages SMS permissions and queues low stock alerts in the SMS outbox;
+ * SmsDispatcher does the actual sending. Alerts raised while working go through
+ * AlertDigester, which combines the items that run out within a few minutes into one SMS.
+ * AlertCooldown sits in front of both, so an item alerts at most once per cooldown.
+ * Alerts go to the recipients subscribed to the item or to its stock level.
  */
 public class SMSManagerHelper {
 
     private static final String TAG = "SMSManagerHelper";
     private Context context;
+    private InventoryRepository repository;
+    private SmsDispatcher dispatcher;
+    private AlertDigester digester;
+    private AlertCooldown cooldown;
     private DatabaseHelper databaseHelper;
 
     // Default notification settings - in production, these could be user configurable
-    private static final String DEFAULT_PHONE_NUMBER = "1234567890"; // Replace with actual number
     private static final boolean SMS_ENABLED = true;
 
+    // Outcomes of addToAlertDigest
+    public static final int ALERT_QUEUED = 0;
+    public static final int ALERT_NO_RECIPIENTS = 1;
+    public static final int ALERT_SUPPRESSED = 2;
+    public static final int ALERT_DISABLED = 3;
+
     public SMSManagerHelper(Context context) {
         this.context = context;
-        this.databaseHelper = new DatabaseHelper(context);
+        this.repository = InventoryRepository.getInstance(context);
+        this.dispatcher = SmsDispatcher.getInstance(context);
+        this.digester = AlertDigester.getInstance(context);
+        this.cooldown = AlertCooldown.getInstance(context);
+        this.databaseHelper = DatabaseHelper.getInstance(context);
     }
 
     /**
@@ -37,10 +55,10 @@ public class SMSManagerHelper {
     }
 
     /**
-     * Send low stock notification SMS
+     * Queue low stock notification SMS. Writes to the outbox - call from a background thread.
      * @param item InventoryItem that reached zero quantity
-     * @param phoneNumber Phone number to send SMS to
-     * @return true if SMS sent successfully, false otherwise
+     * @param phoneNumber Phone number to send SMS to, in any common format (normalized first)
+     * @return true if SMS queued successfully, false otherwise
      */
     public boolean sendLowStockAlert(InventoryItem item, String phoneNumber) {
         if (!SMS_ENABLED) {
@@ -53,88 +71,117 @@ public class SMSManagerHelper {
             return false;
         }
 
-        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-            Log.e(TAG, "Phone number is empty, cannot send SMS");
+        // Stored and sent in the same form as recipients' numbers
+        String normalized = PhoneNumbers.normalize(phoneNumber);
+        if (normalized == null) {
+            Log.e(TAG, "Invalid phone number, cannot send SMS: " + phoneNumber);
             return false;
         }
 
+        if (!cooldown.tryClaim(item.getId())) {
+            return false; // Alerted recently
+        }
+
+        List<Integer> itemIds = Collections.singletonList(item.getId());
         try {
             // Create the SMS message
-            String message = createLowStockMessage(item);
-
-            Log.d(TAG, "Sending SMS to " + phoneNumber + ": " + message);
-
-            // Get SMS manager and send message
-            SmsManager smsManager = SmsManager.getDefault();
+            String message = AlertMessages.lowStock(item, digester.getMessageStyle(), new Date());
 
-            // For long messages, divide into parts
-            ArrayList<String> messageParts = smsManager.divideMessage(message);
-
-            if (messageParts.size() == 1) {
-                // Single SMS
-                smsManager.sendTextMessage(phoneNumber, null, message, null, null);
-            } else {
-                // Multiple SMS parts
-                smsManager.sendMultipartTextMessage(phoneNumber, null, messageParts, null, null);
+            // Stored first, so the alert is not lost if sending fails or the app is killed
+            if (dispatcher.enqueue(normalized, message) < 0) {
+                Log.e(TAG, "Failed to queue SMS for item: " + item.getName());
+                cooldown.release(itemIds);
+                return false;
             }
 
-            Log.d(TAG, "SMS sent successfully for item: " + item.getName());
+            cooldown.confirm(itemIds);
+            Log.d(TAG, "SMS queued for item: " + item.getName());
             return true;
 
         } catch (Exception e) {
-            Log.e(TAG, "Failed to send SMS: " + e.getMessage(), e);
+            Log.e(TAG, "Failed to queue SMS: " + e.getMessage(), e);
+            cooldown.release(itemIds);
             return false;
         }
     }
 
     /**
-     * Send low stock alert using default phone number
+     * Send a low stock alert to every recipient subscribed to the item or its stock level.
+     * The message is built once and queued per recipient without waiting for the outbox.
+     * Reads the database - call from a background thread.
      * @param item InventoryItem that reached zero quantity
-     * @return true if SMS sent successfully, false otherwise
+     * @return true if queued for at least one recipient, false otherwise
      */
     public boolean sendLowStockAlert(InventoryItem item) {
-        return sendLowStockAlert(item, DEFAULT_PHONE_NUMBER);
+        if (!SMS_ENABLED || !isSMSPermissionGranted()) {
+            Log.w(TAG, "SMS disabled or permission not granted, cannot send notification");
+            return false;
+        }
+
+        List<String> recipients = databaseHelper.getAlertRecipients(item.getId(), stockLevelOf(item));
+        if (recipients.isEmpty()) {
+            Log.d(TAG, "No recipients subscribed to alerts for item: " + item.getName());
+            return false;
+        }
+
+        if (!cooldown.tryAcquire(item.getId())) {
+            return false; // Alerted recently
+        }
+
+        String message = AlertMessages.lowStock(item, digester.getMessageStyle(), new Date());
+        for (String phoneNumber : recipients) {
+            dispatcher.enqueueAsync(phoneNumber, message).whenComplete((messageId, error) -> {
+                if (error != null || messageId < 0) {
+                    Log.e(TAG, "Failed to queue SMS for item: " + item.getName(), error);
+                }
+            });
+        }
+        Log.d(TAG, "SMS for item " + item.getName() + " queued for " + recipients.size() + " recipients");
+        return true;
     }
 
     /**
-     * Create formatted SMS message for low stock alert
+     * Add an item to the out-of-stock digest of every recipient subscribed to it or its stock
+     * level; each digest is sent when its window expires or it is full. Reads the database
+     * - call from a background thread.
      * @param item InventoryItem that reached zero quantity
-     * @return formatted SMS message
+     * @return ALERT_QUEUED, or ALERT_NO_RECIPIENTS, ALERT_SUPPRESSED (alerted recently or
+     *         already pending) or ALERT_DISABLED (alerts off or no permission)
      */
-    private String createLowStockMessage(InventoryItem item) {
-        StringBuilder message = new StringBuilder();
-
-        message.append("🚨 WAREHOUSE ALERT 🚨\n");
-        message.append("ITEM OUT OF STOCK!\n\n");
-        message.append("Item: ").append(item.getName()).append("\n");
-        message.append("Quantity: 0\n");
-        message.append("Weight: ").append(item.getFormattedWeight()).append("\n");
+    public int addToAlertDigest(InventoryItem item) {
+        if (!SMS_ENABLED) {
+            Log.d(TAG, "SMS notifications are disabled");
+            return ALERT_DISABLED;
+        }
 
-        if (item.getNotes() != null && !item.getNotes().trim().isEmpty()) {
-            message.append("Notes: ").append(item.getNotes()).append("\n");
+        if (!isSMSPermissionGranted()) {
+            Log.w(TAG, "SMS permission not granted, cannot send notification");
+            return ALERT_DISABLED;
         }
 
-        message.append("\nAction Required: Reorder immediately\n");
-        message.append("Time: ").append(getCurrentTimestamp());
-        message.append("\n\n- Warehouse Pro System");
+        // Checked first, so an alert nobody receives does not start the cooldown
+        List<String> recipients = databaseHelper.getAlertRecipients(item.getId(), stockLevelOf(item));
+        if (recipients.isEmpty()) {
+            return ALERT_NO_RECIPIENTS;
+        }
 
-        return message.toString();
-    }
+        // Confirmed by the digester once the digest is in the outbox
+        if (!cooldown.tryClaim(item.getId())) {
+            return ALERT_SUPPRESSED;
+        }
 
-    /**
-     * Get current timestamp for SMS
-     * @return formatted timestamp string
-     */
-    private String getCurrentTimestamp() {
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMM dd, yyyy HH:mm",
-                java.util.Locale.getDefault());
-        return sdf.format(new java.util.Date());
+        boolean added = false;
+        for (String phoneNumber : recipients) {
+            added |= digester.add(phoneNumber, item);
+        }
+        return added ? ALERT_QUEUED : ALERT_SUPPRESSED;
     }
 
     /**
-     * Send multiple alerts for all zero quantity items
-     * @param phoneNumber Phone number to send alerts to
-     * @return number of successful SMS sent
+     * Queue digests covering all zero quantity items, as few SMS as the digest size allows.
+     * Items that alerted within the cooldown are skipped.
+     * @param phoneNumber Phone number to send alerts to, in any common format (normalized first)
+     * @return number of items queued
      */
     public int sendAllZeroQuantityAlerts(String phoneNumber) {
         if (!isSMSPermissionGranted()) {
@@ -142,9 +189,15 @@ public class SMSManagerHelper {
             return 0;
         }
 
+        String normalized = PhoneNumbers.normalize(phoneNumber);
+        if (normalized == null) {
+            Log.e(TAG, "Invalid phone number for bulk alerts: " + phoneNumber);
+            return 0;
+        }
+
         try {
             // Get all zero quantity items from database
-            java.util.List<InventoryItem> zeroItems = databaseHelper.getZeroQuantityItems();
+            java.util.List<InventoryItem> zeroItems = repository.getZeroQuantityItems();
 
             if (zeroItems.isEmpty()) {
                 Log.d(TAG, "No zero quantity items found");
@@ -154,19 +207,50 @@ public class SMSManagerHelper {
             int successCount = 0;
 
             for (InventoryItem item : zeroItems) {
-                if (sendLowStockAlert(item, phoneNumber)) {
+                if (cooldown.tryClaim(item.getId()) && digester.add(normalized, item)) {
                     successCount++;
+                }
+            }
+            // No reason to wait for the window, every item is already known
+            digester.flush();
 
-                    // Small delay between messages to avoid spam detection
-                    try {
-                        Thread.sleep(1000); // 1 second delay
-                    } catch (InterruptedException e) {
-                        Log.w(TAG, "Sleep interrupted: " + e.getMessage());
-                    }
+            Log.d(TAG, "Queued " + successCount + " out of " + zeroItems.size() + " items for SMS alerts");
+            return successCount;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending bulk SMS alerts: " + e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Queue digests covering all zero quantity items for their subscribed recipients.
+     * Items that alerted within the cooldown or have no recipients are skipped.
+     * @return number of items queued
+     */
+    public int sendAllZeroQuantityAlerts() {
+        if (!isSMSPermissionGranted()) {
+            Log.w(TAG, "SMS permission not granted for bulk alerts");
+            return 0;
+        }
+
+        try {
+            List<InventoryItem> zeroItems = repository.getZeroQuantityItems();
+
+            int successCount = 0;
+            for (InventoryItem item : zeroItems) {
+                List<String> recipients = databaseHelper.getAlertRecipients(item.getId(), Recipient.StockLevel.OUT_OF_STOCK);
+                if (recipients.isEmpty() || !cooldown.tryClaim(item.getId())) {
+                    continue;
                 }
+                for (String phoneNumber : recipients) {
+                    digester.add(phoneNumber, item);
+                }
+                successCount++;
             }
+            digester.flush();
 
-            Log.d(TAG, "Sent " + successCount + " out of " + zeroItems.size() + " SMS alerts");
+            Log.d(TAG, "Queued " + successCount + " out of " + zeroItems.size() + " items for SMS alerts");
             return successCount;
 
         } catch (Exception e) {
@@ -177,8 +261,8 @@ public class SMSManagerHelper {
 
     /**
      * Test SMS functionality with a simple test message
-     * @param phoneNumber Phone number to send test to
-     * @return true if test SMS sent successfully
+     * @param phoneNumber Phone number to send test to, in any common format (normalized first)
+     * @return true if test SMS queued successfully
      */
     public boolean sendTestSMS(String phoneNumber) {
         if (!isSMSPermissionGranted()) {
@@ -186,17 +270,25 @@ public class SMSManagerHelper {
             return false;
         }
 
+        String normalized = PhoneNumbers.normalize(phoneNumber);
+        if (normalized == null) {
+            Log.e(TAG, "Invalid phone number for test SMS: " + phoneNumber);
+            return false;
+        }
+
         try {
-            String testMessage = "📱 Warehouse Pro SMS Test\n\nThis is a test message to verify SMS functionality is working correctly.\n\nTime: " + getCurrentTimestamp();
+            String testMessage = AlertMessages.test(new Date());
 
-            SmsManager smsManager = SmsManager.getDefault();
-            smsManager.sendTextMessage(phoneNumber, null, testMessage, null, null);
+            if (dispatcher.enqueue(normalized, testMessage) < 0) {
+                Log.e(TAG, "Failed to queue test SMS");
+                return false;
+            }
 
-            Log.d(TAG, "Test SMS sent successfully to " + phoneNumber);
+            Log.d(TAG, "Test SMS queued for " + normalized);
             return true;
 
         } catch (Exception e) {
-            Log.e(TAG, "Failed to send test SMS: " + e.getMessage(), e);
+            Log.e(TAG, "Failed to queue test SMS: " + e.getMessage(), e);
             return false;
         }
     }
@@ -207,15 +299,7 @@ public class SMSManagerHelper {
      * @return true if valid format, false otherwise
      */
     public static boolean isValidPhoneNumber(String phoneNumber) {
-        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-            return false;
-        }
-
-        // Remove common formatting characters
-        String cleanNumber = phoneNumber.replaceAll("[\\s\\-\\(\\)\\+]", "");
-
-        // Check if it's all digits and reasonable length (7-15 digits)
-        return cleanNumber.matches("\\d{7,15}");
+        return PhoneNumbers.isValid(phoneNumber);
     }
 
     /**
@@ -224,25 +308,20 @@ public class SMSManagerHelper {
      * @return formatted phone number
      */
     public static String formatPhoneNumber(String phoneNumber) {
-        if (phoneNumber == null) return "";
-
-        String cleanNumber = phoneNumber.replaceAll("[^\\d]", "");
-
-        if (cleanNumber.length() == 10) {
-            // US format: (123) 456-7890
-            return String.format("(%s) %s-%s",
-                    cleanNumber.substring(0, 3),
-                    cleanNumber.substring(3, 6),
-                    cleanNumber.substring(6));
-        }
+        return PhoneNumbers.format(phoneNumber);
+    }
 
-        return phoneNumber; // Return as-is if not standard format
+    private static Recipient.StockLevel stockLevelOf(InventoryItem item) {
+        return item.isOutOfStock() ? Recipient.StockLevel.OUT_OF_STOCK : Recipient.StockLevel.LOW_STOCK;
     }
 
     /**
-     * Clean up resources
+     * Release the repository and database references taken by the constructor
      */
     public void cleanup() {
+        if (repository != null) {
+            repository.close();
+        }
         if (databaseHelper != null) {
             databaseHelper.close();
         }
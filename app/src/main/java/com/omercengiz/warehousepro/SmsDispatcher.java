@@ -0,0 +1,343 @@
+package com.omercengiz.warehousepro;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SmsDispatcher - sends the messages queued in the sms_outbox table
+ *
+ * Messages are stored before anything is sent, so they survive a crash or restart; the
+ * dispatcher picks up whatever is left when it starts. Sends are throttled by a token
+ * bucket, and a failed send is retried with exponential backoff and jitter until it runs
+ * out of attempts. Nothing sleeps: when the bucket is empty or the next retry is in the
+ * future, the dispatcher schedules a wake-up and gives its thread back to the ALERTS pool.
+ * A message only leaves the outbox once the SMS service reports it as sent; until then it
+ * stays pending, leased so it is not picked up again.
+ */
+public class SmsDispatcher {
+
+    private static final String TAG = "SmsDispatcher";
+
+    // Short bursts are fine, sustained sending is held to one message per second
+    public static final int BURST_SIZE = 5;
+    public static final double SENDS_PER_SECOND = 1.0;
+
+    public static final long RETRY_BASE_DELAY_MS = 30_000;
+    public static final long RETRY_MAX_DELAY_MS = 60 * 60 * 1000;
+    public static final int MAX_ATTEMPTS = 8;
+
+    // How long the SMS service may take to report on a message before it counts as failed
+    public static final long SEND_RESULT_TIMEOUT_MS = 2 * 60 * 1000;
+
+    // A message handed to the service is not due again before this; it only gets there if the
+    // process died before the result arrived
+    private static final long SEND_LEASE_MS = 2 * SEND_RESULT_TIMEOUT_MS;
+
+    // Due messages read per query
+    private static final int BATCH_SIZE = 20;
+
+    /**
+     * Point-in-time statistics
+     */
+    public static final class Metrics {
+        private final int queueDepth;
+        private final long sent;
+        private final long segmentsSent;
+        private final long retried;
+        private final long failed;
+        private final long totalQueueLatencyMs;
+        private final long maxQueueLatencyMs;
+        private final long totalSendNanos;
+
+        Metrics(int queueDepth, long sent, long segmentsSent, long retried, long failed, long totalQueueLatencyMs,
+                long maxQueueLatencyMs, long totalSendNanos) {
+            this.queueDepth = queueDepth;
+            this.sent = sent;
+            this.segmentsSent = segmentsSent;
+            this.retried = retried;
+            this.failed = failed;
+            this.totalQueueLatencyMs = totalQueueLatencyMs;
+            this.maxQueueLatencyMs = maxQueueLatencyMs;
+            this.totalSendNanos = totalSendNanos;
+        }
+
+        // Messages not sent yet, including ones in flight or waiting for a retry
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        // Segments the sent messages were split into, as predicted by SmsEncoder (what is billed)
+        public long getSegmentsSent() {
+            return segmentsSent;
+        }
+
+        // Failed attempts that were rescheduled
+        public long getRetried() {
+            return retried;
+        }
+
+        // Messages given up on after the last attempt
+        public long getFailed() {
+            return failed;
+        }
+
+        // Time from queueing to a successful send, including throttling and retries
+        public double getAverageQueueLatencyMs() {
+            return sent == 0 ? 0 : (double) totalQueueLatencyMs / sent;
+        }
+
+        public long getMaxQueueLatencyMs() {
+            return maxQueueLatencyMs;
+        }
+
+        // Time from handing a message to the SMS service until it reported it as sent
+        public double getAverageSendMs() {
+            return sent == 0 ? 0 : totalSendNanos / 1e6 / sent;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "queued=%d sent=%d (%d segments) retried=%d failed=%d latency avg=%.0fms max=%dms send avg=%.1fms",
+                    queueDepth, sent, segmentsSent, retried, failed, getAverageQueueLatencyMs(), maxQueueLatencyMs, getAverageSendMs());
+        }
+    }
+
+    // Process-wide instance; it keeps its database reference for the life of the process
+    private static SmsDispatcher instance;
+
+    /**
+     * Get the process-wide dispatcher. The first call starts sending whatever a previous
+     * run left in the outbox.
+     * @param context Any context (the application context is retained)
+     * @return shared SmsDispatcher instance
+     */
+    public static synchronized SmsDispatcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new SmsDispatcher(DatabaseHelper.getInstance(context), new PlatformSmsSender(context),
+                    new TokenBucket(BURST_SIZE, SENDS_PER_SECOND),
+                    new RetryBackoff(RETRY_BASE_DELAY_MS, RETRY_MAX_DELAY_MS, MAX_ATTEMPTS),
+                    TaskScheduler.getInstance());
+            instance.start();
+        }
+        return instance;
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final SmsSender sender;
+    private final TokenBucket tokenBucket;
+    private final RetryBackoff backoff;
+    private final TaskScheduler scheduler;
+    private final TaskScheduler.SerialExecutor worker; // One pass at a time
+    private final Handler timerHandler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private final Runnable wakeUp = this::onWakeUp;
+    private long scheduledWakeAt = Long.MAX_VALUE; // Uptime millis, guarded by "this"
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder segmentsSent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalQueueLatencyMs = new LongAdder();
+    private final AtomicLong maxQueueLatencyMs = new AtomicLong();
+    private final LongAdder totalSendNanos = new LongAdder();
+
+    // Explicit collaborators, used by instrumented tests (call start() to begin)
+    SmsDispatcher(DatabaseHelper databaseHelper, SmsSender sender, TokenBucket tokenBucket,
+                  RetryBackoff backoff, TaskScheduler scheduler) {
+        this.databaseHelper = databaseHelper;
+        this.sender = sender;
+        this.tokenBucket = tokenBucket;
+        this.backoff = backoff;
+        this.scheduler = scheduler;
+        this.worker = scheduler.serialExecutor(TaskScheduler.Pool.ALERTS);
+    }
+
+    // Send anything already waiting in the outbox
+    void start() {
+        requestDrain();
+    }
+
+    /**
+     * Queue a message. Blocks on a database insert - call from a background thread.
+     * @param phoneNumber recipient
+     * @param body message text
+     * @return message ID, or -1 if it could not be stored
+     */
+    public long enqueue(String phoneNumber, String body) {
+        long messageId = databaseHelper.enqueueSms(phoneNumber, body);
+        if (messageId >= 0) {
+            Log.d(TAG, "SMS " + messageId + " queued: " + SmsEncoder.describe(body));
+            queueDepth.incrementAndGet();
+            requestDrain();
+        }
+        return messageId;
+    }
+
+    /**
+     * Queue a message without blocking
+     * @return future completed on an IO thread with the message ID, or -1 if it could not be stored
+     */
+    public CompletableFuture<Long> enqueueAsync(String phoneNumber, String body) {
+        return scheduler.submit(TaskScheduler.Pool.IO, () -> enqueue(phoneNumber, body));
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(queueDepth.get(), sent.sum(), segmentsSent.sum(), retried.sum(), failed.sum(),
+                totalQueueLatencyMs.sum(), maxQueueLatencyMs.get(), totalSendNanos.sum());
+    }
+
+    // ================== DISPATCH (worker thread) ==================
+
+    private void requestDrain() {
+        if (!drainQueued.compareAndSet(false, true)) {
+            return; // A pass is already queued and will see the new message
+        }
+        try {
+            worker.execute(() -> {
+                drainQueued.set(false);
+                drain();
+            });
+        } catch (RejectedExecutionException e) {
+            drainQueued.set(false);
+            Log.w(TAG, "ALERTS queue full, trying again later");
+            scheduleWakeUp(1000);
+        }
+    }
+
+    // Send every due message the bucket allows, then sleep until the next one is due
+    private void drain() {
+        while (true) {
+            List<OutboxMessage> due = databaseHelper.getDueSms(System.currentTimeMillis(), BATCH_SIZE);
+            if (due.isEmpty()) {
+                break;
+            }
+
+            for (OutboxMessage message : due) {
+                if (!tokenBucket.tryAcquire()) {
+                    scheduleWakeUp(tokenBucket.getWaitMillis());
+                    return;
+                }
+                if (!send(message)) {
+                    // The outbox could not be updated; don't send the same message again right away
+                    scheduleWakeUp(RETRY_BASE_DELAY_MS);
+                    return;
+                }
+            }
+        }
+
+        int pending = databaseHelper.getPendingSmsCount();
+        if (pending >= 0) {
+            queueDepth.set(pending);
+        }
+        long next = databaseHelper.getNextSmsAttemptTime();
+        if (next >= 0) {
+            scheduleWakeUp(Math.max(0, next - System.currentTimeMillis()));
+        }
+    }
+
+    // Hand one message to the SMS service; the outcome is recorded once the service reports it.
+    // False if the outbox could not be updated.
+    private boolean send(OutboxMessage message) {
+        if (!databaseHelper.leaseSms(message.getId(), System.currentTimeMillis() + SEND_LEASE_MS)) {
+            return false;
+        }
+
+        long startTime = System.nanoTime();
+        CompletableFuture<Void> result;
+        try {
+            result = sender.send(message.getPhoneNumber(), message.getBody());
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.orTimeout(SEND_RESULT_TIMEOUT_MS, TimeUnit.MILLISECONDS).whenComplete((ignored, error) -> {
+            long sendNanos = System.nanoTime() - startTime;
+            try {
+                // Results arrive on the main thread; the outbox is updated on the worker
+                worker.execute(() -> recordResult(message, sendNanos, error));
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "ALERTS queue full, SMS " + message.getId() + " is sent again when its lease runs out");
+            }
+        });
+        return true;
+    }
+
+    // Delete a sent message, reschedule or give up on a failed one
+    private void recordResult(OutboxMessage message, long sendNanos, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            int attempts = message.getAttempts() + 1;
+            String reason = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+
+            if (backoff.shouldRetry(attempts)) {
+                long delay = backoff.delayMillis(attempts, random);
+                retried.increment();
+                Log.w(TAG, "SMS " + message.getId() + " failed (attempt " + attempts + "), retrying in " +
+                        delay + " ms: " + reason);
+                // If this write fails, the lease runs out instead
+                if (databaseHelper.rescheduleSms(message.getId(), attempts, System.currentTimeMillis() + delay, reason)) {
+                    scheduleWakeUp(delay);
+                }
+                return;
+            }
+
+            failed.increment();
+            queueDepth.decrementAndGet();
+            Log.e(TAG, "SMS " + message.getId() + " failed after " + attempts + " attempts: " + reason);
+            databaseHelper.failSms(message.getId(), attempts, reason);
+            return;
+        }
+
+        long latency = System.currentTimeMillis() - message.getCreatedAt();
+        totalSendNanos.add(sendNanos);
+        totalQueueLatencyMs.add(latency);
+        maxQueueLatencyMs.accumulateAndGet(latency, Math::max);
+        sent.increment();
+        segmentsSent.add(SmsEncoder.segmentCount(message.getBody()));
+        queueDepth.decrementAndGet();
+        Log.d(TAG, "SMS " + message.getId() + " sent after " + latency + " ms");
+        databaseHelper.deleteSms(message.getId());
+    }
+
+    // ================== WAKE-UPS ==================
+
+    // Keep a single wake-up, at the earliest time anyone asked for
+    private synchronized void scheduleWakeUp(long delayMillis) {
+        long wakeAt = SystemClock.uptimeMillis() + delayMillis;
+        if (wakeAt >= scheduledWakeAt) {
+            return;
+        }
+        scheduledWakeAt = wakeAt;
+        timerHandler.removeCallbacks(wakeUp);
+        timerHandler.postAtTime(wakeUp, wakeAt);
+    }
+
+    private void onWakeUp() {
+        synchronized (this) {
+            scheduledWakeAt = Long.MAX_VALUE;
+        }
+        requestDrain();
+    }
+}
@@ -0,0 +1,189 @@
+package com.omercengiz.warehousepro;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SmsEncoder - predicts how a text is encoded and split into SMS segments
+ *
+ * A message that only uses the GSM 03.38 alphabet is sent as GSM-7: 160 characters in one
+ * segment, 153 per segment once split. A single character outside it (an emoji, a curly
+ * quote) switches the whole message to UCS-2: 70 per segment, 67 once split. Characters
+ * from the GSM extension table ({@code €[]{}} etc.) take two places.
+ */
+public final class SmsEncoder {
+
+    public enum Encoding {
+        GSM_7(160, 153),
+        UCS_2(70, 67);
+
+        private final int singleLimit;
+        private final int partLimit;
+
+        Encoding(int singleLimit, int partLimit) {
+            this.singleLimit = singleLimit;
+            this.partLimit = partLimit;
+        }
+
+        // Length that still fits in one segment
+        public int getSingleLimit() {
+            return singleLimit;
+        }
+
+        // Length per segment of a split message (the rest is the part header)
+        public int getPartLimit() {
+            return partLimit;
+        }
+    }
+
+    // GSM 03.38 basic table (without the escape character)
+    private static final String GSM_BASIC =
+            "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?" +
+                    "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§¿abcdefghijklmnopqrstuvwxyzäöñüà";
+
+    // Extension table, sent as escape + character
+    private static final String GSM_EXTENSION = "\f^{}\\[~]|€";
+
+    // Common characters with a close GSM-7 equivalent
+    private static final Map<Character, String> REPLACEMENTS = new HashMap<>();
+
+    static {
+        for (char c : "‘’‚‛′`´".toCharArray()) REPLACEMENTS.put(c, "'");
+        for (char c : "“”„‟″".toCharArray()) REPLACEMENTS.put(c, "\"");
+        for (char c : "‐‑‒–—―−".toCharArray()) REPLACEMENTS.put(c, "-");
+        for (char c : "\u00A0\u2007\u2009\u202F\t".toCharArray()) REPLACEMENTS.put(c, " ");
+        REPLACEMENTS.put('…', "...");
+        REPLACEMENTS.put('•', "-");
+        REPLACEMENTS.put('×', "x");
+        REPLACEMENTS.put('°', " deg");
+    }
+
+    private SmsEncoder() {
+    }
+
+    /**
+     * Encoding the text will be sent in
+     * @param text message text
+     * @return GSM_7 if every character is in the GSM alphabet, UCS_2 otherwise
+     */
+    public static Encoding encodingOf(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isGsm7(text.charAt(i))) {
+                return Encoding.UCS_2;
+            }
+        }
+        return Encoding.GSM_7;
+    }
+
+    /**
+     * Length as counted against the segment limits: septets for GSM-7, UTF-16 units for UCS-2
+     */
+    public static int length(CharSequence text) {
+        Encoding encoding = encodingOf(text);
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            length += unitLength(encoding, text.charAt(i));
+        }
+        return length;
+    }
+
+    /**
+     * Number of segments the text will be sent as. Escape sequences and surrogate pairs are
+     * never split across segments, as the platform does it.
+     * @param text message text
+     * @return segment count, at least 1
+     */
+    public static int segmentCount(CharSequence text) {
+        Encoding encoding = encodingOf(text);
+        if (length(text) <= encoding.singleLimit) {
+            return 1;
+        }
+
+        int segments = 1;
+        int used = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int units = unitLength(encoding, text.charAt(i));
+            if (Character.isHighSurrogate(text.charAt(i)) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                units++;
+                i++;
+            }
+            if (used + units > encoding.partLimit) {
+                segments++;
+                used = 0;
+            }
+            used += units;
+        }
+        return segments;
+    }
+
+    /**
+     * Replace characters outside the GSM alphabet: typographic punctuation with its plain
+     * form, accented letters with the base letter, anything else (emoji etc.) with '?'
+     * @param text any text
+     * @return text that encodes as GSM-7
+     */
+    public static String toGsm7(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isGsm7(c)) {
+                result.append(c);
+                continue;
+            }
+
+            String replacement = REPLACEMENTS.get(c);
+            if (replacement == null) {
+                // Strip accents: "ő" decomposes to "o" plus a combining mark
+                String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                replacement = base.length() > 0 && isGsm7(base.charAt(0)) ? base.substring(0, 1) : "?";
+            }
+            result.append(replacement);
+            if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                i++; // One '?' per emoji, not per UTF-16 unit
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Shorten text to at most {@code maxLength} GSM-7 septets, ending with "..." if cut
+     * @param text GSM-7 text
+     * @param maxLength septets available
+     * @return text itself if it fits, otherwise a shortened copy
+     */
+    public static String truncate(String text, int maxLength) {
+        if (length(text) <= maxLength) {
+            return text;
+        }
+        int available = maxLength - 3;
+        int used = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int units = unitLength(Encoding.GSM_7, text.charAt(end));
+            if (used + units > available) {
+                break;
+            }
+            used += units;
+            end++;
+        }
+        return available > 0 ? text.substring(0, end).trim() + "..." : "";
+    }
+
+    /**
+     * Summary for logging, e.g. "GSM_7, 142 chars, 1 segment"
+     */
+    public static String describe(CharSequence text) {
+        int segments = segmentCount(text);
+        return encodingOf(text) + ", " + length(text) + " chars, " + segments + (segments == 1 ? " segment" : " segments");
+    }
+
+    private static boolean isGsm7(char c) {
+        return GSM_BASIC.indexOf(c) >= 0 || GSM_EXTENSION.indexOf(c) >= 0;
+    }
+
+    private static int unitLength(Encoding encoding, char c) {
+        return encoding == Encoding.GSM_7 && GSM_EXTENSION.indexOf(c) >= 0 ? 2 : 1;
+    }
+}
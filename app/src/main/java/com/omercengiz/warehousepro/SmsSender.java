@@ -0,0 +1,20 @@
+package com.omercengiz.warehousepro;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SmsSender - hands one text message to the phone's SMS service
+ *
+ * SmsDispatcher talks to this instead of SmsManager directly, so tests can use a fake.
+ */
+public interface SmsSender {
+
+    /**
+     * Send a message, split into parts if it is too long for one
+     * @param phoneNumber recipient
+     * @param body message text
+     * @return future completed once the SMS service has reported on the message: normally if
+     *         it was sent, exceptionally if not (the dispatcher retries it)
+     */
+    CompletableFuture<Void> send(String phoneNumber, String body);
+}
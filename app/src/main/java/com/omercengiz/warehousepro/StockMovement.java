@@ -0,0 +1,50 @@
+package com.omercengiz.warehousepro;
+
+/**
+ * StockMovement - one entry of the append-only stock ledger
+ */
+public class StockMovement {
+
+    private final long id;
+    private final int itemId;
+    private final int delta;
+    private final String username;
+    private final long createdAt;
+
+    public StockMovement(long id, int itemId, int delta, String username, long createdAt) {
+        this.id = id;
+        this.itemId = itemId;
+        this.delta = delta;
+        this.username = username;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getItemId() {
+        return itemId;
+    }
+
+    // Change in quantity (negative for removals)
+    public int getDelta() {
+        return delta;
+    }
+
+    // User signed in when the change was made, or null if unknown
+    public String getUsername() {
+        return username;
+    }
+
+    // Unix time in seconds
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StockMovement{id=%d, itemId=%d, delta=%+d, user='%s', at=%d}",
+                id, itemId, delta, username, createdAt);
+    }
+}
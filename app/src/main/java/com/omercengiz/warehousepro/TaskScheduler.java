@@ -0,0 +1,405 @@
+package com.omercengiz.warehousepro;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TaskScheduler - app-wide background threads
+ *
+ * Work goes to one of a few named pools, each with a fixed number of threads and a bounded
+ * queue; a full queue rejects new work instead of growing. Work started for a screen is
+ * cancelled when the screen is destroyed, and its result is only delivered (on the main
+ * thread) while the screen is still alive. Every pool keeps queue depth and latency metrics.
+ */
+public final class TaskScheduler {
+
+    private static final String TAG = "TaskScheduler";
+
+    // Tasks that waited longer than this in a queue are logged
+    private static final long SLOW_QUEUE_WAIT_MS = 500;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Named pools: threads and queue capacity
+     */
+    public enum Pool {
+        IO("io", 4, 256),         // Database and file work
+        CPU("cpu", Math.max(2, Runtime.getRuntime().availableProcessors()), 128), // Parsing, aggregation
+        ALERTS("alerts", 1, 32);  // Outgoing SMS, one at a time
+
+        private final String threadName;
+        private final int threads;
+        private final int queueCapacity;
+
+        Pool(String threadName, int threads, int queueCapacity) {
+            this.threadName = threadName;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+    }
+
+    /**
+     * Result callback, called on the main thread
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * Point-in-time statistics of one pool
+     */
+    public static final class Metrics {
+        private final int queueDepth;
+        private final int activeThreads;
+        private final long submitted;
+        private final long completed;
+        private final long rejected;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long totalRunNanos;
+
+        Metrics(int queueDepth, int activeThreads, long submitted, long completed, long rejected,
+                long totalWaitNanos, long maxWaitNanos, long totalRunNanos) {
+            this.queueDepth = queueDepth;
+            this.activeThreads = activeThreads;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.totalRunNanos = totalRunNanos;
+        }
+
+        // Tasks waiting for a thread right now
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getActiveThreads() {
+            return activeThreads;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        // Tasks turned away because the queue was full
+        public long getRejected() {
+            return rejected;
+        }
+
+        // Average and longest time between submit and start
+        public double getAverageWaitMs() {
+            return completed == 0 ? 0 : totalWaitNanos / 1e6 / completed;
+        }
+
+        public double getMaxWaitMs() {
+            return maxWaitNanos / 1e6;
+        }
+
+        public double getAverageRunMs() {
+            return completed == 0 ? 0 : totalRunNanos / 1e6 / completed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "queued=%d active=%d submitted=%d completed=%d rejected=%d wait avg=%.1fms max=%.1fms run avg=%.1fms",
+                    queueDepth, activeThreads, submitted, completed, rejected,
+                    getAverageWaitMs(), getMaxWaitMs(), getAverageRunMs());
+        }
+    }
+
+    // Process-wide instance; threads time out when idle, so it is never shut down
+    private static TaskScheduler instance;
+
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+
+    private final Map<Pool, PoolExecutor> executors = new EnumMap<>(Pool.class);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Separate scheduler with its own threads, used by instrumented tests
+    TaskScheduler() {
+        for (Pool pool : Pool.values()) {
+            executors.put(pool, new PoolExecutor(pool));
+        }
+    }
+
+    /**
+     * Run work in the background
+     * @param pool pool to run on
+     * @param work the work
+     * @throws RejectedExecutionException if the pool's queue is full
+     */
+    public void execute(Pool pool, Runnable work) {
+        executors.get(pool).execute(work);
+    }
+
+    /**
+     * Run work in the background and get its result
+     * @param pool pool to run on
+     * @param work the work
+     * @return future completed on the pool thread with the result, or exceptionally if the
+     *         work threw or the queue was full
+     */
+    public <T> CompletableFuture<T> submit(Pool pool, Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            execute(pool, () -> {
+                try {
+                    result.complete(work.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Run work for a screen. Call from the main thread. If the screen is destroyed first,
+     * queued work is dropped, running work is interrupted and the result is discarded.
+     * @param owner activity (or other lifecycle owner) the work belongs to
+     * @param pool pool to run on
+     * @param work the work
+     * @param onResult called on the main thread with the result, may be null
+     * @return the task, e.g. to cancel it earlier
+     * @throws RejectedExecutionException if the pool's queue is full
+     */
+    public <T> Future<T> submit(LifecycleOwner owner, Pool pool, Callable<T> work, Callback<T> onResult) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        OwnedTask<T> task = new OwnedTask<>(work, lifecycle, onResult);
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            task.cancel(false);
+            return task;
+        }
+
+        lifecycle.addObserver(task);
+        try {
+            execute(pool, task);
+        } catch (RejectedExecutionException e) {
+            lifecycle.removeObserver(task);
+            task.cancel(false);
+            throw e;
+        }
+        return task;
+    }
+
+    /**
+     * Executor that runs tasks on a pool one at a time, in submission order
+     * @param pool pool to run on
+     * @return new serial executor
+     */
+    public SerialExecutor serialExecutor(Pool pool) {
+        return new SerialExecutor(executors.get(pool), pool.queueCapacity);
+    }
+
+    public Metrics getMetrics(Pool pool) {
+        return executors.get(pool).metrics();
+    }
+
+    // Stop all threads, used by instrumented tests
+    void shutdownNow() {
+        for (PoolExecutor executor : executors.values()) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs tasks one at a time in submission order on a shared pool
+     */
+    public static final class SerialExecutor implements Executor {
+        private final Executor pool;
+        private final int capacity;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+
+        SerialExecutor(Executor pool, int capacity) {
+            this.pool = pool;
+            this.capacity = capacity;
+        }
+
+        /**
+         * @throws RejectedExecutionException if too many tasks are waiting
+         */
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (tasks.size() >= capacity) {
+                throw new RejectedExecutionException("Serial queue full");
+            }
+            tasks.offer(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        // Drop tasks that have not started yet
+        public synchronized void clear() {
+            tasks.clear();
+        }
+
+        private synchronized void scheduleNext() {
+            while ((active = tasks.poll()) != null) {
+                try {
+                    pool.execute(active);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    Log.e(TAG, "Serial task dropped, pool queue full", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Work owned by a lifecycle: cancelled on destroy, result delivered on the main thread
+     */
+    private final class OwnedTask<T> extends FutureTask<T> implements LifecycleEventObserver {
+        private final Lifecycle lifecycle;
+        private final Callback<T> onResult;
+
+        OwnedTask(Callable<T> work, Lifecycle lifecycle, Callback<T> onResult) {
+            super(work);
+            this.lifecycle = lifecycle;
+            this.onResult = onResult;
+        }
+
+        @Override
+        public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                cancel(true);
+            }
+        }
+
+        @Override
+        protected void done() {
+            mainHandler.post(this::deliver);
+        }
+
+        private void deliver() {
+            lifecycle.removeObserver(this);
+            if (isCancelled() || lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                return;
+            }
+
+            try {
+                T result = get();
+                if (onResult != null) {
+                    onResult.onResult(result);
+                }
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Background task failed: " + e.getCause(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Bounded pool that records queue wait and run time of every task
+     */
+    private static final class PoolExecutor extends ThreadPoolExecutor {
+        private final Pool pool;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAdder totalRunNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        PoolExecutor(Pool pool) {
+            super(pool.threads, pool.threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(pool.queueCapacity), threadFactory(pool));
+            this.pool = pool;
+            allowCoreThreadTimeOut(true);
+        }
+
+        private static ThreadFactory threadFactory(Pool pool) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return runnable -> new Thread(runnable, pool.threadName + "-" + threadNumber.incrementAndGet());
+        }
+
+        @Override
+        public void execute(Runnable work) {
+            long enqueuedAt = System.nanoTime();
+            try {
+                super.execute(() -> run(work, enqueuedAt));
+                submitted.increment();
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                Log.w(TAG, pool + " queue full (" + getQueue().size() + " waiting), task rejected");
+                throw e;
+            }
+        }
+
+        private void run(Runnable work, long enqueuedAt) {
+            long startedAt = System.nanoTime();
+            long waitNanos = startedAt - enqueuedAt;
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            if (waitNanos > SLOW_QUEUE_WAIT_MS * 1_000_000) {
+                Log.w(TAG, pool + " task waited " + waitNanos / 1_000_000 + " ms in the queue");
+            }
+
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, pool + " task failed: " + e.getMessage(), e);
+            } finally {
+                totalRunNanos.add(System.nanoTime() - startedAt);
+                completed.increment();
+            }
+        }
+
+        Metrics metrics() {
+            return new Metrics(getQueue().size(), getActiveCount(), submitted.sum(), completed.sum(),
+                    rejected.sum(), totalWaitNanos.sum(), maxWaitNanos.get(), totalRunNanos.sum());
+        }
+    }
+}
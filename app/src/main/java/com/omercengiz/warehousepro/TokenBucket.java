@@ -0,0 +1,83 @@
+package com.omercengiz.warehousepro;
+
+import java.util.function.LongSupplier;
+
+/**
+ * TokenBucket - rate limiter that allows short bursts
+ *
+ * Holds up to {@code capacity} tokens and refills at a fixed rate; every send takes one.
+ * Callers that get no token ask how long to wait instead of sleeping on a thread.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+
+    // Guarded by "this"
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param capacity largest burst
+     * @param tokensPerSecond sustained rate
+     */
+    public TokenBucket(int capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    // Explicit clock, used by unit tests
+    TokenBucket(int capacity, double tokensPerSecond, LongSupplier nanoClock) {
+        if (capacity < 1 || !(tokensPerSecond > 0)) {
+            throw new IllegalArgumentException("Capacity must be at least 1 and the rate positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.nanoClock = nanoClock;
+        this.tokens = capacity; // Start full
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take a token if one is available
+     * @return true if the caller may proceed now
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Time until the next token is available
+     * @return milliseconds, 0 if a token is available now
+     */
+    public synchronized long getWaitMillis() {
+        refill();
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano / 1e6);
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
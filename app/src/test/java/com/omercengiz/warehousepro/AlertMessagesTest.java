@@ -0,0 +1,96 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Segment counts of the alert templates, compared with the old emoji template
+ */
+public class AlertMessagesTest {
+
+    private static final Date TIME = new Date(1_700_000_000_000L);
+
+    // The alert text used before the templates moved to AlertMessages
+    private static String legacyLowStockMessage(InventoryItem item) {
+        StringBuilder message = new StringBuilder();
+        message.append("🚨 WAREHOUSE ALERT 🚨\n");
+        message.append("ITEM OUT OF STOCK!\n\n");
+        message.append("Item: ").append(item.getName()).append("\n");
+        message.append("Quantity: 0\n");
+        message.append("Weight: ").append(item.getFormattedWeight()).append("\n");
+        if (item.getNotes() != null && !item.getNotes().trim().isEmpty()) {
+            message.append("Notes: ").append(item.getNotes()).append("\n");
+        }
+        message.append("\nAction Required: Reorder immediately\n");
+        message.append("Time: ").append("Nov 14, 2023 22:13");
+        message.append("\n\n- Warehouse Pro System");
+        return message.toString();
+    }
+
+    @Test
+    public void lowStock_segmentCountBeforeAndAfter() {
+        InventoryItem item = new InventoryItem(1, "Heavy Duty Pallet Wrap", 12.5, 0,
+                "Reorder from the usual supplier, aisle 4", "");
+
+        String legacy = legacyLowStockMessage(item);
+        assertEquals(SmsEncoder.Encoding.UCS_2, SmsEncoder.encodingOf(legacy));
+        assertEquals(4, SmsEncoder.segmentCount(legacy));
+
+        String detailed = AlertMessages.lowStock(item, AlertMessages.Style.DETAILED, TIME);
+        assertEquals(SmsEncoder.Encoding.GSM_7, SmsEncoder.encodingOf(detailed));
+        assertEquals(2, SmsEncoder.segmentCount(detailed));
+
+        String compact = AlertMessages.lowStock(item, AlertMessages.Style.COMPACT, TIME);
+        assertEquals(SmsEncoder.Encoding.GSM_7, SmsEncoder.encodingOf(compact));
+        assertEquals(1, SmsEncoder.segmentCount(compact));
+        assertTrue(compact.contains("Heavy Duty Pallet Wrap"));
+        assertTrue(compact.contains("Notes: Reorder from"));
+    }
+
+    @Test
+    public void compactLowStock_staysSingleSegmentForLongUnicodeNames() {
+        InventoryItem item = new InventoryItem(1, "Étagère “premium” – " + "very long name ".repeat(15) + "📦",
+                3, 0, "Notes ".repeat(40), "");
+
+        assertTrue(SmsEncoder.segmentCount(legacyLowStockMessage(item)) > 5);
+
+        String compact = AlertMessages.lowStock(item, AlertMessages.Style.COMPACT, TIME);
+        assertEquals(SmsEncoder.Encoding.GSM_7, SmsEncoder.encodingOf(compact));
+        assertEquals(1, SmsEncoder.segmentCount(compact));
+        assertTrue(compact.startsWith("OUT OF STOCK: Étagère \"premium\" - very long"));
+        assertTrue(compact.endsWith("-WarehousePro"));
+    }
+
+    @Test
+    public void compactDigest_fitsOneSegmentAndCountsTheRest() {
+        List<InventoryItem> items = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            items.add(new InventoryItem(i, "Storage Bin " + i, 1, 0, "", ""));
+        }
+
+        String detailed = AlertMessages.digest(items, AlertMessages.Style.DETAILED, TIME);
+        String compact = AlertMessages.digest(items, AlertMessages.Style.COMPACT, TIME);
+
+        assertTrue(SmsEncoder.segmentCount(detailed) > 1);
+        assertEquals(1, SmsEncoder.segmentCount(compact));
+        assertTrue(compact.startsWith("OUT OF STOCK (20): Storage Bin 1, Storage Bin 2"));
+        assertTrue(compact.matches("(?s).*, \\+\\d+ more\\. Reorder\\..*"));
+    }
+
+    @Test
+    public void compactDigest_listsEveryItemWhenTheyFit() {
+        List<InventoryItem> items = Arrays.asList(
+                new InventoryItem(1, "Tape", 1, 0, "", ""),
+                new InventoryItem(2, "Zip Ties", 1, 0, "", ""));
+
+        String compact = AlertMessages.digest(items, AlertMessages.Style.COMPACT, TIME);
+        assertTrue(compact.startsWith("OUT OF STOCK (2): Tape, Zip Ties. Reorder."));
+        assertFalse(compact.contains("more"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Version counters and changed-row bookkeeping of InvalidationTracker
+ */
+public class InvalidationTrackerTest {
+
+    @Test
+    public void versions_arePerTable() {
+        InvalidationTracker tracker = new InvalidationTracker();
+        assertEquals(0, tracker.getVersion("inventory"));
+
+        tracker.notifyChanged("inventory", Arrays.asList(1, 2));
+        tracker.notifyChanged("inventory", Arrays.asList(3));
+        tracker.notifyChanged("users", Arrays.asList(1));
+
+        assertEquals(2, tracker.getVersion("inventory"));
+        assertEquals(1, tracker.getVersion("users"));
+    }
+
+    @Test
+    public void changedIds_onlyIncludeNewerWrites() {
+        InvalidationTracker tracker = new InvalidationTracker();
+        tracker.notifyChanged("inventory", Arrays.asList(1, 2));
+        long seen = tracker.getVersion("inventory");
+        tracker.notifyChanged("inventory", Arrays.asList(2, 3));
+        tracker.notifyChanged("inventory", Arrays.asList(4));
+
+        assertEquals(new HashSet<>(Arrays.asList(2, 3, 4)), tracker.getChangedIds("inventory", seen));
+        assertTrue(tracker.getChangedIds("inventory", tracker.getVersion("inventory")).isEmpty());
+    }
+
+    @Test
+    public void unknownOrTrimmedChanges_requireFullReload() {
+        InvalidationTracker tracker = new InvalidationTracker();
+        tracker.notifyChanged("inventory", null);
+        assertNull(tracker.getChangedIds("inventory", 0));
+
+        // Enough single-row writes to push the first ones out of the changelog
+        long seen = tracker.getVersion("inventory");
+        for (int i = 0; i < 1000; i++) {
+            tracker.notifyChanged("inventory", Arrays.asList(i));
+        }
+        assertNull(tracker.getChangedIds("inventory", seen));
+        assertEquals(Set.of(999), tracker.getChangedIds("inventory", tracker.getVersion("inventory") - 1));
+    }
+
+    @Test
+    public void observers_receiveCommittedWrites() {
+        InvalidationTracker tracker = new InvalidationTracker();
+        List<Long> versions = new ArrayList<>();
+        InvalidationTracker.Observer observer = (table, version, changedIds) -> versions.add(version);
+
+        tracker.addObserver(observer);
+        tracker.notifyChanged("inventory", Arrays.asList(1));
+        tracker.notifyChanged("inventory", Arrays.asList(2));
+        tracker.removeObserver(observer);
+        tracker.notifyChanged("inventory", Arrays.asList(3));
+
+        assertEquals(Arrays.asList(1L, 2L), versions);
+    }
+}
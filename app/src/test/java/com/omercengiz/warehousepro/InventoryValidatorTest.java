@@ -0,0 +1,47 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Input rules shared by AddItemActivity and InventoryImporter
+ */
+public class InventoryValidatorTest {
+
+    @Test
+    public void validItem_hasNoError() {
+        assertNull(InventoryValidator.validate("Pallet Wrap", "2.5", "0"));
+        assertNull(InventoryValidator.validate("AB", "10000", "100000"));
+    }
+
+    @Test
+    public void name_isRequiredAndLongEnough() {
+        assertEquals("Item name is required", InventoryValidator.validateName(null));
+        assertEquals("Item name is required", InventoryValidator.validateName(""));
+        assertEquals("Item name must be at least 2 characters", InventoryValidator.validateName("A"));
+    }
+
+    @Test
+    public void weight_mustBePositiveAndBounded() {
+        assertEquals("Weight is required", InventoryValidator.validateWeight(""));
+        assertEquals("Please enter a valid number", InventoryValidator.validateWeight("heavy"));
+        assertEquals("Weight must be greater than 0", InventoryValidator.validateWeight("0"));
+        assertEquals("Weight seems too large. Please check.", InventoryValidator.validateWeight("10000.5"));
+    }
+
+    @Test
+    public void quantity_mustBeWholeAndBounded() {
+        assertEquals("Quantity is required", InventoryValidator.validateQuantity(null));
+        assertEquals("Please enter a valid whole number", InventoryValidator.validateQuantity("1.5"));
+        assertEquals("Quantity cannot be negative", InventoryValidator.validateQuantity("-1"));
+        assertEquals("Quantity seems too large. Please check.", InventoryValidator.validateQuantity("100001"));
+    }
+
+    @Test
+    public void validate_reportsFirstError() {
+        assertEquals("Item name is required", InventoryValidator.validate("", "-1", "x"));
+        assertEquals("Weight is required", InventoryValidator.validate("Tape", "", "x"));
+        assertEquals("Quantity is required", InventoryValidator.validate("Tape", "1", ""));
+    }
+}
@@ -0,0 +1,43 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Normalization, validation and display formatting of PhoneNumbers
+ */
+public class PhoneNumbersTest {
+
+    @Test
+    public void normalize_removesFormatting() {
+        assertEquals("5551234567", PhoneNumbers.normalize("(555) 123-4567"));
+        assertEquals("5551234567", PhoneNumbers.normalize(" 555.123.4567 "));
+        assertEquals("+15551234567", PhoneNumbers.normalize("+1 555 123 4567"));
+    }
+
+    @Test
+    public void normalize_writesInternationalPrefixAsPlus() {
+        assertEquals("+905321234567", PhoneNumbers.normalize("00 90 532 123 45 67"));
+        assertEquals(PhoneNumbers.normalize("+90 532 123 45 67"), PhoneNumbers.normalize("0090-532-123-4567"));
+    }
+
+    @Test
+    public void normalize_rejectsInvalidNumbers() {
+        assertNull(PhoneNumbers.normalize(null));
+        assertNull(PhoneNumbers.normalize(""));
+        assertNull(PhoneNumbers.normalize("123456"));
+        assertNull(PhoneNumbers.normalize("1234567890123456"));
+        assertNull(PhoneNumbers.normalize("555-CALL-NOW"));
+        assertNull(PhoneNumbers.normalize("555+1234567"));
+        assertFalse(PhoneNumbers.isValid("   "));
+        assertTrue(PhoneNumbers.isValid("1234567"));
+    }
+
+    @Test
+    public void format_showsTenDigitNumbersInUsStyle() {
+        assertEquals("(555) 123-4567", PhoneNumbers.format("5551234567"));
+        assertEquals("+15551234567", PhoneNumbers.format("+15551234567"));
+        assertEquals("", PhoneNumbers.format(null));
+    }
+}
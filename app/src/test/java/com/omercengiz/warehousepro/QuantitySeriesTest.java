@@ -0,0 +1,66 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resolution choice and gap filling of QuantitySeries
+ */
+public class QuantitySeriesTest {
+
+    private static final long DAY = 24 * 60 * 60;
+    private static final long NOW = 1_700_000_000L;
+
+    @Test
+    public void forRange_picksFinestRetainedResolution() {
+        assertEquals(QuantitySeries.Resolution.MINUTE,
+                QuantitySeries.Resolution.forRange(NOW - 3600, NOW, NOW, 500));
+        // A day of minutes is too many points
+        assertEquals(QuantitySeries.Resolution.HOUR,
+                QuantitySeries.Resolution.forRange(NOW - DAY, NOW, NOW, 500));
+        // Minutes are only kept for two days
+        assertEquals(QuantitySeries.Resolution.HOUR,
+                QuantitySeries.Resolution.forRange(NOW - 3 * DAY, NOW - 3 * DAY + 600, NOW, 500));
+        assertEquals(QuantitySeries.Resolution.DAY,
+                QuantitySeries.Resolution.forRange(NOW - 365 * DAY, NOW, NOW, 500));
+    }
+
+    @Test
+    public void fill_carriesLevelForwardAcrossGaps() {
+        QuantitySeries.Resolution hour = QuantitySeries.Resolution.HOUR;
+        long start = hour.bucketStart(NOW);
+        List<QuantitySeries.Point> buckets = Arrays.asList(
+                new QuantitySeries.Point(start + 3600, 4, 9, 4, 2),
+                new QuantitySeries.Point(start + 4 * 3600, 0, 4, 0, 1));
+
+        List<QuantitySeries.Point> points = QuantitySeries.fill(hour, start + 10, start + 5 * 3600, 9, buckets).getPoints();
+
+        assertEquals(6, points.size());
+        int[] expected = {9, 4, 4, 4, 0, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(start + i * 3600, points.get(i).getTime());
+            assertEquals(expected[i], points.get(i).getClose());
+        }
+        assertEquals(2, points.get(1).getChanges());
+        assertEquals(0, points.get(2).getChanges());
+    }
+
+    @Test
+    public void fill_withoutInitialLevel_startsAtFirstBucket() {
+        QuantitySeries.Resolution minute = QuantitySeries.Resolution.MINUTE;
+        long start = minute.bucketStart(NOW);
+        List<QuantitySeries.Point> points = QuantitySeries.fill(minute, start, start + 300, null,
+                Collections.singletonList(new QuantitySeries.Point(start + 120, 5, 5, 5, 1))).getPoints();
+
+        assertEquals(4, points.size());
+        assertEquals(start + 120, points.get(0).getTime());
+        assertEquals(5, points.get(3).getClose());
+
+        assertTrue(QuantitySeries.fill(minute, start, start + 300, null, Collections.emptyList()).getPoints().isEmpty());
+    }
+}
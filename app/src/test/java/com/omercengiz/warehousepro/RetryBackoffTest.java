@@ -0,0 +1,43 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exponential growth, cap and jitter range of RetryBackoff
+ */
+public class RetryBackoffTest {
+
+    @Test
+    public void delay_doublesUpToCapWithJitter() {
+        RetryBackoff backoff = new RetryBackoff(1000, 10_000, 10);
+        Random random = new Random(42);
+        long[] ceilings = {1000, 2000, 4000, 8000, 10_000, 10_000};
+
+        for (int attempt = 1; attempt <= ceilings.length; attempt++) {
+            long ceiling = ceilings[attempt - 1];
+            for (int i = 0; i < 100; i++) {
+                long delay = backoff.delayMillis(attempt, random);
+                assertTrue("attempt " + attempt + ": " + delay, delay >= ceiling / 2 && delay < ceiling);
+            }
+        }
+    }
+
+    @Test
+    public void manyAttempts_doNotOverflow() {
+        RetryBackoff backoff = new RetryBackoff(30_000, 60 * 60 * 1000, 1000);
+        long delay = backoff.delayMillis(200, new Random(1));
+        assertTrue(delay >= 30 * 60 * 1000 && delay < 60 * 60 * 1000);
+    }
+
+    @Test
+    public void shouldRetry_stopsAtMaxAttempts() {
+        RetryBackoff backoff = new RetryBackoff(1000, 10_000, 3);
+        assertTrue(backoff.shouldRetry(1));
+        assertTrue(backoff.shouldRetry(2));
+        assertFalse(backoff.shouldRetry(3));
+    }
+}
@@ -0,0 +1,69 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Encoding detection, segment counting and GSM-7 conversion of SmsEncoder
+ */
+public class SmsEncoderTest {
+
+    private static String repeat(String text, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(text);
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void encoding_fallsBackToUcs2ForAnyNonGsmCharacter() {
+        assertEquals(SmsEncoder.Encoding.GSM_7, SmsEncoder.encodingOf("Crates @ 5 £/kg, Ñandù [A-1] €"));
+        assertEquals(SmsEncoder.Encoding.UCS_2, SmsEncoder.encodingOf("Crates 🚨"));
+        assertEquals(SmsEncoder.Encoding.UCS_2, SmsEncoder.encodingOf("Bob’s crates"));
+    }
+
+    @Test
+    public void segmentCount_usesSingleAndMultipartLimits() {
+        assertEquals(1, SmsEncoder.segmentCount(repeat("a", 160)));
+        assertEquals(2, SmsEncoder.segmentCount(repeat("a", 161)));
+        assertEquals(2, SmsEncoder.segmentCount(repeat("a", 306)));
+        assertEquals(3, SmsEncoder.segmentCount(repeat("a", 307)));
+
+        assertEquals(1, SmsEncoder.segmentCount(repeat("ж", 70)));
+        assertEquals(2, SmsEncoder.segmentCount(repeat("ж", 71)));
+        assertEquals(3, SmsEncoder.segmentCount(repeat("ж", 135)));
+    }
+
+    @Test
+    public void extensionCharacters_countTwiceAndAreNotSplit() {
+        assertEquals(2, SmsEncoder.length("€"));
+        assertEquals(1, SmsEncoder.segmentCount(repeat("€", 80)));
+        assertEquals(2, SmsEncoder.segmentCount(repeat("€", 81)));
+        // 152 septets, then an escape pair that must move to the next segment whole
+        assertEquals(3, SmsEncoder.segmentCount(repeat("a", 152) + "€" + repeat("a", 152)));
+    }
+
+    @Test
+    public void emoji_isNotSplitAcrossSegments() {
+        // 66 units, then a surrogate pair that does not fit the 67-unit part
+        String text = repeat("ж", 66) + "🚨" + repeat("ж", 10);
+        assertEquals(78, SmsEncoder.length(text));
+        assertEquals(2, SmsEncoder.segmentCount(text));
+    }
+
+    @Test
+    public void toGsm7_replacesTypographyAccentsAndEmoji() {
+        String converted = SmsEncoder.toGsm7("“Bob’s” crates – 5° 🚨 Łódź…");
+        assertEquals("\"Bob's\" crates - 5 deg ? ?odz...", converted);
+        assertEquals(SmsEncoder.Encoding.GSM_7, SmsEncoder.encodingOf(converted));
+    }
+
+    @Test
+    public void truncate_fitsLengthWithEllipsis() {
+        assertEquals("short", SmsEncoder.truncate("short", 10));
+        assertEquals("abcdefg...", SmsEncoder.truncate("abcdefghijklmnop", 10));
+        assertTrue(SmsEncoder.length(SmsEncoder.truncate(repeat("€", 20), 11)) <= 11);
+    }
+}
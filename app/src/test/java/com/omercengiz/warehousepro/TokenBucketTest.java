@@ -0,0 +1,63 @@
+package com.omercengiz.warehousepro;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Burst, refill and wait time of TokenBucket, on a fake clock
+ */
+public class TokenBucketTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void startsFull_allowsOneBurst() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(3, 1.0, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void refillsAtRate_upToCapacity() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 2.0, clock::get);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        clock.addAndGet(250 * MS);
+        assertFalse(bucket.tryAcquire());
+        clock.addAndGet(250 * MS);
+        assertTrue(bucket.tryAcquire());
+
+        // A long idle period never stores more than one burst
+        clock.addAndGet(60_000 * MS);
+        assertEquals(2.0, bucket.getAvailableTokens(), 1e-9);
+    }
+
+    @Test
+    public void waitMillis_matchesTimeToNextToken() {
+        AtomicLong clock = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 1.0, clock::get);
+        assertEquals(0, bucket.getWaitMillis());
+
+        bucket.tryAcquire();
+        assertEquals(1000, bucket.getWaitMillis());
+        clock.addAndGet(400 * MS);
+        assertEquals(600, bucket.getWaitMillis());
+
+        clock.addAndGet(bucket.getWaitMillis() * MS);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroRate_isRejected() {
+        new TokenBucket(1, 0);
+    }
+}